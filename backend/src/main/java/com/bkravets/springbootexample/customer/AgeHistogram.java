@@ -0,0 +1,88 @@
+package com.bkravets.springbootexample.customer;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Exact, thread-safe count of customers per year of age. Ages only span a few
+ * hundred values, so a bucket per age answers quantiles exactly in constant
+ * memory and, unlike a t-digest or an HDR histogram, supports removal.
+ * Ages outside the tracked range are counted at its nearest end.
+ */
+final class AgeHistogram {
+
+    static final int MAX_TRACKED_AGE = 150;
+
+    private final AtomicLongArray counts = new AtomicLongArray(MAX_TRACKED_AGE + 1);
+
+    void add(int age) {
+        counts.incrementAndGet(bucketOf(age));
+    }
+
+    void remove(int age) {
+        counts.decrementAndGet(bucketOf(age));
+    }
+
+    /**
+     * A copy to compute summaries from; writes racing it may or may not be part of it.
+     */
+    Snapshot snapshot() {
+        long[] copy = new long[counts.length()];
+        long total = 0;
+        long sum = 0;
+        for (int age = 0; age < copy.length; age++) {
+            // a removal may be applied before the add it undoes when both race
+            copy[age] = Math.max(0, counts.get(age));
+            total += copy[age];
+            sum += copy[age] * age;
+        }
+        return new Snapshot(copy, total, sum);
+    }
+
+    private static int bucketOf(int age) {
+        return Math.max(0, Math.min(age, MAX_TRACKED_AGE));
+    }
+
+    record Snapshot(long[] counts, long total, long sum) {
+
+        Integer min() {
+            for (int age = 0; age < counts.length; age++) {
+                if (counts[age] > 0) {
+                    return age;
+                }
+            }
+            return null;
+        }
+
+        Integer max() {
+            for (int age = counts.length - 1; age >= 0; age--) {
+                if (counts[age] > 0) {
+                    return age;
+                }
+            }
+            return null;
+        }
+
+        Double mean() {
+            return total == 0 ? null : (double) sum / total;
+        }
+
+        /**
+         * Nearest-rank quantile: the smallest age at least {@code q} of all
+         * customers are no older than.
+         */
+        Integer quantile(double q) {
+            if (total == 0) {
+                return null;
+            }
+            long rank = Math.max(1, (long) Math.ceil(q * total));
+            long seen = 0;
+            for (int age = 0; age < counts.length; age++) {
+                seen += counts[age];
+                if (seen >= rank) {
+                    return age;
+                }
+            }
+            return counts.length - 1;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.bkravets.springbootexample.customer;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe, add-only Bloom filter of strings. Bit positions are derived from
+ * two 64-bit hashes (Kirsch-Mitzenmacher double hashing).
+ */
+final class BloomFilter {
+
+    private static final double LN2 = Math.log(2);
+
+    private final AtomicLongArray words;
+    private final long bitSize;
+    private final int hashFunctions;
+    private final AtomicLong bitCount = new AtomicLong();
+
+    BloomFilter(long expectedInsertions, double fpp) {
+        if (fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("fpp must be between 0 and 1");
+        }
+        long n = Math.max(1, expectedInsertions);
+        long bits = (long) Math.ceil(-n * Math.log(fpp) / (LN2 * LN2));
+        this.words = new AtomicLongArray(Math.toIntExact((bits + 63) / 64));
+        this.bitSize = words.length() * 64L;
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bitSize / n * LN2));
+    }
+
+    void put(String value) {
+        long hash = Hashing.fnv1a(value);
+        long h1 = Hashing.fmix64(hash);
+        long h2 = Hashing.fmix64(hash + 0x9e3779b97f4a7c15L) | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitSize);
+            if (setBit(bit)) {
+                bitCount.incrementAndGet();
+            }
+        }
+    }
+
+    boolean mightContain(String value) {
+        long hash = Hashing.fnv1a(value);
+        long h1 = Hashing.fmix64(hash);
+        long h2 = Hashing.fmix64(hash + 0x9e3779b97f4a7c15L) | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitSize);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long memoryBytes() {
+        return words.length() * 8L;
+    }
+
+    /**
+     * Probability that {@link #mightContain} answers true for an absent value,
+     * given how many bits are set right now.
+     */
+    double expectedFpp() {
+        return Math.pow((double) bitCount.get() / bitSize, hashFunctions);
+    }
+
+    private boolean setBit(long bit) {
+        int index = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        while (true) {
+            long current = words.get(index);
+            if ((current & mask) != 0) {
+                return false;
+            }
+            if (words.compareAndSet(index, current, current | mask)) {
+                return true;
+            }
+        }
+    }
+}
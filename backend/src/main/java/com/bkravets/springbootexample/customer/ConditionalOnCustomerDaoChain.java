@@ -0,0 +1,26 @@
+package com.bkravets.springbootexample.customer;
+
+import org.springframework.context.annotation.Conditional;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Creates a decorating DAO only when it is on the chain that starts at
+ * {@code customer.dao} and follows the {@code customer.<name>.delegate}
+ * properties, so decorators nobody calls do not load the table at startup.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Conditional(OnCustomerDaoChainCondition.class)
+@interface ConditionalOnCustomerDaoChain {
+
+    /**
+     * The qualifier of the decorator.
+     */
+    String value();
+}
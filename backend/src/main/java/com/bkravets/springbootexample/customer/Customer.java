@@ -1,5 +1,6 @@
 package com.bkravets.springbootexample.customer;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 
 import java.util.Objects;
@@ -30,6 +31,11 @@ public class Customer {
     private String email;
     @Column(nullable = false)
     private Integer age;
+    // exposed to clients as the ETag header rather than in the body
+    @Version
+    @Column(nullable = false)
+    @JsonIgnore
+    private Long version;
 
     public Customer() {
     }
@@ -41,6 +47,14 @@ public class Customer {
         this.age = age;
     }
 
+    public Customer(Long id, String name, String email, Integer age, Long version) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+        this.age = age;
+        this.version = version;
+    }
+
     public Customer(String name, String email, Integer age) {
         this.name = name;
         this.email = email;
@@ -79,17 +93,25 @@ public class Customer {
         this.age = age;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Customer customer = (Customer) o;
-        return Objects.equals(id, customer.id) && Objects.equals(name, customer.name) && Objects.equals(email, customer.email) && Objects.equals(age, customer.age);
+        return Objects.equals(id, customer.id) && Objects.equals(name, customer.name) && Objects.equals(email, customer.email) && Objects.equals(age, customer.age) && Objects.equals(version, customer.version);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, name, email, age);
+        return Objects.hash(id, name, email, age, version);
     }
 
     @Override
@@ -99,6 +121,7 @@ public class Customer {
                 ", name='" + name + '\'' +
                 ", email='" + email + '\'' +
                 ", age=" + age +
+                ", version=" + version +
                 '}';
     }
 }
@@ -0,0 +1,56 @@
+package com.bkravets.springbootexample.customer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The batch insert both the JDBC and the JPA DAO send: one statement over
+ * arrays of the columns, skipping taken emails and returning the ids it
+ * generated so callers know exactly which rows they wrote.
+ */
+final class CustomerBatchInsert {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO customer (name, email, age)
+            SELECT name, email, age
+            FROM unnest(?::text[], ?::text[], ?::int[]) AS batch(name, email, age)
+            ON CONFLICT (email) DO NOTHING
+            RETURNING id, email
+            """;
+
+    private CustomerBatchInsert() {
+    }
+
+    /**
+     * The id of each customer, zero when its email was already taken,
+     * including by an earlier customer in the same batch.
+     */
+    static long[] insertAllIfEmailAbsent(Connection connection, List<Customer> customers) throws SQLException {
+        long[] ids = new long[customers.size()];
+        if (customers.isEmpty()) {
+            return ids;
+        }
+        Map<String, Long> inserted = new HashMap<>();
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL)) {
+            ps.setArray(1, connection.createArrayOf("text", customers.stream().map(Customer::getName).toArray()));
+            ps.setArray(2, connection.createArrayOf("text", customers.stream().map(Customer::getEmail).toArray()));
+            ps.setArray(3, connection.createArrayOf("int", customers.stream().map(Customer::getAge).toArray()));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    inserted.put(rs.getString("email"), rs.getLong("id"));
+                }
+            }
+        }
+        for (int i = 0; i < ids.length; i++) {
+            // only the first customer with an email got a row
+            Long id = inserted.remove(customers.get(i).getEmail());
+            ids[i] = id == null ? 0 : id;
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,179 @@
+package com.bkravets.springbootexample.customer;
+
+import com.bkravets.springbootexample.datasource.ConnectionRouting;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Coalesces concurrent lookups of single customers into one
+ * {@link CustomerDao#selectCustomersByIds} of another {@link CustomerDao}.
+ * <p>
+ * The first lookup opens a batch. When no batch is being loaded it loads its
+ * batch right away, so a lone lookup waits for nothing; otherwise it gives
+ * later lookups up to {@code window} to join, and a batch reaching
+ * {@code maxSize} is loaded at once by the lookup that filled it. Lookups
+ * inside a transaction go straight to the delegate, which has to use the
+ * transaction's connection, and lookups that may read from a replica never
+ * share a batch with those that must read from the primary.
+ */
+@Repository("batch")
+@ConditionalOnCustomerDaoChain("batch")
+public class CustomerBatchingDataAccessService extends ForwardingCustomerDao {
+
+    private final ConnectionRouting connectionRouting;
+    private final long windowNanos;
+    private final int maxSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // keyed by whether the batch's lookups may read from a replica
+    private final Map<Boolean, Batch> open = new HashMap<>();
+    private final AtomicInteger loading = new AtomicInteger();
+
+    @Autowired
+    public CustomerBatchingDataAccessService(BeanFactory beanFactory,
+                                             ObjectProvider<ConnectionRouting> connectionRouting,
+                                             @Value("${customer.batch.delegate}") String delegate,
+                                             @Value("${customer.batch.window}") Duration window,
+                                             @Value("${customer.batch.max-size}") int maxSize) {
+        this(beanFactory.getBean(delegate, CustomerDao.class),
+                connectionRouting.getIfAvailable(() -> ConnectionRouting.PRIMARY_ONLY),
+                window,
+                maxSize);
+    }
+
+    CustomerBatchingDataAccessService(CustomerDao delegate, ConnectionRouting connectionRouting,
+                                      Duration window, int maxSize) {
+        super(delegate);
+        this.connectionRouting = connectionRouting;
+        this.windowNanos = window.toNanos();
+        this.maxSize = maxSize;
+    }
+
+    private static final class Batch {
+        private final Map<Long, List<CompletableFuture<Optional<Customer>>>> lookups = new LinkedHashMap<>();
+    }
+
+    @Override
+    public Optional<Customer> selectCustomerById(Long id) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return delegate.selectCustomerById(id);
+        }
+
+        Boolean replica = connectionRouting.routesToReplica();
+        CompletableFuture<Optional<Customer>> result = new CompletableFuture<>();
+        Batch batch;
+        boolean first;
+        boolean full;
+        // not synchronized: waiting for the lock must not pin a virtual thread
+        lock.lock();
+        try {
+            batch = open.computeIfAbsent(replica, key -> new Batch());
+            first = batch.lookups.isEmpty();
+            batch.lookups.computeIfAbsent(id, key -> new ArrayList<>()).add(result);
+            full = batch.lookups.size() >= maxSize;
+            if (full) {
+                open.remove(replica);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (full) {
+            load(batch);
+        } else if (first) {
+            if (loading.get() > 0) {
+                awaitWindow(result);
+            }
+            if (close(replica, batch)) {
+                load(batch);
+            }
+        }
+        return join(result);
+    }
+
+    // returns early when a lookup that filled the batch has loaded it
+    private void awaitWindow(CompletableFuture<Optional<Customer>> result) {
+        try {
+            result.get(windowNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // loaded below, or the failure is rethrown by join
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean close(Boolean replica, Batch batch) {
+        lock.lock();
+        try {
+            return open.remove(replica, batch);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void load(Batch batch) {
+        loading.incrementAndGet();
+        try {
+            Map<Long, Customer> found = delegate.selectCustomersByIds(batch.lookups.keySet())
+                    .stream()
+                    .collect(Collectors.toMap(Customer::getId, Function.identity()));
+            batch.lookups.forEach((id, waiting) -> {
+                Customer customer = found.get(id);
+                for (int i = 0; i < waiting.size(); i++) {
+                    // lookups of the same id get instances of their own
+                    Customer own = customer == null || i == 0 ? customer : copyOf(customer);
+                    waiting.get(i).complete(Optional.ofNullable(own));
+                }
+            });
+        } catch (RuntimeException | Error e) {
+            batch.lookups.values().forEach(waiting -> waiting.forEach(future -> future.completeExceptionally(e)));
+        } finally {
+            loading.decrementAndGet();
+        }
+    }
+
+    private static Optional<Customer> join(CompletableFuture<Optional<Customer>> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static Customer copyOf(Customer customer) {
+        return new Customer(
+                customer.getId(),
+                customer.getName(),
+                customer.getEmail(),
+                customer.getAge(),
+                customer.getVersion()
+        );
+    }
+}
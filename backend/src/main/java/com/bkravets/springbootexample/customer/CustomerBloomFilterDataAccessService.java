@@ -0,0 +1,194 @@
+package com.bkravets.springbootexample.customer;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Answers "is this email taken?" from a Bloom filter of known emails and only
+ * asks the delegate about probable positives. The filter is built from the
+ * email column once the application is ready and is fed by every insert and
+ * update going through this DAO; until then every call falls through.
+ * <p>
+ * Registration relies on the unique constraint rather than asking first, so
+ * the calls it saves are bulk registration's {@link #selectExistingEmails}
+ * lookups, while every write still pays to feed the filter. It is therefore
+ * left off the {@code dao-chain} profile; set {@code customer.typeahead.delegate}
+ * to {@code bloom} to put it on.
+ */
+@Repository("bloom")
+@ConditionalOnCustomerDaoChain("bloom")
+public class CustomerBloomFilterDataAccessService extends ForwardingCustomerDao implements MeterBinder {
+
+    private final long expectedInsertions;
+    private final double fpp;
+
+    private final RebuildableView<BloomFilter> filter;
+    private long lastCount;
+
+    private final LongAdder negatives = new LongAdder();
+    private final LongAdder truePositives = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    @Autowired
+    public CustomerBloomFilterDataAccessService(BeanFactory beanFactory,
+                                                PlatformTransactionManager transactionManager,
+                                                @Value("${customer.bloom.delegate}") String delegate,
+                                                @Value("${customer.bloom.expected-insertions}") long expectedInsertions,
+                                                @Value("${customer.bloom.fpp}") double fpp) {
+        this(beanFactory.getBean(delegate, CustomerDao.class),
+                RebuildableView.readOnlyNewTransaction(transactionManager),
+                expectedInsertions,
+                fpp);
+    }
+
+    CustomerBloomFilterDataAccessService(CustomerDao delegate,
+                                         TransactionOperations transactionOperations,
+                                         long expectedInsertions,
+                                         double fpp) {
+        super(delegate);
+        this.expectedInsertions = expectedInsertions;
+        this.fpp = fpp;
+        this.filter = new RebuildableView<>(transactionOperations);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCustomersImported(CustomersImportedEvent event) {
+        rebuild();
+    }
+
+    void rebuild() {
+        // both lambdas run under the view's rebuild lock, which guards lastCount
+        filter.rebuild(() -> new BloomFilter(Math.max(expectedInsertions, 2 * lastCount), fpp), next -> {
+            long count = 0;
+            try (Stream<String> emails = delegate.streamAllEmails()) {
+                for (String email : (Iterable<String>) emails::iterator) {
+                    next.put(email);
+                    count++;
+                }
+            }
+            lastCount = count;
+        });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("customer.email.bloom.memory", this,
+                        dao -> dao.filter.current() == null ? 0 : dao.filter.current().memoryBytes())
+                .baseUnit(BaseUnits.BYTES)
+                .description("Size of the Bloom filter bit array")
+                .register(registry);
+        Gauge.builder("customer.email.bloom.fpp.expected", this,
+                        dao -> dao.filter.current() == null ? Double.NaN : dao.filter.current().expectedFpp())
+                .description("False-positive probability implied by the bits currently set")
+                .register(registry);
+        Gauge.builder("customer.email.bloom.fpp.observed", this,
+                        CustomerBloomFilterDataAccessService::observedFpp)
+                .description("Share of absent emails the filter failed to rule out")
+                .register(registry);
+        FunctionCounter.builder("customer.email.bloom.checks", negatives, LongAdder::sum)
+                .tag("result", "negative")
+                .register(registry);
+        FunctionCounter.builder("customer.email.bloom.checks", truePositives, LongAdder::sum)
+                .tag("result", "true_positive")
+                .register(registry);
+        FunctionCounter.builder("customer.email.bloom.checks", falsePositives, LongAdder::sum)
+                .tag("result", "false_positive")
+                .register(registry);
+    }
+
+    double observedFpp() {
+        double absent = negatives.sum() + falsePositives.sum();
+        return absent == 0 ? Double.NaN : falsePositives.sum() / absent;
+    }
+
+    @Override
+    public boolean existsCustomerWithEmail(String email) {
+        BloomFilter current = filter.current();
+        if (current == null) {
+            return delegate.existsCustomerWithEmail(email);
+        }
+        if (!current.mightContain(email)) {
+            negatives.increment();
+            return false;
+        }
+        boolean exists = delegate.existsCustomerWithEmail(email);
+        (exists ? truePositives : falsePositives).increment();
+        return exists;
+    }
+
+    @Override
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        BloomFilter current = filter.current();
+        if (current == null) {
+            return delegate.selectExistingEmails(emails);
+        }
+        List<String> candidates = emails.stream()
+                .filter(current::mightContain)
+                .toList();
+        negatives.add(emails.size() - candidates.size());
+        if (candidates.isEmpty()) {
+            return Set.of();
+        }
+        Set<String> existing = delegate.selectExistingEmails(candidates);
+        truePositives.add(existing.size());
+        falsePositives.add(candidates.size() - existing.size());
+        return existing;
+    }
+
+    @Override
+    public void insertCustomer(Customer customer) {
+        delegate.insertCustomer(customer);
+        remember(customer.getEmail());
+    }
+
+    @Override
+    public Optional<Long> insertCustomerIfEmailAbsent(Customer customer) {
+        Optional<Long> id = delegate.insertCustomerIfEmailAbsent(customer);
+        remember(customer.getEmail());
+        return id;
+    }
+
+    @Override
+    public long[] insertCustomers(List<Customer> customers) {
+        long[] ids = delegate.insertCustomers(customers);
+        customers.forEach(customer -> remember(customer.getEmail()));
+        return ids;
+    }
+
+    @Override
+    public CustomerUpdateResult updateCustomer(Customer customer) {
+        CustomerUpdateResult result = delegate.updateCustomer(customer);
+        if (result.status() == CustomerUpdateResult.Status.UPDATED) {
+            remember(result.customer().getEmail());
+        }
+        return result;
+    }
+
+    private void remember(String email) {
+        filter.apply(target -> target.put(email));
+    }
+}
@@ -0,0 +1,18 @@
+package com.bkravets.springbootexample.customer;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * {@link CustomerRepository} fragment for batched inserts that skip taken
+ * emails. {@code saveAll} fails the whole batch on the first duplicate.
+ */
+public interface CustomerBulkInsertRepository {
+
+    /**
+     * The id of each customer, zero when its email was already taken.
+     */
+    @Transactional
+    long[] insertAllIfEmailAbsent(List<Customer> customers);
+}
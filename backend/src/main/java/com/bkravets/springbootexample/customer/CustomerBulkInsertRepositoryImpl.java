@@ -0,0 +1,22 @@
+package com.bkravets.springbootexample.customer;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+
+import java.util.List;
+
+class CustomerBulkInsertRepositoryImpl implements CustomerBulkInsertRepository {
+
+    private final EntityManager entityManager;
+
+    CustomerBulkInsertRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public long[] insertAllIfEmailAbsent(List<Customer> customers) {
+        // the same statement the JDBC DAO sends, on the session's connection
+        return entityManager.unwrap(Session.class).doReturningWork(connection ->
+                CustomerBatchInsert.insertAllIfEmailAbsent(connection, customers));
+    }
+}
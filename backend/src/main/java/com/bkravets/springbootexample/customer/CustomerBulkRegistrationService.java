@@ -0,0 +1,89 @@
+package com.bkravets.springbootexample.customer;
+
+import com.bkravets.springbootexample.customer.CustomerRegistrationOutcome.Status;
+import com.bkravets.springbootexample.exception.RequestValidationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Service
+public class CustomerBulkRegistrationService {
+
+    private final CustomerDao customerDao;
+    private final int batchSize;
+    private final int maxRequestSize;
+
+    public CustomerBulkRegistrationService(CustomerDao customerDao,
+                                           @Value("${customer.bulk.batch-size}") int batchSize,
+                                           @Value("${customer.bulk.max-size}") int maxRequestSize) {
+        this.customerDao = customerDao;
+        this.batchSize = batchSize;
+        this.maxRequestSize = maxRequestSize;
+    }
+
+    public List<CustomerRegistrationOutcome> registerCustomers(List<CustomerRegistrationRequest> requests) {
+        if (requests.size() > maxRequestSize) {
+            throw new RequestValidationException(
+                    "at most %s customers can be registered at once".formatted(maxRequestSize)
+            );
+        }
+
+        Status[] statuses = new Status[requests.size()];
+        Set<String> requestedEmails = new HashSet<>();
+        for (int i = 0; i < requests.size(); i++) {
+            CustomerRegistrationRequest request = requests.get(i);
+            if (!isValid(request)) {
+                statuses[i] = Status.INVALID;
+            } else if (!requestedEmails.add(request.email())) {
+                statuses[i] = Status.DUPLICATE;
+            }
+        }
+
+        Set<String> existingEmails = customerDao.selectExistingEmails(requestedEmails);
+
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            // invalid rows, null ones included, and repeats already have their outcome
+            if (statuses[i] != null) {
+                continue;
+            }
+            if (existingEmails.contains(requests.get(i).email())) {
+                statuses[i] = Status.DUPLICATE;
+            } else {
+                pending.add(i);
+            }
+        }
+
+        for (int from = 0; from < pending.size(); from += batchSize) {
+            List<Integer> chunk = pending.subList(from, Math.min(from + batchSize, pending.size()));
+            List<Customer> customers = chunk.stream()
+                    .map(requests::get)
+                    .map(r -> new Customer(r.name(), r.email(), r.age()))
+                    .toList();
+
+            // a zero id means someone else registered the email in the meantime
+            long[] inserted = customerDao.insertCustomers(customers);
+            for (int i = 0; i < chunk.size(); i++) {
+                statuses[chunk.get(i)] = inserted[i] > 0 ? Status.CREATED : Status.DUPLICATE;
+            }
+        }
+
+        List<CustomerRegistrationOutcome> outcomes = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            CustomerRegistrationRequest request = requests.get(i);
+            outcomes.add(new CustomerRegistrationOutcome(i, request == null ? null : request.email(), statuses[i]));
+        }
+        return outcomes;
+    }
+
+    private static boolean isValid(CustomerRegistrationRequest request) {
+        return request != null
+                && request.name() != null && !request.name().isBlank()
+                && request.email() != null && !request.email().isBlank()
+                && request.age() != null && request.age() >= 0;
+    }
+}
@@ -0,0 +1,191 @@
+package com.bkravets.springbootexample.customer;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Read-through cache of customers by id in front of another {@link CustomerDao}.
+ * Misses are not cached, so new rows need no invalidation; rows are evicted on
+ * every update and delete that goes through this DAO.
+ * <p>
+ * Rows are loaded outside the cache's lock. A row whose id is invalidated
+ * while it loads is handed out but not cached; loads of other ids are not
+ * affected.
+ */
+@Repository("cache")
+@ConditionalOnCustomerDaoChain("cache")
+public class CustomerCachingDataAccessService extends ForwardingCustomerDao implements MeterBinder {
+
+    private final Cache<Long, Customer> cache;
+    // ids with loads in flight, so invalidations only spoil loads of their own id
+    private final Map<Long, LoadGuard> guards = new ConcurrentHashMap<>();
+
+    @Autowired
+    public CustomerCachingDataAccessService(BeanFactory beanFactory,
+                                            @Value("${customer.cache.delegate}") String delegate,
+                                            @Value("${customer.cache.max-size}") long maxSize,
+                                            @Value("${customer.cache.ttl}") Duration ttl) {
+        this(beanFactory.getBean(delegate, CustomerDao.class), maxSize, ttl);
+    }
+
+    CustomerCachingDataAccessService(CustomerDao delegate, long maxSize, Duration ttl) {
+        super(delegate);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "customers");
+    }
+
+    @Override
+    public Optional<Customer> selectCustomerById(Long id) {
+        Customer cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(copyOf(cached));
+        }
+
+        // loaded outside the map's lock, which would pin a virtual thread for the whole query
+        long seen = beginLoad(id);
+        Optional<Customer> loaded = Optional.empty();
+        try {
+            loaded = delegate.selectCustomerById(id);
+        } finally {
+            endLoad(id, seen, loaded.orElse(null));
+        }
+        return loaded;
+    }
+
+    @Override
+    public List<Customer> selectCustomersByIds(Collection<Long> ids) {
+        List<Customer> customers = new ArrayList<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            Customer cached = cache.getIfPresent(id);
+            if (cached != null) {
+                customers.add(copyOf(cached));
+            } else {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return customers;
+        }
+
+        Map<Long, Long> seen = new HashMap<>();
+        missing.forEach(id -> seen.put(id, beginLoad(id)));
+        Map<Long, Customer> found = Map.of();
+        try {
+            List<Customer> loaded = delegate.selectCustomersByIds(missing);
+            customers.addAll(loaded);
+            found = loaded.stream().collect(Collectors.toMap(Customer::getId, Function.identity()));
+        } finally {
+            for (Long id : missing) {
+                endLoad(id, seen.get(id), found.get(id));
+            }
+        }
+        return customers;
+    }
+
+    @Override
+    public Optional<Long> selectCustomerVersion(Long id) {
+        Customer cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(cached.getVersion());
+        }
+        return delegate.selectCustomerVersion(id);
+    }
+
+    @Override
+    public boolean existsCustomerWithId(Long id) {
+        return cache.getIfPresent(id) != null || delegate.existsCustomerWithId(id);
+    }
+
+    @Override
+    public Optional<Customer> deleteCustomer(Long id) {
+        try {
+            return delegate.deleteCustomer(id);
+        } finally {
+            invalidate(id);
+        }
+    }
+
+    @Override
+    public CustomerUpdateResult updateCustomer(Customer customer) {
+        try {
+            return delegate.updateCustomer(customer);
+        } finally {
+            invalidate(customer.getId());
+        }
+    }
+
+    private void invalidate(Long id) {
+        guards.computeIfPresent(id, (key, guard) -> {
+            guard.invalidations++;
+            return guard;
+        });
+        cache.invalidate(id);
+    }
+
+    // the id's invalidation count, to compare once the row is loaded
+    private long beginLoad(Long id) {
+        long[] seen = new long[1];
+        guards.compute(id, (key, guard) -> {
+            LoadGuard current = guard == null ? new LoadGuard() : guard;
+            current.loads++;
+            seen[0] = current.invalidations;
+            return current;
+        });
+        return seen[0];
+    }
+
+    private void endLoad(Long id, long seen, Customer loaded) {
+        guards.compute(id, (key, guard) -> {
+            // a row read before a concurrent update or delete must not outlive its invalidation
+            if (loaded != null && guard.invalidations == seen) {
+                cache.asMap().putIfAbsent(id, copyOf(loaded));
+            }
+            return --guard.loads == 0 ? null : guard;
+        });
+    }
+
+    // only touched inside the guard map's compute calls
+    private static final class LoadGuard {
+        private int loads;
+        private long invalidations;
+    }
+
+    // cached instances are never handed out, callers are free to mutate what they get
+    private static Customer copyOf(Customer customer) {
+        return new Customer(
+                customer.getId(),
+                customer.getName(),
+                customer.getEmail(),
+                customer.getAge(),
+                customer.getVersion()
+        );
+    }
+}
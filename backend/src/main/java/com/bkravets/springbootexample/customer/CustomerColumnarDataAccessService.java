@@ -0,0 +1,391 @@
+package com.bkravets.springbootexample.customer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * In-memory customer store laid out column-wise for millions of rows.
+ * <p>
+ * Row {@code r} holds the customer with id {@code r + 1}, so ids need no column
+ * and lookups by id are an array access. Ages and versions are primitive
+ * arrays; names and emails are UTF-8 bytes in off-heap {@link StringSlabs},
+ * referenced by one {@code long} per row. Emails are indexed by an
+ * open-addressing table of row numbers. {@link Customer} objects only exist
+ * while crossing the DAO boundary.
+ * <p>
+ * Deleted rows are tombstoned and replaced strings are not reclaimed; the store
+ * is meant for bulk-loaded, mostly-read data. With 1M customers (15 byte
+ * names, 28 byte emails) {@code CustomerMemoryBenchmark} in the benchmarks
+ * module measures about 92 bytes per customer here, 42 on the heap and 50
+ * off-heap, against about 323 bytes of heap in the {@code list} DAO.
+ */
+@Repository("columnar")
+public class CustomerColumnarDataAccessService implements CustomerDao, MeterBinder {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int EMPTY = 0;
+    private static final int REMOVED = -1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final StringSlabs names = new StringSlabs();
+    private final StringSlabs emails = new StringSlabs();
+    private long[] nameRefs = new long[INITIAL_CAPACITY];
+    private long[] emailRefs = new long[INITIAL_CAPACITY];
+    private int[] emailHashes = new int[INITIAL_CAPACITY];
+    private int[] ages = new int[INITIAL_CAPACITY];
+    private long[] versions = new long[INITIAL_CAPACITY];
+    private final BitSet deleted = new BitSet();
+    private int rows;
+
+    // slot holds row + 1, or EMPTY / REMOVED
+    private int[] emailIndex = new int[INITIAL_CAPACITY * 2];
+    private int emailIndexOccupied;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("customer.columnar.memory", this, CustomerColumnarDataAccessService::memoryBytes)
+                .baseUnit(BaseUnits.BYTES)
+                .description("Heap arrays and off-heap slabs held by the columnar store")
+                .register(registry);
+    }
+
+    long memoryBytes() {
+        return read(() -> (long) nameRefs.length * 8
+                + (long) emailRefs.length * 8
+                + (long) emailHashes.length * 4
+                + (long) ages.length * 4
+                + (long) versions.length * 8
+                + deleted.size() / 8
+                + (long) emailIndex.length * 4
+                + names.memoryBytes()
+                + emails.memoryBytes());
+    }
+
+    @Override
+    public List<Customer> selectAllCustomers() {
+        return read(() -> IntStream.range(0, rows)
+                .filter(row -> !deleted.get(row))
+                .mapToObj(this::materialize)
+                .toList());
+    }
+
+    @Override
+    public List<Customer> selectCustomersAfter(Long afterId, int limit) {
+        return read(() -> {
+            List<Customer> page = new ArrayList<>(limit);
+            long from = Math.max(0, afterId);
+            for (int row = (int) Math.min(from, rows); row < rows && page.size() < limit; row++) {
+                if (!deleted.get(row)) {
+                    page.add(materialize(row));
+                }
+            }
+            return page;
+        });
+    }
+
+    @Override
+    public List<Customer> selectCustomersMatching(CustomerSearchCriteria criteria, Long afterId, int limit) {
+        return read(() -> {
+            List<Customer> page = new ArrayList<>(limit);
+            long from = Math.max(0, afterId);
+            for (int row = (int) Math.min(from, rows); row < rows && page.size() < limit; row++) {
+                if (deleted.get(row)) {
+                    continue;
+                }
+                Customer customer = materialize(row);
+                if (criteria.matches(customer)) {
+                    page.add(customer);
+                }
+            }
+            return page;
+        });
+    }
+
+    @Override
+    public Stream<Customer> streamAllCustomers() {
+        // one short read lock per row, a consumer can take as long as it likes
+        int snapshot = read(() -> rows);
+        return IntStream.range(0, snapshot)
+                .mapToObj(row -> read(() -> deleted.get(row) ? null : materialize(row)))
+                .filter(Objects::nonNull);
+    }
+
+    @Override
+    public Stream<String> streamAllEmails() {
+        int snapshot = read(() -> rows);
+        return IntStream.range(0, snapshot)
+                .mapToObj(row -> read(() -> deleted.get(row) ? null : emails.read(emailRefs[row])))
+                .filter(Objects::nonNull);
+    }
+
+    @Override
+    public Optional<Customer> selectCustomerById(Long id) {
+        return read(() -> {
+            int row = rowOf(id);
+            return row < 0 ? Optional.empty() : Optional.of(materialize(row));
+        });
+    }
+
+    @Override
+    public List<Customer> selectCustomersByIds(Collection<Long> ids) {
+        return read(() -> ids.stream()
+                .distinct()
+                .mapToInt(this::rowOf)
+                .filter(row -> row >= 0)
+                .mapToObj(this::materialize)
+                .toList());
+    }
+
+    @Override
+    public Optional<Long> selectCustomerVersion(Long id) {
+        return read(() -> {
+            int row = rowOf(id);
+            return row < 0 ? Optional.empty() : Optional.of(versions[row]);
+        });
+    }
+
+    @Override
+    public String selectCustomersFingerprint() {
+        return CustomerETag.fingerprint(selectAllCustomers());
+    }
+
+    @Override
+    public void insertCustomer(Customer customer) {
+        if (insertCustomerIfEmailAbsent(customer).isEmpty()) {
+            throw new DuplicateKeyException("Email is already taken");
+        }
+    }
+
+    @Override
+    public Optional<Long> insertCustomerIfEmailAbsent(Customer customer) {
+        byte[] email = customer.getEmail().getBytes(StandardCharsets.UTF_8);
+        int hash = customer.getEmail().hashCode();
+        lock.writeLock().lock();
+        try {
+            if (findEmail(email, hash) >= 0) {
+                return Optional.empty();
+            }
+            int row = rows;
+            ensureCapacity(row + 1);
+            nameRefs[row] = names.append(customer.getName());
+            emailRefs[row] = emails.append(email);
+            emailHashes[row] = hash;
+            ages[row] = customer.getAge();
+            versions[row] = 0;
+            rows++;
+            indexEmail(row);
+            return Optional.of(row + 1L);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public long[] insertCustomers(List<Customer> customers) {
+        long[] ids = new long[customers.size()];
+        for (int i = 0; i < customers.size(); i++) {
+            ids[i] = insertCustomerIfEmailAbsent(customers.get(i)).orElse(0L);
+        }
+        return ids;
+    }
+
+    @Override
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        return emails.stream()
+                .filter(this::existsCustomerWithEmail)
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public boolean existsCustomerWithId(Long id) {
+        return read(() -> rowOf(id) >= 0);
+    }
+
+    @Override
+    public boolean existsCustomerWithEmail(String email) {
+        byte[] bytes = email.getBytes(StandardCharsets.UTF_8);
+        return read(() -> findEmail(bytes, email.hashCode()) >= 0);
+    }
+
+    @Override
+    public Optional<Customer> deleteCustomer(Long id) {
+        lock.writeLock().lock();
+        try {
+            int row = rowOf(id);
+            if (row < 0) {
+                return Optional.empty();
+            }
+            Customer removed = materialize(row);
+            unindexEmail(row);
+            deleted.set(row);
+            return Optional.of(removed);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public CustomerUpdateResult updateCustomer(Customer customer) {
+        lock.writeLock().lock();
+        try {
+            int row = rowOf(customer.getId());
+            if (row < 0) {
+                return CustomerUpdateResult.notFound();
+            }
+            if (customer.getVersion() != null && customer.getVersion() != versions[row]) {
+                return CustomerUpdateResult.versionMismatch();
+            }
+
+            Customer current = materialize(row);
+            boolean nameChanged = customer.getName() != null && !customer.getName().equals(current.getName());
+            boolean emailChanged = customer.getEmail() != null && !customer.getEmail().equals(current.getEmail());
+            boolean ageChanged = customer.getAge() != null && !customer.getAge().equals(current.getAge());
+            if (!nameChanged && !emailChanged && !ageChanged) {
+                return CustomerUpdateResult.unchanged();
+            }
+
+            if (emailChanged) {
+                byte[] email = customer.getEmail().getBytes(StandardCharsets.UTF_8);
+                int hash = customer.getEmail().hashCode();
+                if (findEmail(email, hash) >= 0) {
+                    throw new DuplicateKeyException("Email is already taken");
+                }
+                unindexEmail(row);
+                emailRefs[row] = emails.append(email);
+                emailHashes[row] = hash;
+                indexEmail(row);
+            }
+            if (nameChanged) {
+                nameRefs[row] = names.append(customer.getName());
+            }
+            if (ageChanged) {
+                ages[row] = customer.getAge();
+            }
+            versions[row]++;
+            return CustomerUpdateResult.updated(materialize(row), current);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private <T> T read(Supplier<T> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Customer materialize(int row) {
+        return new Customer(
+                row + 1L,
+                names.read(nameRefs[row]),
+                emails.read(emailRefs[row]),
+                ages[row],
+                versions[row]
+        );
+    }
+
+    private int rowOf(Long id) {
+        if (id == null || id < 1 || id > rows) {
+            return -1;
+        }
+        int row = (int) (id - 1);
+        return deleted.get(row) ? -1 : row;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= ages.length) {
+            return;
+        }
+        int capacity = Math.max(size, ages.length * 2);
+        nameRefs = Arrays.copyOf(nameRefs, capacity);
+        emailRefs = Arrays.copyOf(emailRefs, capacity);
+        emailHashes = Arrays.copyOf(emailHashes, capacity);
+        ages = Arrays.copyOf(ages, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+    }
+
+    private int findEmail(byte[] email, int hash) {
+        int mask = emailIndex.length - 1;
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int entry = emailIndex[slot];
+            if (entry == EMPTY) {
+                return -1;
+            }
+            if (entry != REMOVED) {
+                int row = entry - 1;
+                if (emailHashes[row] == hash && emails.contentEquals(emailRefs[row], email)) {
+                    return row;
+                }
+            }
+        }
+    }
+
+    private void indexEmail(int row) {
+        // keep at most half the slots in use so probes stay short and always find an EMPTY
+        if ((emailIndexOccupied + 1) * 2 > emailIndex.length) {
+            rehash();
+        }
+        int mask = emailIndex.length - 1;
+        int slot = spread(emailHashes[row]) & mask;
+        while (emailIndex[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        emailIndex[slot] = row + 1;
+        emailIndexOccupied++;
+    }
+
+    private void unindexEmail(int row) {
+        int mask = emailIndex.length - 1;
+        for (int slot = spread(emailHashes[row]) & mask; ; slot = (slot + 1) & mask) {
+            if (emailIndex[slot] == row + 1) {
+                // stays occupied until the next rehash so probe chains are not cut
+                emailIndex[slot] = REMOVED;
+                return;
+            }
+        }
+    }
+
+    private void rehash() {
+        int live = 0;
+        for (int entry : emailIndex) {
+            if (entry > 0) {
+                live++;
+            }
+        }
+        int[] old = emailIndex;
+        emailIndex = new int[Math.max(INITIAL_CAPACITY * 2, Integer.highestOneBit(live * 4 + 1) * 2)];
+        emailIndexOccupied = 0;
+        for (int entry : old) {
+            if (entry > 0) {
+                indexEmail(entry - 1);
+            }
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -1,29 +1,138 @@
 package com.bkravets.springbootexample.customer;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/v1/customers")
+@Profile("!reactive")
 public class CustomerController {
 
     private final CustomerService customerService;
+    private final CustomerBulkRegistrationService bulkRegistrationService;
+    private final CustomerCsvImportService csvImportService;
+    private final CustomerTypeaheadService typeaheadService;
+    private final CustomerStatisticsService statisticsService;
+    private final ObjectMapper objectMapper;
 
-    public CustomerController(CustomerService customerService) {
+    public CustomerController(CustomerService customerService,
+                              CustomerBulkRegistrationService bulkRegistrationService,
+                              CustomerCsvImportService csvImportService,
+                              CustomerTypeaheadService typeaheadService,
+                              CustomerStatisticsService statisticsService,
+                              ObjectMapper objectMapper) {
         this.customerService = customerService;
+        this.bulkRegistrationService = bulkRegistrationService;
+        this.csvImportService = csvImportService;
+        this.typeaheadService = typeaheadService;
+        this.statisticsService = statisticsService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
-    public List<Customer> getCustomers() {
-        return customerService.getAllCustomers();
+    public ResponseEntity<List<Customer>> getCustomers(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        if (ifNoneMatch != null) {
+            String etag = CustomerETag.of(customerService.getCustomersFingerprint());
+            if (CustomerETag.matchesIfNoneMatch(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+        }
+
+        List<Customer> customers = customerService.getAllCustomers();
+        return ResponseEntity.ok()
+                .eTag(CustomerETag.of(CustomerETag.fingerprint(customers)))
+                .body(customers);
+    }
+
+    @GetMapping(params = "ids")
+    public List<Customer> getCustomersByIds(@RequestParam List<Long> ids) {
+        return customerService.getCustomers(ids);
+    }
+
+    @GetMapping("page")
+    public CustomerPage getCustomersPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+
+        return customerService.getCustomersPage(cursor, limit);
+    }
+
+    @GetMapping("search")
+    public CustomerPage searchCustomers(
+            @RequestParam(required = false) Integer minAge,
+            @RequestParam(required = false) Integer maxAge,
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false) String emailDomain,
+            @RequestParam(required = false) String namePrefix,
+            @RequestParam(required = false) String nameContains,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+
+        CustomerSearchCriteria criteria = new CustomerSearchCriteria(
+                minAge, maxAge, email, emailDomain, namePrefix, nameContains);
+        return customerService.searchCustomers(criteria, cursor, limit);
+    }
+
+    @GetMapping("typeahead")
+    public List<CustomerSuggestion> suggestCustomers(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limit) {
+
+        return typeaheadService.suggest(q, limit);
+    }
+
+    @GetMapping("stats")
+    public CustomerStatistics getStatistics() {
+        return statisticsService.getStatistics();
+    }
+
+    @GetMapping(value = "export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportCustomers() {
+        ObjectWriter writer = objectMapper.writerFor(Customer.class);
+        StreamingResponseBody body = outputStream -> customerService.exportCustomers(customer -> {
+            try {
+                outputStream.write(writer.writeValueAsBytes(customer));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
     @GetMapping("{customerId}")
-    public Customer getCustomer(
-            @PathVariable("customerId") Long customerId) {
+    public ResponseEntity<Customer> getCustomer(
+            @PathVariable("customerId") Long customerId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        // a conditional request only needs the version to be answered with 304
+        if (ifNoneMatch != null) {
+            String etag = CustomerETag.of(customerService.getCustomerVersion(customerId));
+            if (CustomerETag.matchesIfNoneMatch(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+        }
 
-        return customerService.getCustomer(customerId);
+        Customer customer = customerService.getCustomer(customerId);
+        return ResponseEntity.ok()
+                .eTag(CustomerETag.of(customer.getVersion()))
+                .body(customer);
     }
 
     @PostMapping
@@ -31,14 +140,40 @@ public class CustomerController {
         customerService.addCustomer(customerRegistrationRequest);
     }
 
+    @PostMapping("batch")
+    public List<CustomerRegistrationOutcome> registerCustomers(
+            @RequestBody List<CustomerRegistrationRequest> registrationRequests) {
+
+        return bulkRegistrationService.registerCustomers(registrationRequests);
+    }
+
+    @PostMapping(value = "import", consumes = "text/csv")
+    public CustomerImportResult importCustomers(InputStream csv) {
+        return csvImportService.importCustomers(csv);
+    }
+
     @DeleteMapping("{customerId}")
     public void deleteCustomer(@PathVariable Long customerId) {
         customerService.deleteCustomerById(customerId);
     }
 
     @PutMapping("{customerId}")
-    public void updateCustomer(@PathVariable long customerId, @RequestBody CustomerUpdateRequest updateRequest) {
-        customerService.updateCustomer(customerId, updateRequest);
+    public ResponseEntity<Void> updateCustomer(
+            @PathVariable long customerId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody CustomerUpdateRequest updateRequest) {
+
+        List<Long> accepted = CustomerETag.parseIfMatch(ifMatch);
+        Long expectedVersion = switch (accepted.size()) {
+            case 0 -> null;
+            case 1 -> accepted.get(0);
+            // the update compares the version again, so a write in between still fails it
+            default -> CustomerETag.requireAnyOf(accepted, customerService.getCustomerVersion(customerId));
+        };
+        Customer updated = customerService.updateCustomer(customerId, updateRequest, expectedVersion);
+        return ResponseEntity.ok()
+                .eTag(CustomerETag.of(updated.getVersion()))
+                .build();
     }
 
 }
\ No newline at end of file
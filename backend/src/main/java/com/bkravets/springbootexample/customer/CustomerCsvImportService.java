@@ -0,0 +1,101 @@
+package com.bkravets.springbootexample.customer;
+
+import com.bkravets.springbootexample.exception.RequestValidationException;
+import org.postgresql.PGConnection;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads customers from CSV ({@code name,email,age} with a header row) using
+ * PostgreSQL COPY. Rows are streamed into a temporary staging table and then
+ * merged into {@code customer}; rows with missing fields, a non-numeric age or
+ * an email that is already taken are counted as rejected.
+ */
+@Service
+public class CustomerCsvImportService {
+
+    private static final String CREATE_STAGING_TABLE_SQL = """
+            CREATE TEMP TABLE customer_import (
+                name TEXT,
+                email TEXT,
+                age TEXT
+            ) ON COMMIT DROP
+            """;
+
+    private static final String COPY_SQL = """
+            COPY customer_import (name, email, age)
+            FROM STDIN WITH (FORMAT csv, HEADER true)
+            """;
+
+    private static final String MERGE_SQL = """
+            INSERT INTO customer (name, email, age)
+            SELECT DISTINCT ON (email) name, email, btrim(age)::int
+            FROM customer_import
+            WHERE name <> ''
+              AND email <> ''
+              AND btrim(age) ~ '^[0-9]{1,9}$'
+            ORDER BY email
+            ON CONFLICT (email) DO NOTHING
+            RETURNING id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public CustomerCsvImportService(JdbcTemplate jdbcTemplate,
+                                    ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+    }
+
+    // the staging table lives until commit, so this must run in a transaction
+    @Transactional
+    public CustomerImportResult importCustomers(InputStream csv) {
+        List<Long> ids = new ArrayList<>();
+        CustomerImportResult result = jdbcTemplate.execute((ConnectionCallback<CustomerImportResult>) con -> {
+            try (Statement statement = con.createStatement()) {
+                statement.execute(CREATE_STAGING_TABLE_SQL);
+
+                long staged = copyIn(con.unwrap(PGConnection.class), csv);
+                try (ResultSet inserted = statement.executeQuery(MERGE_SQL)) {
+                    while (inserted.next()) {
+                        ids.add(inserted.getLong("id"));
+                    }
+                }
+
+                return new CustomerImportResult(ids.size(), staged - ids.size());
+            }
+        });
+        // the rows bypass CustomerDao, so let in-memory views of it know which ones
+        if (!ids.isEmpty()) {
+            eventPublisher.publishEvent(new CustomersImportedEvent(ids));
+        }
+        return result;
+    }
+
+    private static long copyIn(PGConnection connection, InputStream csv) throws SQLException {
+        try {
+            return connection.getCopyAPI().copyIn(COPY_SQL, csv);
+        } catch (SQLException e) {
+            // class 22 is "data exception": the upload itself is broken
+            if (e.getSQLState() != null && e.getSQLState().startsWith("22")) {
+                throw new RequestValidationException("Malformed CSV: " + e.getMessage());
+            }
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
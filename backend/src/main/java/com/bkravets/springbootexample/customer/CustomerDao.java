@@ -1,15 +1,28 @@
 package com.bkravets.springbootexample.customer;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public interface CustomerDao {
     List<Customer> selectAllCustomers();
+    List<Customer> selectCustomersAfter(Long afterId, int limit);
+    List<Customer> selectCustomersMatching(CustomerSearchCriteria criteria, Long afterId, int limit);
+    Stream<Customer> streamAllCustomers();
+    Stream<String> streamAllEmails();
     Optional<Customer> selectCustomerById(Long id);
+    List<Customer> selectCustomersByIds(Collection<Long> ids);
+    Optional<Long> selectCustomerVersion(Long id);
+    String selectCustomersFingerprint();
     void insertCustomer(Customer customer);
+    Optional<Long> insertCustomerIfEmailAbsent(Customer customer);
+    long[] insertCustomers(List<Customer> customers);
+    Set<String> selectExistingEmails(Collection<String> emails);
     boolean existsCustomerWithId(Long id);
     boolean existsCustomerWithEmail(String email);
-    void deleteCustomer(Long id);
-    void updateCustomer(Customer customer);
+    Optional<Customer> deleteCustomer(Long id);
+    CustomerUpdateResult updateCustomer(Customer customer);
 
 }
@@ -0,0 +1,36 @@
+package com.bkravets.springbootexample.customer;
+
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+@Configuration
+public class CustomerDaoConfig {
+
+    static final String PRIMARY_NAME = "customerDao";
+
+    /**
+     * Makes the DAO picked by {@code customer.dao} ({@code jdbc}, {@code jpa},
+     * {@code list}, {@code cache}, ...) the one services use by default. It stays
+     * one bean, also known as {@code customerDao}; a second bean for the same
+     * object would have its event listeners registered twice.
+     */
+    @Bean
+    public static BeanDefinitionRegistryPostProcessor primaryCustomerDaoPostProcessor(Environment environment) {
+        String qualifier = environment.getRequiredProperty("customer.dao");
+        return new BeanDefinitionRegistryPostProcessor() {
+            @Override
+            public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistry registry) {
+                registry.getBeanDefinition(qualifier).setPrimary(true);
+                registry.registerAlias(qualifier, PRIMARY_NAME);
+            }
+
+            @Override
+            public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+            }
+        };
+    }
+}
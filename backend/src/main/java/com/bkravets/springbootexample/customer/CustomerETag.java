@@ -0,0 +1,114 @@
+package com.bkravets.springbootexample.customer;
+
+import com.bkravets.springbootexample.exception.PreconditionFailedException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Strong entity tags built from the customer row version, and from the
+ * ids and versions of all customers for the list.
+ */
+final class CustomerETag {
+
+    private CustomerETag() {
+    }
+
+    static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    static String of(String fingerprint) {
+        return "\"" + fingerprint + "\"";
+    }
+
+    /**
+     * md5 over {@code id:version} pairs ordered by id and joined with commas.
+     * {@code CustomerDao#selectCustomersFingerprint()} must produce the same value.
+     */
+    static String fingerprint(Collection<Customer> customers) {
+        String joined = customers.stream()
+                .sorted(Comparator.comparing(Customer::getId))
+                .map(c -> c.getId() + ":" + c.getVersion())
+                .collect(Collectors.joining(","));
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5")
+                    .digest(joined.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Weak comparison as required for {@code If-None-Match}.
+     */
+    static boolean matchesIfNoneMatch(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the versions an {@code If-Match} header accepts, in the order given,
+     * or an empty list when the header is absent or {@code *}. Weak or foreign
+     * tags can never match a strong tag, so they are skipped, and a header left
+     * with none of ours fails the precondition.
+     */
+    static List<Long> parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return List.of();
+        }
+        List<Long> versions = new ArrayList<>();
+        for (String candidate : ifMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.length() < 3 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+                continue;
+            }
+            try {
+                long version = Long.parseLong(tag.substring(1, tag.length() - 1));
+                if (!versions.contains(version)) {
+                    versions.add(version);
+                }
+            } catch (NumberFormatException e) {
+                // not one of ours
+            }
+        }
+        if (versions.isEmpty()) {
+            throw new PreconditionFailedException("If-Match does not match the current version");
+        }
+        return versions;
+    }
+
+    /**
+     * Returns {@code currentVersion} if it is one of {@code accepted}, so the
+     * update can still check it has not changed since; fails the precondition
+     * otherwise.
+     */
+    static long requireAnyOf(List<Long> accepted, long currentVersion) {
+        if (!accepted.contains(currentVersion)) {
+            throw new PreconditionFailedException("If-Match does not match the current version");
+        }
+        return currentVersion;
+    }
+}
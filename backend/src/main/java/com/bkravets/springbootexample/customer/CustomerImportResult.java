@@ -0,0 +1,7 @@
+package com.bkravets.springbootexample.customer;
+
+public record CustomerImportResult(
+        long inserted,
+        long rejected
+) {
+}
@@ -1,13 +1,23 @@
 package com.bkravets.springbootexample.customer;
 
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Repository("jdbc")
 public class CustomerJDBCDataAccessService implements CustomerDao {
+    private static final int STREAM_FETCH_SIZE = 1000;
+
     private final JdbcTemplate jdbcTemplate;
     private final CustomerRowMapper rowMapper;
 
@@ -21,16 +31,129 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
         return jdbcTemplate.query("SELECT * FROM customer", rowMapper);
     }
 
+    @Override
+    public List<Customer> selectCustomersAfter(Long afterId, int limit) {
+        String sql = """
+                SELECT * FROM customer
+                WHERE id > ?
+                ORDER BY id
+                LIMIT ?
+                """;
+        return jdbcTemplate.query(sql, rowMapper, afterId, limit);
+    }
+
+    @Override
+    public List<Customer> selectCustomersMatching(CustomerSearchCriteria criteria, Long afterId, int limit) {
+        // every predicate is written the way its index in V4 is defined,
+        // the planner only uses an expression index for the same expression
+        List<String> predicates = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        predicates.add("id > ?");
+        args.add(afterId);
+        if (criteria.minAge() != null) {
+            predicates.add("age >= ?");
+            args.add(criteria.minAge());
+        }
+        if (criteria.maxAge() != null) {
+            predicates.add("age <= ?");
+            args.add(criteria.maxAge());
+        }
+        if (criteria.email() != null) {
+            predicates.add("email = ?");
+            args.add(criteria.email());
+        }
+        if (criteria.emailDomain() != null) {
+            predicates.add("lower(split_part(email, '@', 2)) = ?");
+            args.add(CustomerSearchCriteria.lower(criteria.emailDomain()));
+        }
+        if (criteria.namePrefix() != null) {
+            predicates.add("lower(name) LIKE ?");
+            args.add(CustomerSearchCriteria.escapeLike(CustomerSearchCriteria.lower(criteria.namePrefix())) + "%");
+        }
+        if (criteria.nameContains() != null) {
+            predicates.add("lower(name) LIKE ?");
+            args.add("%" + CustomerSearchCriteria.escapeLike(CustomerSearchCriteria.lower(criteria.nameContains())) + "%");
+        }
+        args.add(limit);
+
+        String sql = """
+                SELECT * FROM customer
+                WHERE %s
+                ORDER BY id
+                LIMIT ?
+                """.formatted(String.join(" AND ", predicates));
+        return jdbcTemplate.query(sql, rowMapper, args.toArray());
+    }
+
+    @Override
+    public Stream<Customer> streamAllCustomers() {
+        // the driver only honours the fetch size inside a transaction,
+        // otherwise it buffers the whole result set
+        return jdbcTemplate.queryForStream(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT * FROM customer");
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, rowMapper);
+    }
+
+    @Override
+    public Stream<String> streamAllEmails() {
+        return jdbcTemplate.queryForStream(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT email FROM customer");
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, (rs, rowNum) -> rs.getString("email"));
+    }
+
     @Override
     public Optional<Customer> selectCustomerById(Long id) {
         String sql = """
                 SELECT * FROM customer
                 WHERE id = ?
                 """;
-        return jdbcTemplate.queryForStream(sql, rowMapper, id)
+        return jdbcTemplate.query(sql, rowMapper, id)
+                .stream()
                 .findFirst();
     }
 
+    @Override
+    public List<Customer> selectCustomersByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        // one statement text whatever the number of ids, unlike an IN list
+        String sql = """
+                SELECT * FROM customer
+                WHERE id = ANY (?)
+                """;
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("bigint", ids.toArray()));
+            return ps;
+        }, rowMapper);
+    }
+
+    @Override
+    public Optional<Long> selectCustomerVersion(Long id) {
+        String sql = """
+                SELECT version FROM customer
+                WHERE id = ?
+                """;
+        return jdbcTemplate.query(sql, (rs, rowNum) -> rs.getLong("version"), id)
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public String selectCustomersFingerprint() {
+        // same format as CustomerETag.fingerprint, computed without shipping the rows
+        String sql = """
+                SELECT md5(coalesce(string_agg(id || ':' || version, ',' ORDER BY id), ''))
+                FROM customer
+                """;
+        return jdbcTemplate.queryForObject(sql, String.class);
+    }
+
     @Override
     public void insertCustomer(Customer customer) {
         String sql = """
@@ -44,6 +167,47 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
                 customer.getAge());
     }
 
+    @Override
+    public Optional<Long> insertCustomerIfEmailAbsent(Customer customer) {
+        String sql = """
+                INSERT INTO customer (name, email, age)
+                VALUES (?, ?, ?)
+                ON CONFLICT (email) DO NOTHING
+                RETURNING id
+                """;
+        return jdbcTemplate.query(
+                        sql,
+                        (rs, rowNum) -> rs.getLong("id"),
+                        customer.getName(),
+                        customer.getEmail(),
+                        customer.getAge())
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public long[] insertCustomers(List<Customer> customers) {
+        return jdbcTemplate.execute((ConnectionCallback<long[]>) con ->
+                CustomerBatchInsert.insertAllIfEmailAbsent(con, customers));
+    }
+
+    @Override
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        if (emails.isEmpty()) {
+            return Set.of();
+        }
+        String sql = """
+                SELECT email FROM customer
+                WHERE email = ANY (?)
+                """;
+        List<String> existing = jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("text", emails.toArray()));
+            return ps;
+        }, (rs, rowNum) -> rs.getString("email"));
+        return new HashSet<>(existing);
+    }
+
     @Override
     public boolean existsCustomerWithId(Long id) {
         String sql = """
@@ -67,52 +231,98 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
     }
 
     @Override
-    public void deleteCustomer(Long id) {
+    public Optional<Customer> deleteCustomer(Long id) {
         String sql = """
                 DELETE FROM customer WHERE id = ?
+                RETURNING *
                 """;
 
-        jdbcTemplate.update(sql, id);
+        return jdbcTemplate.query(sql, rowMapper, id)
+                .stream()
+                .findFirst();
     }
 
     @Override
-    public void updateCustomer(Customer customer) {
+    public CustomerUpdateResult updateCustomer(Customer customer) {
+        List<String> columns = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
         if (customer.getName() != null) {
-            String sql = """
-                        UPDATE customer
-                        SET name = ?
-                        WHERE id = ?
-                    """;
-
-            jdbcTemplate.update(sql,
-                    customer.getName(),
-                    customer.getId());
+            columns.add("name");
+            values.add(customer.getName());
         }
-
         if (customer.getEmail() != null) {
-            String sql = """
-                        UPDATE customer
-                        SET email = ?
-                        WHERE id = ?
-                    """;
-
-            jdbcTemplate.update(sql,
-                    customer.getEmail(),
-                    customer.getId());
+            columns.add("email");
+            values.add(customer.getEmail());
+        }
+        if (customer.getAge() != null) {
+            columns.add("age");
+            values.add(customer.getAge());
+        }
+        if (columns.isEmpty()) {
+            return CustomerUpdateResult.unchanged();
         }
 
+        // one statement that only touches rows whose values actually differ and,
+        // when a version is given, only if nobody changed the row in the meantime.
+        // "current_version" tells a missing customer, a stale version and a
+        // no-op update apart. The update joins the target so the row is locked and
+        // read first: what "target" holds is the row the update replaces, even after
+        // waiting for another writer
+        String sql = """
+                WITH target AS (
+                    SELECT * FROM customer WHERE id = ? FOR UPDATE
+                ), updated AS (
+                    UPDATE customer
+                    SET %s, version = customer.version + 1
+                    FROM target
+                    WHERE customer.id = target.id%s
+                      AND (%s)
+                    RETURNING customer.*
+                )
+                SELECT updated.*,
+                       target.version AS current_version,
+                       target.name AS previous_name,
+                       target.email AS previous_email,
+                       target.age AS previous_age
+                FROM (VALUES (1)) AS one
+                LEFT JOIN updated ON true
+                LEFT JOIN target ON true
+                """.formatted(
+                columns.stream()
+                        .map(column -> column + " = ?")
+                        .collect(Collectors.joining(", ")),
+                customer.getVersion() != null ? " AND customer.version = ?" : "",
+                columns.stream()
+                        .map(column -> "customer." + column + " IS DISTINCT FROM ?")
+                        .collect(Collectors.joining(" OR ")));
 
-        if (customer.getAge() != null) {
-            String sql = """
-                        UPDATE customer
-                        SET age = ?
-                        WHERE id = ?
-                    """;
-
-            jdbcTemplate.update(sql,
-                    customer.getAge(),
-                    customer.getId());
+        List<Object> args = new ArrayList<>();
+        args.add(customer.getId());
+        args.addAll(values);
+        if (customer.getVersion() != null) {
+            args.add(customer.getVersion());
         }
+        args.addAll(values);
+
+        return jdbcTemplate.queryForObject(sql, (rs, rowNum) -> {
+            if (rs.getObject("id") != null) {
+                return CustomerUpdateResult.updated(
+                        rowMapper.mapRow(rs, rowNum),
+                        new Customer(
+                                customer.getId(),
+                                rs.getString("previous_name"),
+                                rs.getString("previous_email"),
+                                rs.getInt("previous_age"),
+                                rs.getLong("current_version")));
+            }
+            long currentVersion = rs.getLong("current_version");
+            if (rs.wasNull()) {
+                return CustomerUpdateResult.notFound();
+            }
+            return customer.getVersion() != null && customer.getVersion() != currentVersion
+                    ? CustomerUpdateResult.versionMismatch()
+                    : CustomerUpdateResult.unchanged();
+        }, args.toArray());
     }
 
 }
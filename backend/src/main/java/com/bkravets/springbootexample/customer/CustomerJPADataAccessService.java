@@ -1,9 +1,14 @@
 package com.bkravets.springbootexample.customer;
 
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Repository("jpa")
 public class CustomerJPADataAccessService implements CustomerDao {
@@ -20,16 +25,74 @@ public class CustomerJPADataAccessService implements CustomerDao {
         return customerRepository.findAll();
     }
 
+    @Override
+    public List<Customer> selectCustomersAfter(Long afterId, int limit) {
+        return customerRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, limit));
+    }
+
+    @Override
+    public List<Customer> selectCustomersMatching(CustomerSearchCriteria criteria, Long afterId, int limit) {
+        return customerRepository.findMatching(
+                CustomerSpecifications.matching(criteria).and(CustomerSpecifications.idGreaterThan(afterId)),
+                limit);
+    }
+
+    @Override
+    public Stream<Customer> streamAllCustomers() {
+        return customerRepository.streamAllBy();
+    }
+
+    @Override
+    public Stream<String> streamAllEmails() {
+        return customerRepository.streamAllEmails();
+    }
+
     @Override
     public Optional<Customer> selectCustomerById(Long id) {
         return customerRepository.findById(id);
     }
 
+    @Override
+    public List<Customer> selectCustomersByIds(Collection<Long> ids) {
+        return customerRepository.findAllById(ids);
+    }
+
+    @Override
+    public Optional<Long> selectCustomerVersion(Long id) {
+        return customerRepository.findVersionById(id);
+    }
+
+    @Override
+    public String selectCustomersFingerprint() {
+        return customerRepository.computeFingerprint();
+    }
+
     @Override
     public void insertCustomer(Customer customer) {
         customerRepository.save(customer);
     }
 
+    @Override
+    public Optional<Long> insertCustomerIfEmailAbsent(Customer customer) {
+        return customerRepository.insertIfEmailAbsent(
+                customer.getName(),
+                customer.getEmail(),
+                customer.getAge());
+    }
+
+    @Override
+    public long[] insertCustomers(List<Customer> customers) {
+        return customerRepository.insertAllIfEmailAbsent(customers);
+    }
+
+    @Override
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        if (emails.isEmpty()) {
+            return Set.of();
+        }
+        return customerRepository.findExistingEmails(emails);
+    }
+
     @Override
     public boolean existsCustomerWithId(Long id) {
         return customerRepository.existsById(id);
@@ -41,12 +104,47 @@ public class CustomerJPADataAccessService implements CustomerDao {
     }
 
     @Override
-    public void deleteCustomer(Long id) {
-        customerRepository.deleteById(id);
+    public Optional<Customer> deleteCustomer(Long id) {
+        return customerRepository.deleteByIdReturning(id);
     }
 
     @Override
-    public void updateCustomer(Customer customer) {
-        customerRepository.save(customer);
+    public CustomerUpdateResult updateCustomer(Customer customer) {
+        return customerRepository.findById(customer.getId())
+                .map(existing -> {
+                    if (customer.getVersion() != null && !customer.getVersion().equals(existing.getVersion())) {
+                        return CustomerUpdateResult.versionMismatch();
+                    }
+
+                    Customer previous = new Customer(
+                            existing.getId(),
+                            existing.getName(),
+                            existing.getEmail(),
+                            existing.getAge(),
+                            existing.getVersion());
+                    boolean changes = false;
+                    if (customer.getName() != null && !customer.getName().equals(existing.getName())) {
+                        existing.setName(customer.getName());
+                        changes = true;
+                    }
+                    if (customer.getEmail() != null && !customer.getEmail().equals(existing.getEmail())) {
+                        existing.setEmail(customer.getEmail());
+                        changes = true;
+                    }
+                    if (customer.getAge() != null && !customer.getAge().equals(existing.getAge())) {
+                        existing.setAge(customer.getAge());
+                        changes = true;
+                    }
+                    if (!changes) {
+                        return CustomerUpdateResult.unchanged();
+                    }
+                    try {
+                        return CustomerUpdateResult.updated(customerRepository.save(existing), previous);
+                    } catch (OptimisticLockingFailureException e) {
+                        // changed by someone else between our read and the write
+                        return CustomerUpdateResult.versionMismatch();
+                    }
+                })
+                .orElseGet(CustomerUpdateResult::notFound);
     }
 }
\ No newline at end of file
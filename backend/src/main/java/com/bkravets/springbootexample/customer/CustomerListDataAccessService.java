@@ -1,73 +1,215 @@
 package com.bkravets.springbootexample.customer;
 
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Repository;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
-
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * In-memory customer store. Rows are kept by id in a sorted concurrent map,
+ * with a unique index from email to id; there is no global lock. An email is
+ * claimed in the index before the row that uses it becomes visible and is
+ * released after the row is gone, so the index never misses a stored email.
+ * Stored rows are never handed out, callers get copies.
+ */
 @Repository("list")
 public class CustomerListDataAccessService implements CustomerDao {
 
-    // db
-    private static final List<Customer> customers;
+    private final ConcurrentNavigableMap<Long, Customer> customers = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, Long> idsByEmail = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    // writers of the same row serialize on its stripe, other rows proceed in parallel
+    private final Object[] rowLocks = new Object[64];
 
-    static {
-        customers = new ArrayList<>();
+    public CustomerListDataAccessService() {
+        Arrays.setAll(rowLocks, i -> new Object());
 
-        Customer alex = new Customer(
-                1L,
+        insertCustomer(new Customer(
                 "Alex",
                 "alex@gmail.com",
                 21
-        );
-        customers.add(alex);
-
-        Customer jamila = new Customer(
-                2L,
+        ));
+        insertCustomer(new Customer(
                 "Jamila",
                 "jamila@gmail.com",
                 19
-        );
-        customers.add(jamila);
+        ));
     }
 
     @Override
     public List<Customer> selectAllCustomers() {
-        return customers;
+        return streamAllCustomers().toList();
+    }
+
+    @Override
+    public List<Customer> selectCustomersAfter(Long afterId, int limit) {
+        return customers.tailMap(afterId, false)
+                .values()
+                .stream()
+                .limit(limit)
+                .map(CustomerListDataAccessService::copyOf)
+                .toList();
+    }
+
+    @Override
+    public List<Customer> selectCustomersMatching(CustomerSearchCriteria criteria, Long afterId, int limit) {
+        return customers.tailMap(afterId, false)
+                .values()
+                .stream()
+                .filter(criteria::matches)
+                .limit(limit)
+                .map(CustomerListDataAccessService::copyOf)
+                .toList();
+    }
+
+    @Override
+    public Stream<Customer> streamAllCustomers() {
+        return customers.values().stream().map(CustomerListDataAccessService::copyOf);
+    }
+
+    @Override
+    public Stream<String> streamAllEmails() {
+        return customers.values().stream().map(Customer::getEmail);
     }
 
     @Override
     public Optional<Customer> selectCustomerById(Long id) {
-        return customers.stream()
-                .filter(c -> c.getId().equals(id))
-                .findFirst();
+        return Optional.ofNullable(customers.get(id)).map(CustomerListDataAccessService::copyOf);
+    }
+
+    @Override
+    public List<Customer> selectCustomersByIds(Collection<Long> ids) {
+        return ids.stream()
+                .distinct()
+                .map(customers::get)
+                .filter(Objects::nonNull)
+                .map(CustomerListDataAccessService::copyOf)
+                .toList();
+    }
+
+    @Override
+    public Optional<Long> selectCustomerVersion(Long id) {
+        return Optional.ofNullable(customers.get(id)).map(Customer::getVersion);
+    }
+
+    @Override
+    public String selectCustomersFingerprint() {
+        return CustomerETag.fingerprint(customers.values());
     }
 
     @Override
     public void insertCustomer(Customer customer) {
-        customers.add(customer);
+        if (insertCustomerIfEmailAbsent(customer).isEmpty()) {
+            throw new DuplicateKeyException("Email is already taken");
+        }
+    }
+
+    @Override
+    public Optional<Long> insertCustomerIfEmailAbsent(Customer customer) {
+        long id = ids.incrementAndGet();
+        if (idsByEmail.putIfAbsent(customer.getEmail(), id) != null) {
+            return Optional.empty();
+        }
+        customers.put(id, new Customer(id, customer.getName(), customer.getEmail(), customer.getAge(), 0L));
+        return Optional.of(id);
+    }
+
+    @Override
+    public long[] insertCustomers(List<Customer> customers) {
+        long[] ids = new long[customers.size()];
+        for (int i = 0; i < customers.size(); i++) {
+            ids[i] = insertCustomerIfEmailAbsent(customers.get(i)).orElse(0L);
+        }
+        return ids;
+    }
+
+    @Override
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        return emails.stream()
+                .filter(idsByEmail::containsKey)
+                .collect(Collectors.toSet());
     }
 
     @Override
     public boolean existsCustomerWithId(Long id) {
-        return customers.stream().anyMatch(c -> c.getId().equals(id));
+        return customers.containsKey(id);
     }
 
     @Override
     public boolean existsCustomerWithEmail(String email) {
-        return customers.stream().anyMatch(p -> p.getEmail().equals(email));
+        return idsByEmail.containsKey(email);
     }
 
     @Override
-    public void deleteCustomer(Long id) {
-       customers.removeIf(c -> c.getId().equals(id));
+    public Optional<Customer> deleteCustomer(Long id) {
+        synchronized (lockFor(id)) {
+            Customer removed = customers.remove(id);
+            if (removed == null) {
+                return Optional.empty();
+            }
+            idsByEmail.remove(removed.getEmail(), id);
+            return Optional.of(copyOf(removed));
+        }
     }
 
     @Override
-    public void updateCustomer(Customer customer) {
-       customers.add(customer);
+    public CustomerUpdateResult updateCustomer(Customer customer) {
+        Long id = customer.getId();
+        synchronized (lockFor(id)) {
+            Customer current = customers.get(id);
+            if (current == null) {
+                return CustomerUpdateResult.notFound();
+            }
+            if (customer.getVersion() != null && !customer.getVersion().equals(current.getVersion())) {
+                return CustomerUpdateResult.versionMismatch();
+            }
+
+            Customer updated = new Customer(
+                    id,
+                    customer.getName() != null ? customer.getName() : current.getName(),
+                    customer.getEmail() != null ? customer.getEmail() : current.getEmail(),
+                    customer.getAge() != null ? customer.getAge() : current.getAge(),
+                    current.getVersion());
+            if (updated.equals(current)) {
+                return CustomerUpdateResult.unchanged();
+            }
+            updated.setVersion(current.getVersion() + 1);
+
+            boolean emailChanged = !updated.getEmail().equals(current.getEmail());
+            if (emailChanged && idsByEmail.putIfAbsent(updated.getEmail(), id) != null) {
+                throw new DuplicateKeyException("Email is already taken");
+            }
+            customers.put(id, updated);
+            if (emailChanged) {
+                idsByEmail.remove(current.getEmail(), id);
+            }
+            return CustomerUpdateResult.updated(copyOf(updated), copyOf(current));
+        }
     }
 
+    private Object lockFor(Long id) {
+        return rowLocks[(int) (id & (rowLocks.length - 1))];
+    }
 
+    private static Customer copyOf(Customer customer) {
+        return new Customer(
+                customer.getId(),
+                customer.getName(),
+                customer.getEmail(),
+                customer.getAge(),
+                customer.getVersion()
+        );
+    }
 }
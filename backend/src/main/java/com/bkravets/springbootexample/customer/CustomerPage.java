@@ -0,0 +1,9 @@
+package com.bkravets.springbootexample.customer;
+
+import java.util.List;
+
+public record CustomerPage(
+        List<Customer> customers,
+        String nextCursor
+) {
+}
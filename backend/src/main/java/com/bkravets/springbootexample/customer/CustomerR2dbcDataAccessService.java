@@ -0,0 +1,203 @@
+package com.bkravets.springbootexample.customer;
+
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Readable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Non-blocking counterpart of {@link CustomerJDBCDataAccessService}, with the
+ * same statements. Multi-row queries set a fetch size, so the driver pulls
+ * rows from Postgres as subscribers request them instead of buffering the
+ * whole result.
+ */
+@Repository
+@Profile("reactive")
+public class CustomerR2dbcDataAccessService implements ReactiveCustomerDao {
+    private static final int STREAM_FETCH_SIZE = 250;
+
+    private final DatabaseClient databaseClient;
+
+    public CustomerR2dbcDataAccessService(ConnectionFactory connectionFactory) {
+        this.databaseClient = DatabaseClient.create(connectionFactory);
+    }
+
+    @Override
+    public Flux<Customer> selectAllCustomers() {
+        return databaseClient.sql("SELECT * FROM customer")
+                .filter(statement -> statement.fetchSize(STREAM_FETCH_SIZE))
+                .map(CustomerR2dbcDataAccessService::mapCustomer)
+                .all();
+    }
+
+    @Override
+    public Flux<Customer> selectCustomersAfter(Long afterId, int limit) {
+        String sql = """
+                SELECT * FROM customer
+                WHERE id > :afterId
+                ORDER BY id
+                LIMIT :limit
+                """;
+        return databaseClient.sql(sql)
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .filter(statement -> statement.fetchSize(STREAM_FETCH_SIZE))
+                .map(CustomerR2dbcDataAccessService::mapCustomer)
+                .all();
+    }
+
+    @Override
+    public Mono<Customer> selectCustomerById(Long id) {
+        String sql = """
+                SELECT * FROM customer
+                WHERE id = :id
+                """;
+        return databaseClient.sql(sql)
+                .bind("id", id)
+                .map(CustomerR2dbcDataAccessService::mapCustomer)
+                .one();
+    }
+
+    @Override
+    public Mono<Long> selectCustomerVersion(Long id) {
+        String sql = """
+                SELECT version FROM customer
+                WHERE id = :id
+                """;
+        return databaseClient.sql(sql)
+                .bind("id", id)
+                .map(row -> row.get("version", Long.class))
+                .one();
+    }
+
+    @Override
+    public Mono<String> selectCustomersFingerprint() {
+        // same format as CustomerETag.fingerprint, computed without shipping the rows
+        String sql = """
+                SELECT md5(coalesce(string_agg(id || ':' || version, ',' ORDER BY id), '')) AS fingerprint
+                FROM customer
+                """;
+        return databaseClient.sql(sql)
+                .map(row -> row.get("fingerprint", String.class))
+                .one();
+    }
+
+    @Override
+    public Mono<Long> insertCustomerIfEmailAbsent(Customer customer) {
+        String sql = """
+                INSERT INTO customer (name, email, age)
+                VALUES (:name, :email, :age)
+                ON CONFLICT (email) DO NOTHING
+                RETURNING id
+                """;
+        return databaseClient.sql(sql)
+                .bind("name", customer.getName())
+                .bind("email", customer.getEmail())
+                .bind("age", customer.getAge())
+                .map(row -> row.get("id", Long.class))
+                .one();
+    }
+
+    @Override
+    public Mono<Customer> deleteCustomer(Long id) {
+        String sql = """
+                DELETE FROM customer WHERE id = :id
+                RETURNING *
+                """;
+        return databaseClient.sql(sql)
+                .bind("id", id)
+                .map(CustomerR2dbcDataAccessService::mapCustomer)
+                .one();
+    }
+
+    @Override
+    public Mono<CustomerUpdateResult> updateCustomer(Customer customer) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        if (customer.getName() != null) {
+            values.put("name", customer.getName());
+        }
+        if (customer.getEmail() != null) {
+            values.put("email", customer.getEmail());
+        }
+        if (customer.getAge() != null) {
+            values.put("age", customer.getAge());
+        }
+        if (values.isEmpty()) {
+            return Mono.just(CustomerUpdateResult.unchanged());
+        }
+
+        // see CustomerJDBCDataAccessService.updateCustomer
+        String sql = """
+                WITH target AS (
+                    SELECT * FROM customer WHERE id = :id FOR UPDATE
+                ), updated AS (
+                    UPDATE customer
+                    SET %s, version = customer.version + 1
+                    FROM target
+                    WHERE customer.id = target.id%s
+                      AND (%s)
+                    RETURNING customer.*
+                )
+                SELECT updated.*,
+                       target.version AS current_version,
+                       target.name AS previous_name,
+                       target.email AS previous_email,
+                       target.age AS previous_age
+                FROM (VALUES (1)) AS one
+                LEFT JOIN updated ON true
+                LEFT JOIN target ON true
+                """.formatted(
+                values.keySet().stream()
+                        .map(column -> column + " = :" + column)
+                        .collect(Collectors.joining(", ")),
+                customer.getVersion() != null ? " AND customer.version = :version" : "",
+                values.keySet().stream()
+                        .map(column -> "customer." + column + " IS DISTINCT FROM :" + column)
+                        .collect(Collectors.joining(" OR ")));
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql).bind("id", customer.getId());
+        for (Map.Entry<String, Object> value : values.entrySet()) {
+            spec = spec.bind(value.getKey(), value.getValue());
+        }
+        if (customer.getVersion() != null) {
+            spec = spec.bind("version", customer.getVersion());
+        }
+
+        return spec.map(row -> {
+            if (row.get("id") != null) {
+                return CustomerUpdateResult.updated(
+                        mapCustomer(row),
+                        new Customer(
+                                customer.getId(),
+                                row.get("previous_name", String.class),
+                                row.get("previous_email", String.class),
+                                row.get("previous_age", Integer.class),
+                                row.get("current_version", Long.class)));
+            }
+            Long currentVersion = row.get("current_version", Long.class);
+            if (currentVersion == null) {
+                return CustomerUpdateResult.notFound();
+            }
+            return customer.getVersion() != null && !customer.getVersion().equals(currentVersion)
+                    ? CustomerUpdateResult.versionMismatch()
+                    : CustomerUpdateResult.unchanged();
+        }).one();
+    }
+
+    private static Customer mapCustomer(Readable row) {
+        return new Customer(
+                row.get("id", Long.class),
+                row.get("name", String.class),
+                row.get("email", String.class),
+                row.get("age", Integer.class),
+                row.get("version", Long.class)
+        );
+    }
+}
@@ -0,0 +1,13 @@
+package com.bkravets.springbootexample.customer;
+
+public record CustomerRegistrationOutcome(
+        int index,
+        String email,
+        Status status
+) {
+    public enum Status {
+        CREATED,
+        DUPLICATE,
+        INVALID
+    }
+}
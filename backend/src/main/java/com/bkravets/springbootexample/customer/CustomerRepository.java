@@ -1,7 +1,59 @@
 package com.bkravets.springbootexample.customer;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface CustomerRepository extends JpaRepository<Customer, Long> {
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public interface CustomerRepository extends JpaRepository<Customer, Long>, CustomerSearchRepository,
+        CustomerBulkInsertRepository {
     boolean existsCustomerByEmail(String email);
+
+    @Transactional
+    @Query(value = """
+            INSERT INTO customer (name, email, age)
+            VALUES (:name, :email, :age)
+            ON CONFLICT (email) DO NOTHING
+            RETURNING id
+            """, nativeQuery = true)
+    Optional<Long> insertIfEmailAbsent(String name, String email, Integer age);
+
+    @Transactional
+    @Query(value = """
+            DELETE FROM customer WHERE id = :id
+            RETURNING *
+            """, nativeQuery = true)
+    Optional<Customer> deleteByIdReturning(Long id);
+
+    @Query("SELECT c.email FROM Customer c WHERE c.email IN :emails")
+    Set<String> findExistingEmails(Collection<String> emails);
+
+    List<Customer> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @Query("SELECT c.version FROM Customer c WHERE c.id = :id")
+    Optional<Long> findVersionById(Long id);
+
+    @Query(value = """
+            SELECT md5(coalesce(string_agg(id || ':' || version, ',' ORDER BY id), ''))
+            FROM customer
+            """, nativeQuery = true)
+    String computeFingerprint();
+
+    // constructor expression keeps the rows out of the persistence context
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.bkravets.springbootexample.customer.Customer(c.id, c.name, c.email, c.age, c.version) FROM Customer c")
+    Stream<Customer> streamAllBy();
+
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT c.email FROM Customer c")
+    Stream<String> streamAllEmails();
 }
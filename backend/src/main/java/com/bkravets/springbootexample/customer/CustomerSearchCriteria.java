@@ -0,0 +1,62 @@
+package com.bkravets.springbootexample.customer;
+
+import java.util.Locale;
+
+/**
+ * Filters of a customer search; {@code null} fields do not filter. Name and
+ * email domain are compared case-insensitively, the email itself exactly.
+ */
+public record CustomerSearchCriteria(
+        Integer minAge,
+        Integer maxAge,
+        String email,
+        String emailDomain,
+        String namePrefix,
+        String nameContains
+) {
+
+    public static CustomerSearchCriteria none() {
+        return new CustomerSearchCriteria(null, null, null, null, null, null);
+    }
+
+    /**
+     * The same test the SQL of the database backed DAOs applies, for the in-memory ones.
+     */
+    boolean matches(Customer customer) {
+        if (minAge != null && customer.getAge() < minAge) {
+            return false;
+        }
+        if (maxAge != null && customer.getAge() > maxAge) {
+            return false;
+        }
+        if (email != null && !email.equals(customer.getEmail())) {
+            return false;
+        }
+        if (emailDomain != null && !lower(emailDomain).equals(lower(domainOf(customer.getEmail())))) {
+            return false;
+        }
+        String name = lower(customer.getName());
+        return (namePrefix == null || name.startsWith(lower(namePrefix)))
+                && (nameContains == null || name.contains(lower(nameContains)));
+    }
+
+    static String lower(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    // what split_part(email, '@', 2) yields
+    static String domainOf(String email) {
+        int at = email.indexOf('@');
+        if (at < 0) {
+            return "";
+        }
+        int end = email.indexOf('@', at + 1);
+        return email.substring(at + 1, end < 0 ? email.length() : end);
+    }
+
+    static String escapeLike(String value) {
+        return value.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+}
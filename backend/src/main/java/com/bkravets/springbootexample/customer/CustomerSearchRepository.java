@@ -0,0 +1,14 @@
+package com.bkravets.springbootexample.customer;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * {@link CustomerRepository} fragment for keyset pages of a {@link Specification}.
+ * {@code JpaSpecificationExecutor} can only limit through a {@code Page}, which
+ * costs a {@code COUNT} over every match.
+ */
+public interface CustomerSearchRepository {
+    List<Customer> findMatching(Specification<Customer> specification, int limit);
+}
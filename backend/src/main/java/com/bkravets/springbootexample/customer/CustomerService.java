@@ -1,19 +1,32 @@
 package com.bkravets.springbootexample.customer;
 
 import com.bkravets.springbootexample.exception.DuplicateResourceException;
+import com.bkravets.springbootexample.exception.PreconditionFailedException;
 import com.bkravets.springbootexample.exception.RequestValidationException;
 import com.bkravets.springbootexample.exception.ResourceNotFoundException;
-import org.springframework.beans.factory.annotation.Qualifier;
+import com.bkravets.springbootexample.token.OpaqueToken;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class CustomerService {
 
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 1000;
+
     private final CustomerDao customerDao;
 
-    public CustomerService(@Qualifier("jdbc") CustomerDao customerDao) {
+    public CustomerService(CustomerDao customerDao) {
         this.customerDao = customerDao;
     }
 
@@ -21,6 +34,66 @@ public class CustomerService {
         return customerDao.selectAllCustomers();
     }
 
+    public CustomerPage getCustomersPage(String cursor, Integer limit) {
+        return page(cursor, limit, customerDao::selectCustomersAfter);
+    }
+
+    public CustomerPage searchCustomers(CustomerSearchCriteria criteria, String cursor, Integer limit) {
+        if (criteria.minAge() != null && criteria.maxAge() != null && criteria.minAge() > criteria.maxAge()) {
+            throw new RequestValidationException("minAge must not be greater than maxAge");
+        }
+        if (isBlank(criteria.email()) || isBlank(criteria.emailDomain())
+                || isBlank(criteria.namePrefix()) || isBlank(criteria.nameContains())) {
+            throw new RequestValidationException("search terms must not be blank");
+        }
+        return page(cursor, limit, (afterId, pageSize) ->
+                customerDao.selectCustomersMatching(criteria, afterId, pageSize));
+    }
+
+    private CustomerPage page(String cursor, Integer limit, BiFunction<Long, Integer, List<Customer>> query) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new RequestValidationException(
+                    "limit must be between 1 and %s".formatted(MAX_PAGE_SIZE)
+            );
+        }
+        long afterId = cursor == null ? 0 : OpaqueToken.decode(cursor, "cursor");
+
+        // one extra row tells us whether there is a next page without a COUNT
+        List<Customer> customers = query.apply(afterId, pageSize + 1);
+        if (customers.size() <= pageSize) {
+            return new CustomerPage(customers, null);
+        }
+
+        List<Customer> page = customers.subList(0, pageSize);
+        return new CustomerPage(
+                List.copyOf(page),
+                OpaqueToken.encode(page.get(pageSize - 1).getId())
+        );
+    }
+
+    private static boolean isBlank(String term) {
+        return term != null && term.isBlank();
+    }
+
+    @Transactional(readOnly = true)
+    public void exportCustomers(Consumer<Customer> consumer) {
+        try (Stream<Customer> customers = customerDao.streamAllCustomers()) {
+            customers.forEach(consumer);
+        }
+    }
+
+    public String getCustomersFingerprint() {
+        return customerDao.selectCustomersFingerprint();
+    }
+
+    public Long getCustomerVersion(Long id) {
+        return customerDao.selectCustomerVersion(id)
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        "customer with id [%s] not found".formatted(id)
+                ));
+    }
+
     public Customer getCustomer(Long id) {
         return customerDao.selectCustomerById(id)
                 .orElseThrow(() -> new ResourceNotFoundException(
@@ -28,55 +101,83 @@ public class CustomerService {
                 ));
     }
 
-    public void addCustomer(CustomerRegistrationRequest customerRegistrationRequest) {
-        if (customerDao.existsCustomerWithEmail(customerRegistrationRequest.email())) {
-            throw new DuplicateResourceException("Email is already taken");
+    /**
+     * The customers with the given ids in the order asked for, leaving out the
+     * ids that do not exist and repeats.
+     */
+    public List<Customer> getCustomers(List<Long> ids) {
+        if (ids.isEmpty() || ids.stream().anyMatch(Objects::isNull)) {
+            throw new RequestValidationException("ids must not be empty");
         }
+        List<Long> distinct = ids.stream().distinct().toList();
+        if (distinct.size() > MAX_PAGE_SIZE) {
+            throw new RequestValidationException(
+                    "at most %s ids can be requested at once".formatted(MAX_PAGE_SIZE)
+            );
+        }
+
+        Map<Long, Customer> found = customerDao.selectCustomersByIds(distinct)
+                .stream()
+                .collect(Collectors.toMap(Customer::getId, Function.identity()));
+        return distinct.stream()
+                .map(found::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
 
+    public Long addCustomer(CustomerRegistrationRequest customerRegistrationRequest) {
         Customer customer = new Customer(
                 customerRegistrationRequest.name(),
                 customerRegistrationRequest.email(),
                 customerRegistrationRequest.age()
         );
-        customerDao.insertCustomer(customer);
+
+        // the unique constraint decides, so concurrent signups cannot race past a check
+        return customerDao.insertCustomerIfEmailAbsent(customer)
+                .orElseThrow(() -> new DuplicateResourceException("Email is already taken"));
     }
 
     public void deleteCustomerById(Long id) {
-        if (!customerDao.existsCustomerWithId(id)) {
-            throw new ResourceNotFoundException(
-                    "customer with id [%s] not found".formatted(id)
-            );
-        }
-        customerDao.deleteCustomer(id);
-
+        customerDao.deleteCustomer(id)
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        "customer with id [%s] not found".formatted(id)
+                ));
     }
 
-    public void updateCustomer(Long id, CustomerUpdateRequest updateRequest) {
-        Customer customer = getCustomer(id);
+    public Customer updateCustomer(Long id, CustomerUpdateRequest updateRequest) {
+        return updateCustomer(id, updateRequest, null);
+    }
 
-        boolean changes = false;
-        if(updateRequest.name() != null && !updateRequest.name().equals(customer.getName())) {
-            customer.setName(updateRequest.name());
-            changes = true;
+    public Customer updateCustomer(Long id, CustomerUpdateRequest updateRequest, Long expectedVersion) {
+        if (updateRequest.name() == null && updateRequest.email() == null && updateRequest.age() == null) {
+            throw new RequestValidationException("No data changed");
         }
 
-        if(updateRequest.age() != null && !updateRequest.age().equals(customer.getAge())) {
-            customer.setAge(updateRequest.age());
-            changes = true;
-        }
+        Customer update = new Customer(
+                id,
+                updateRequest.name(),
+                updateRequest.email(),
+                updateRequest.age(),
+                expectedVersion
+        );
 
-        if(updateRequest.email() != null && !updateRequest.email().equals(customer.getEmail())) {
-            if(customerDao.existsCustomerWithEmail(updateRequest.email())) {
-                throw new DuplicateResourceException("Email is already taken");
-            }
-            customer.setEmail(updateRequest.email());
-            changes = true;
+        CustomerUpdateResult result;
+        try {
+            result = customerDao.updateCustomer(update);
+        } catch (DataIntegrityViolationException e) {
+            // the only constraint a partial update can break is the unique email
+            throw new DuplicateResourceException("Email is already taken");
         }
 
-
-        if (!changes) {
-            throw new RequestValidationException("No data changed");
+        switch (result.status()) {
+            case NOT_FOUND -> throw new ResourceNotFoundException(
+                    "customer with id [%s] not found".formatted(id)
+            );
+            case UNCHANGED -> throw new RequestValidationException("No data changed");
+            case VERSION_MISMATCH -> throw new PreconditionFailedException(
+                    "customer with id [%s] has been modified".formatted(id)
+            );
         }
-            customerDao.updateCustomer(customer);
+        return result.customer();
     }
 }
@@ -0,0 +1,56 @@
+package com.bkravets.springbootexample.customer;
+
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Criteria API counterparts of the predicates {@link CustomerJDBCDataAccessService}
+ * writes by hand, rendering to the same SQL so the same indexes apply.
+ */
+final class CustomerSpecifications {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    private CustomerSpecifications() {
+    }
+
+    static Specification<Customer> matching(CustomerSearchCriteria criteria) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (criteria.minAge() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("age"), criteria.minAge()));
+            }
+            if (criteria.maxAge() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("age"), criteria.maxAge()));
+            }
+            if (criteria.email() != null) {
+                predicates.add(cb.equal(root.get("email"), criteria.email()));
+            }
+            if (criteria.emailDomain() != null) {
+                Expression<String> domain = cb.function("split_part", String.class,
+                        root.get("email"), cb.literal("@"), cb.literal(2));
+                predicates.add(cb.equal(cb.lower(domain), CustomerSearchCriteria.lower(criteria.emailDomain())));
+            }
+            Expression<String> name = cb.lower(root.get("name"));
+            if (criteria.namePrefix() != null) {
+                predicates.add(cb.like(name,
+                        CustomerSearchCriteria.escapeLike(CustomerSearchCriteria.lower(criteria.namePrefix())) + "%",
+                        LIKE_ESCAPE));
+            }
+            if (criteria.nameContains() != null) {
+                predicates.add(cb.like(name,
+                        "%" + CustomerSearchCriteria.escapeLike(CustomerSearchCriteria.lower(criteria.nameContains())) + "%",
+                        LIKE_ESCAPE));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    static Specification<Customer> idGreaterThan(Long id) {
+        return (root, query, cb) -> cb.greaterThan(root.get("id"), id);
+    }
+}
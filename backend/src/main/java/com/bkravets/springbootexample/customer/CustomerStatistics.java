@@ -0,0 +1,31 @@
+package com.bkravets.springbootexample.customer;
+
+import java.time.Instant;
+
+/**
+ * Customer count, age distribution and an estimate of the distinct email
+ * domains. Domains cannot be taken back out of the estimate, so it counts
+ * every domain seen since {@code since}, including ones no customer uses anymore.
+ */
+public record CustomerStatistics(
+        long customers,
+        Ages age,
+        long distinctEmailDomains,
+        Instant since
+) {
+
+    /**
+     * Exact summary of the customers' ages; all {@code null} without customers.
+     */
+    public record Ages(
+            Integer min,
+            Integer max,
+            Double mean,
+            Integer p25,
+            Integer p50,
+            Integer p75,
+            Integer p90,
+            Integer p99
+    ) {
+    }
+}
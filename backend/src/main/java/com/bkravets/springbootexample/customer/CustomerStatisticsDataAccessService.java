@@ -0,0 +1,121 @@
+package com.bkravets.springbootexample.customer;
+
+import com.bkravets.springbootexample.exception.ServiceUnavailableException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Keeps a {@link CustomerStatisticsSketch} of every customer for
+ * {@link #statistics} and passes all calls on to the delegate. The sketch is
+ * built by streaming the table once the application is ready and after an
+ * import, and is kept current by every write going through this DAO.
+ * <p>
+ * Writes are counted once their transaction commits, and never if it rolls
+ * back. A write that commits just before a rebuild's snapshot is taken can be
+ * counted twice, until the next rebuild.
+ */
+@Repository("stats")
+@ConditionalOnCustomerDaoChain("stats")
+public class CustomerStatisticsDataAccessService extends ForwardingCustomerDao {
+
+    private final RebuildableView<CustomerStatisticsSketch> sketch;
+
+    @Autowired
+    public CustomerStatisticsDataAccessService(BeanFactory beanFactory,
+                                               PlatformTransactionManager transactionManager,
+                                               @Value("${customer.stats.delegate}") String delegate) {
+        this(beanFactory.getBean(delegate, CustomerDao.class),
+                RebuildableView.readOnlyNewTransaction(transactionManager));
+    }
+
+    CustomerStatisticsDataAccessService(CustomerDao delegate,
+                                        TransactionOperations transactionOperations) {
+        super(delegate);
+        this.sketch = new RebuildableView<>(transactionOperations);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCustomersImported(CustomersImportedEvent event) {
+        rebuild();
+    }
+
+    void rebuild() {
+        sketch.rebuild(() -> new CustomerStatisticsSketch(Instant.now()), next -> {
+            try (Stream<Customer> customers = delegate.streamAllCustomers()) {
+                customers.forEach(next::add);
+            }
+        });
+    }
+
+    public CustomerStatistics statistics() {
+        CustomerStatisticsSketch current = sketch.current();
+        if (current == null) {
+            throw new ServiceUnavailableException("Customer statistics are still loading");
+        }
+        return current.snapshot();
+    }
+
+    @Override
+    public void insertCustomer(Customer customer) {
+        delegate.insertCustomer(customer);
+        apply(target -> target.add(customer));
+    }
+
+    @Override
+    public Optional<Long> insertCustomerIfEmailAbsent(Customer customer) {
+        Optional<Long> id = delegate.insertCustomerIfEmailAbsent(customer);
+        id.ifPresent(inserted -> apply(target -> target.add(customer)));
+        return id;
+    }
+
+    @Override
+    public long[] insertCustomers(List<Customer> customers) {
+        long[] ids = delegate.insertCustomers(customers);
+        for (int i = 0; i < ids.length; i++) {
+            // zero when the email was already taken
+            if (ids[i] > 0) {
+                Customer customer = customers.get(i);
+                apply(target -> target.add(customer));
+            }
+        }
+        return ids;
+    }
+
+    @Override
+    public CustomerUpdateResult updateCustomer(Customer customer) {
+        CustomerUpdateResult result = delegate.updateCustomer(customer);
+        if (result.status() == CustomerUpdateResult.Status.UPDATED) {
+            apply(target -> target.replace(result.previous(), result.customer()));
+        }
+        return result;
+    }
+
+    @Override
+    public Optional<Customer> deleteCustomer(Long id) {
+        Optional<Customer> removed = delegate.deleteCustomer(id);
+        removed.ifPresent(customer -> apply(target -> target.remove(customer)));
+        return removed;
+    }
+
+    private void apply(Consumer<CustomerStatisticsSketch> write) {
+        sketch.applyAfterCommit(write);
+    }
+}
@@ -0,0 +1,29 @@
+package com.bkravets.springbootexample.customer;
+
+import com.bkravets.springbootexample.exception.ResourceNotFoundException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+@Service
+public class CustomerStatisticsService {
+
+    // null unless stats is on the customer.dao chain
+    private final CustomerStatisticsDataAccessService statistics;
+
+    @Autowired
+    public CustomerStatisticsService(ObjectProvider<CustomerStatisticsDataAccessService> statistics) {
+        this(statistics.getIfAvailable());
+    }
+
+    CustomerStatisticsService(CustomerStatisticsDataAccessService statistics) {
+        this.statistics = statistics;
+    }
+
+    public CustomerStatistics getStatistics() {
+        if (statistics == null) {
+            throw new ResourceNotFoundException("customer statistics are not enabled");
+        }
+        return statistics.statistics();
+    }
+}
@@ -0,0 +1,63 @@
+package com.bkravets.springbootexample.customer;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The running state behind {@link CustomerStatistics}. Every method is thread-safe
+ * and independent of the number of customers.
+ */
+final class CustomerStatisticsSketch {
+
+    // 16384 registers, a standard error of about 0.8%
+    private static final int DOMAIN_PRECISION = 14;
+
+    private final AtomicLong customers = new AtomicLong();
+    private final AgeHistogram ages = new AgeHistogram();
+    private final HyperLogLog domains = new HyperLogLog(DOMAIN_PRECISION);
+    private final Instant since;
+
+    CustomerStatisticsSketch(Instant since) {
+        this.since = since;
+    }
+
+    void add(Customer customer) {
+        customers.incrementAndGet();
+        ages.add(customer.getAge());
+        domains.add(domainOf(customer));
+    }
+
+    void remove(Customer customer) {
+        customers.decrementAndGet();
+        ages.remove(customer.getAge());
+    }
+
+    void replace(Customer previous, Customer current) {
+        if (!previous.getAge().equals(current.getAge())) {
+            ages.remove(previous.getAge());
+            ages.add(current.getAge());
+        }
+        domains.add(domainOf(current));
+    }
+
+    CustomerStatistics snapshot() {
+        AgeHistogram.Snapshot age = ages.snapshot();
+        return new CustomerStatistics(
+                customers.get(),
+                new CustomerStatistics.Ages(
+                        age.min(),
+                        age.max(),
+                        age.mean(),
+                        age.quantile(0.25),
+                        age.quantile(0.5),
+                        age.quantile(0.75),
+                        age.quantile(0.9),
+                        age.quantile(0.99)),
+                domains.estimate(),
+                since);
+    }
+
+    private static String domainOf(Customer customer) {
+        return CustomerSearchCriteria.lower(CustomerSearchCriteria.domainOf(customer.getEmail()));
+    }
+}
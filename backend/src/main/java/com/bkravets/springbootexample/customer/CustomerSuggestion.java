@@ -0,0 +1,13 @@
+package com.bkravets.springbootexample.customer;
+
+/**
+ * A typeahead match; {@code score} is the share of the query's trigrams the
+ * customer's name and email local part contain.
+ */
+public record CustomerSuggestion(
+        Long id,
+        String name,
+        String email,
+        double score
+) {
+}
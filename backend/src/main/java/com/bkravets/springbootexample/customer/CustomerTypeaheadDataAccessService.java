@@ -0,0 +1,167 @@
+package com.bkravets.springbootexample.customer;
+
+import com.bkravets.springbootexample.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Keeps a {@link TrigramIndex} of every customer for {@link #suggest} and
+ * passes all calls on to the delegate. The index is built by streaming the
+ * table once the application is ready, and is kept current by every write
+ * going through this DAO, once it commits.
+ * <p>
+ * Every insert indexes the ids it was given back, and imports index the ids
+ * they report, so rows are picked up no matter in which order their
+ * transactions commit.
+ */
+@Repository("typeahead")
+@ConditionalOnCustomerDaoChain("typeahead")
+public class CustomerTypeaheadDataAccessService extends ForwardingCustomerDao implements MeterBinder {
+
+    private static final int IMPORT_PAGE_SIZE = 1000;
+
+    private final double minSimilarity;
+    private final RebuildableView<TrigramIndex> index;
+
+    @Autowired
+    public CustomerTypeaheadDataAccessService(BeanFactory beanFactory,
+                                              PlatformTransactionManager transactionManager,
+                                              @Value("${customer.typeahead.delegate}") String delegate,
+                                              @Value("${customer.typeahead.min-similarity}") double minSimilarity) {
+        this(beanFactory.getBean(delegate, CustomerDao.class),
+                RebuildableView.readOnlyNewTransaction(transactionManager),
+                minSimilarity);
+    }
+
+    CustomerTypeaheadDataAccessService(CustomerDao delegate,
+                                       TransactionOperations transactionOperations,
+                                       double minSimilarity) {
+        super(delegate);
+        this.minSimilarity = minSimilarity;
+        this.index = new RebuildableView<>(transactionOperations);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("customer.typeahead.memory", index,
+                        view -> view.current() == null ? 0 : view.current().memoryBytes())
+                .baseUnit(BaseUnits.BYTES)
+                .description("Heap arrays and off-heap slabs held by the typeahead index")
+                .register(registry);
+        Gauge.builder("customer.typeahead.size", index,
+                        view -> view.current() == null ? 0 : view.current().size())
+                .description("Customers in the typeahead index")
+                .register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCustomersImported(CustomersImportedEvent event) {
+        // imports only add rows, so there is no need to stream the whole table again
+        List<Long> ids = event.ids();
+        for (int from = 0; from < ids.size(); from += IMPORT_PAGE_SIZE) {
+            List<Long> page = ids.subList(from, Math.min(from + IMPORT_PAGE_SIZE, ids.size()));
+            delegate.selectCustomersByIds(page).forEach(customer -> apply(target -> target.put(customer)));
+        }
+    }
+
+    void rebuild() {
+        index.rebuild(() -> new TrigramIndex(minSimilarity), next -> {
+            try (Stream<Customer> customers = delegate.streamAllCustomers()) {
+                customers.forEach(next::put);
+            }
+            // rows committed after the stream's snapshot were applied to next by their writers
+            next.trim();
+        });
+    }
+
+    /**
+     * Best matches for what a user typed so far, best first.
+     */
+    public List<CustomerSuggestion> suggest(String query, int limit) {
+        TrigramIndex current = index.current();
+        if (current == null) {
+            throw new ServiceUnavailableException("Customer typeahead is still loading");
+        }
+        return current.lookup(query, limit);
+    }
+
+    @Override
+    public void insertCustomer(Customer customer) {
+        // the id is needed to index the row
+        if (insertCustomerIfEmailAbsent(customer).isEmpty()) {
+            throw new DuplicateKeyException("Email is already taken");
+        }
+    }
+
+    @Override
+    public Optional<Long> insertCustomerIfEmailAbsent(Customer customer) {
+        Optional<Long> id = delegate.insertCustomerIfEmailAbsent(customer);
+        id.ifPresent(inserted -> applyAfterCommit(target -> target.put(new Customer(
+                inserted, customer.getName(), customer.getEmail(), customer.getAge(), 0L))));
+        return id;
+    }
+
+    @Override
+    public long[] insertCustomers(List<Customer> customers) {
+        long[] ids = delegate.insertCustomers(customers);
+        for (int i = 0; i < ids.length; i++) {
+            // zero when the email was already taken
+            if (ids[i] > 0) {
+                Customer customer = customers.get(i);
+                Customer inserted = new Customer(ids[i], customer.getName(), customer.getEmail(), customer.getAge(), 0L);
+                applyAfterCommit(target -> target.put(inserted));
+            }
+        }
+        return ids;
+    }
+
+    @Override
+    public CustomerUpdateResult updateCustomer(Customer customer) {
+        CustomerUpdateResult result = delegate.updateCustomer(customer);
+        if (result.status() == CustomerUpdateResult.Status.UPDATED) {
+            applyAfterCommit(target -> target.put(result.customer()));
+        }
+        return result;
+    }
+
+    @Override
+    public Optional<Customer> deleteCustomer(Long id) {
+        Optional<Customer> removed = delegate.deleteCustomer(id);
+        removed.ifPresent(customer -> applyAfterCommit(target -> target.remove(customer)));
+        return removed;
+    }
+
+    private void applyAfterCommit(Consumer<TrigramIndex> write) {
+        RebuildableView.afterCommit(() -> apply(write));
+    }
+
+    private void apply(Consumer<TrigramIndex> write) {
+        index.apply(write);
+        TrigramIndex current = index.current();
+        if (current != null && current.isWasteful()) {
+            current.compact();
+        }
+    }
+}
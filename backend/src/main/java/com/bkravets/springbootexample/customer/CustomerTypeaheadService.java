@@ -0,0 +1,44 @@
+package com.bkravets.springbootexample.customer;
+
+import com.bkravets.springbootexample.exception.RequestValidationException;
+import com.bkravets.springbootexample.exception.ResourceNotFoundException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+public class CustomerTypeaheadService {
+
+    static final int DEFAULT_LIMIT = 10;
+    static final int MAX_LIMIT = 50;
+
+    // null unless typeahead is on the customer.dao chain
+    private final CustomerTypeaheadDataAccessService typeahead;
+
+    @Autowired
+    public CustomerTypeaheadService(ObjectProvider<CustomerTypeaheadDataAccessService> typeahead) {
+        this(typeahead.getIfAvailable());
+    }
+
+    CustomerTypeaheadService(CustomerTypeaheadDataAccessService typeahead) {
+        this.typeahead = typeahead;
+    }
+
+    public List<CustomerSuggestion> suggest(String query, Integer limit) {
+        if (query == null || query.isBlank()) {
+            throw new RequestValidationException("q must not be blank");
+        }
+        int size = limit == null ? DEFAULT_LIMIT : limit;
+        if (size < 1 || size > MAX_LIMIT) {
+            throw new RequestValidationException(
+                    "limit must be between 1 and %s".formatted(MAX_LIMIT)
+            );
+        }
+        if (typeahead == null) {
+            throw new ResourceNotFoundException("customer typeahead is not enabled");
+        }
+        return typeahead.suggest(query, size);
+    }
+}
@@ -0,0 +1,34 @@
+package com.bkravets.springbootexample.customer;
+
+/**
+ * Outcome of an update. When it is {@code UPDATED}, {@code customer} holds the
+ * row as written and {@code previous} the row it replaced.
+ */
+public record CustomerUpdateResult(
+        Status status,
+        Customer customer,
+        Customer previous
+) {
+    public enum Status {
+        UPDATED,
+        UNCHANGED,
+        NOT_FOUND,
+        VERSION_MISMATCH
+    }
+
+    public static CustomerUpdateResult updated(Customer customer, Customer previous) {
+        return new CustomerUpdateResult(Status.UPDATED, customer, previous);
+    }
+
+    public static CustomerUpdateResult unchanged() {
+        return new CustomerUpdateResult(Status.UNCHANGED, null, null);
+    }
+
+    public static CustomerUpdateResult notFound() {
+        return new CustomerUpdateResult(Status.NOT_FOUND, null, null);
+    }
+
+    public static CustomerUpdateResult versionMismatch() {
+        return new CustomerUpdateResult(Status.VERSION_MISMATCH, null, null);
+    }
+}
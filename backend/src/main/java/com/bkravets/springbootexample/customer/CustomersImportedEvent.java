@@ -0,0 +1,10 @@
+package com.bkravets.springbootexample.customer;
+
+import java.util.List;
+
+/**
+ * Published by {@link CustomerCsvImportService} with the ids of the rows an
+ * import inserted, which bypassed {@link CustomerDao}.
+ */
+public record CustomersImportedEvent(List<Long> ids) {
+}
@@ -0,0 +1,105 @@
+package com.bkravets.springbootexample.customer;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * A {@link CustomerDao} passing every call on to another one, for decorators
+ * to override only the calls they intercept.
+ */
+abstract class ForwardingCustomerDao implements CustomerDao {
+
+    protected final CustomerDao delegate;
+
+    protected ForwardingCustomerDao(CustomerDao delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public List<Customer> selectAllCustomers() {
+        return delegate.selectAllCustomers();
+    }
+
+    @Override
+    public List<Customer> selectCustomersAfter(Long afterId, int limit) {
+        return delegate.selectCustomersAfter(afterId, limit);
+    }
+
+    @Override
+    public List<Customer> selectCustomersMatching(CustomerSearchCriteria criteria, Long afterId, int limit) {
+        return delegate.selectCustomersMatching(criteria, afterId, limit);
+    }
+
+    @Override
+    public Stream<Customer> streamAllCustomers() {
+        return delegate.streamAllCustomers();
+    }
+
+    @Override
+    public Stream<String> streamAllEmails() {
+        return delegate.streamAllEmails();
+    }
+
+    @Override
+    public Optional<Customer> selectCustomerById(Long id) {
+        return delegate.selectCustomerById(id);
+    }
+
+    @Override
+    public List<Customer> selectCustomersByIds(Collection<Long> ids) {
+        return delegate.selectCustomersByIds(ids);
+    }
+
+    @Override
+    public Optional<Long> selectCustomerVersion(Long id) {
+        return delegate.selectCustomerVersion(id);
+    }
+
+    @Override
+    public String selectCustomersFingerprint() {
+        return delegate.selectCustomersFingerprint();
+    }
+
+    @Override
+    public void insertCustomer(Customer customer) {
+        delegate.insertCustomer(customer);
+    }
+
+    @Override
+    public Optional<Long> insertCustomerIfEmailAbsent(Customer customer) {
+        return delegate.insertCustomerIfEmailAbsent(customer);
+    }
+
+    @Override
+    public long[] insertCustomers(List<Customer> customers) {
+        return delegate.insertCustomers(customers);
+    }
+
+    @Override
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        return delegate.selectExistingEmails(emails);
+    }
+
+    @Override
+    public boolean existsCustomerWithId(Long id) {
+        return delegate.existsCustomerWithId(id);
+    }
+
+    @Override
+    public boolean existsCustomerWithEmail(String email) {
+        return delegate.existsCustomerWithEmail(email);
+    }
+
+    @Override
+    public Optional<Customer> deleteCustomer(Long id) {
+        return delegate.deleteCustomer(id);
+    }
+
+    @Override
+    public CustomerUpdateResult updateCustomer(Customer customer) {
+        return delegate.updateCustomer(customer);
+    }
+}
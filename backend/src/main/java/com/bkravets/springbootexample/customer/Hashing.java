@@ -0,0 +1,29 @@
+package com.bkravets.springbootexample.customer;
+
+/**
+ * 64-bit string hashing shared by the probabilistic structures.
+ */
+final class Hashing {
+
+    private Hashing() {
+    }
+
+    static long fnv1a(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    // murmur3 finalizer, spreads FNV's weak low bits over the whole word
+    static long fmix64(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
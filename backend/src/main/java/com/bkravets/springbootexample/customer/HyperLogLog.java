@@ -0,0 +1,58 @@
+package com.bkravets.springbootexample.customer;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Thread-safe HyperLogLog counting distinct strings in fixed memory, with the
+ * linear counting correction for small cardinalities. Like every sketch of its
+ * kind it cannot forget a value, so it counts what was ever added.
+ */
+final class HyperLogLog {
+
+    private final int precision;
+    private final AtomicIntegerArray registers;
+    private final double alpha;
+
+    HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("precision must be between 4 and 18");
+        }
+        this.precision = precision;
+        this.registers = new AtomicIntegerArray(1 << precision);
+        int m = registers.length();
+        this.alpha = 0.7213 / (1 + 1.079 / m);
+    }
+
+    void add(String value) {
+        long hash = Hashing.fmix64(Hashing.fnv1a(value));
+        int index = (int) (hash >>> (64 - precision));
+        // position of the first one bit in what is left, capped for an all-zero rest
+        int rank = Math.min(Long.numberOfLeadingZeros(hash << precision), 64 - precision) + 1;
+        int current = registers.get(index);
+        while (rank > current && !registers.compareAndSet(index, current, rank)) {
+            current = registers.get(index);
+        }
+    }
+
+    long estimate() {
+        int m = registers.length();
+        double sum = 0;
+        int zeros = 0;
+        for (int i = 0; i < m; i++) {
+            int register = registers.get(i);
+            sum += Math.scalb(1.0, -register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double raw = alpha * m * m / sum;
+        if (raw <= 2.5 * m && zeros > 0) {
+            return Math.round(m * Math.log((double) m / zeros));
+        }
+        return Math.round(raw);
+    }
+
+    long memoryBytes() {
+        return registers.length() * 4L;
+    }
+}
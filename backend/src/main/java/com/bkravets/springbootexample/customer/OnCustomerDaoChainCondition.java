@@ -0,0 +1,32 @@
+package com.bkravets.springbootexample.customer;
+
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+class OnCustomerDaoChainCondition implements Condition {
+
+    @Override
+    public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        Map<String, Object> attributes = metadata.getAnnotationAttributes(ConditionalOnCustomerDaoChain.class.getName());
+        return attributes != null && isOnChain(context.getEnvironment(), (String) attributes.get("value"));
+    }
+
+    static boolean isOnChain(Environment environment, String qualifier) {
+        Set<String> seen = new HashSet<>();
+        String current = environment.getProperty("customer.dao");
+        // a delegate pointing back up the chain would loop forever
+        while (current != null && seen.add(current)) {
+            if (current.equals(qualifier)) {
+                return true;
+            }
+            current = environment.getProperty("customer." + current + ".delegate");
+        }
+        return false;
+    }
+}
@@ -0,0 +1,127 @@
+package com.bkravets.springbootexample.customer;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * {@link CustomerController} on WebFlux, served by the {@code reactive} profile.
+ * Lists are written to the client as rows arrive from the database, and rows
+ * are only fetched as fast as the client reads them. CSV import is not
+ * offered here; batch registration still runs the blocking service, off the
+ * event loop.
+ */
+@RestController
+@RequestMapping("/api/v1/customers")
+@Profile("reactive")
+public class ReactiveCustomerController {
+
+    private final ReactiveCustomerService customerService;
+    private final CustomerBulkRegistrationService bulkRegistrationService;
+
+    public ReactiveCustomerController(ReactiveCustomerService customerService,
+                                      CustomerBulkRegistrationService bulkRegistrationService) {
+        this.customerService = customerService;
+        this.bulkRegistrationService = bulkRegistrationService;
+    }
+
+    @GetMapping
+    public Mono<ResponseEntity<Flux<Customer>>> getCustomers(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        // the headers go out before the rows are read, so the ETag is taken first
+        // and never describes a newer state than the body
+        return customerService.getCustomersFingerprint()
+                .map(fingerprint -> {
+                    String etag = CustomerETag.of(fingerprint);
+                    if (ifNoneMatch != null && CustomerETag.matchesIfNoneMatch(ifNoneMatch, etag)) {
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+                    }
+                    return ResponseEntity.ok()
+                            .eTag(etag)
+                            .body(customerService.getAllCustomers());
+                });
+    }
+
+    @GetMapping("page")
+    public Mono<CustomerPage> getCustomersPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+
+        return customerService.getCustomersPage(cursor, limit);
+    }
+
+    @GetMapping(value = "export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Customer> exportCustomers() {
+        return customerService.getAllCustomers();
+    }
+
+    @GetMapping("{customerId}")
+    public Mono<ResponseEntity<Customer>> getCustomer(
+            @PathVariable("customerId") Long customerId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        // a conditional request only needs the version to be answered with 304
+        if (ifNoneMatch != null) {
+            return customerService.getCustomerVersion(customerId)
+                    .map(CustomerETag::of)
+                    .flatMap(etag -> CustomerETag.matchesIfNoneMatch(ifNoneMatch, etag)
+                            ? Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).<Customer>build())
+                            : getCustomer(customerId));
+        }
+        return getCustomer(customerId);
+    }
+
+    @PostMapping
+    public Mono<Void> registerCustomer(@RequestBody CustomerRegistrationRequest customerRegistrationRequest) {
+        return customerService.addCustomer(customerRegistrationRequest).then();
+    }
+
+    @PostMapping("batch")
+    public Mono<List<CustomerRegistrationOutcome>> registerCustomers(
+            @RequestBody List<CustomerRegistrationRequest> registrationRequests) {
+
+        return Mono.fromCallable(() -> bulkRegistrationService.registerCustomers(registrationRequests))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @DeleteMapping("{customerId}")
+    public Mono<Void> deleteCustomer(@PathVariable Long customerId) {
+        return customerService.deleteCustomerById(customerId);
+    }
+
+    @PutMapping("{customerId}")
+    public Mono<ResponseEntity<Void>> updateCustomer(
+            @PathVariable long customerId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody CustomerUpdateRequest updateRequest) {
+
+        List<Long> accepted = CustomerETag.parseIfMatch(ifMatch);
+        // the update compares the version again, so a write in between still fails it
+        Mono<Optional<Long>> expectedVersion = accepted.size() > 1
+                ? customerService.getCustomerVersion(customerId)
+                        .map(current -> Optional.of(CustomerETag.requireAnyOf(accepted, current)))
+                : Mono.just(accepted.stream().findFirst());
+        return expectedVersion
+                .flatMap(version -> customerService.updateCustomer(customerId, updateRequest, version.orElse(null)))
+                .map(updated -> ResponseEntity.ok()
+                        .eTag(CustomerETag.of(updated.getVersion()))
+                        .build());
+    }
+
+    private Mono<ResponseEntity<Customer>> getCustomer(Long customerId) {
+        return customerService.getCustomer(customerId)
+                .map(customer -> ResponseEntity.ok()
+                        .eTag(CustomerETag.of(customer.getVersion()))
+                        .body(customer));
+    }
+}
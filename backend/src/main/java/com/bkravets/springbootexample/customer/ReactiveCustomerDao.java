@@ -0,0 +1,15 @@
+package com.bkravets.springbootexample.customer;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveCustomerDao {
+    Flux<Customer> selectAllCustomers();
+    Flux<Customer> selectCustomersAfter(Long afterId, int limit);
+    Mono<Customer> selectCustomerById(Long id);
+    Mono<Long> selectCustomerVersion(Long id);
+    Mono<String> selectCustomersFingerprint();
+    Mono<Long> insertCustomerIfEmailAbsent(Customer customer);
+    Mono<Customer> deleteCustomer(Long id);
+    Mono<CustomerUpdateResult> updateCustomer(Customer customer);
+}
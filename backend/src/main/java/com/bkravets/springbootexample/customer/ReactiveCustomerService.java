@@ -0,0 +1,127 @@
+package com.bkravets.springbootexample.customer;
+
+import com.bkravets.springbootexample.exception.DuplicateResourceException;
+import com.bkravets.springbootexample.exception.PreconditionFailedException;
+import com.bkravets.springbootexample.exception.RequestValidationException;
+import com.bkravets.springbootexample.exception.ResourceNotFoundException;
+import com.bkravets.springbootexample.token.OpaqueToken;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * {@link CustomerService} for the reactive stack: same rules and errors,
+ * signalled through the returned publishers instead of thrown.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveCustomerService {
+
+    private final ReactiveCustomerDao customerDao;
+
+    public ReactiveCustomerService(ReactiveCustomerDao customerDao) {
+        this.customerDao = customerDao;
+    }
+
+    public Flux<Customer> getAllCustomers() {
+        return customerDao.selectAllCustomers();
+    }
+
+    public Mono<CustomerPage> getCustomersPage(String cursor, Integer limit) {
+        int pageSize = limit == null ? CustomerService.DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > CustomerService.MAX_PAGE_SIZE) {
+            return Mono.error(new RequestValidationException(
+                    "limit must be between 1 and %s".formatted(CustomerService.MAX_PAGE_SIZE)
+            ));
+        }
+        long afterId;
+        try {
+            afterId = cursor == null ? 0 : OpaqueToken.decode(cursor, "cursor");
+        } catch (RequestValidationException e) {
+            return Mono.error(e);
+        }
+
+        // one extra row tells us whether there is a next page without a COUNT
+        return customerDao.selectCustomersAfter(afterId, pageSize + 1)
+                .collectList()
+                .map(customers -> {
+                    if (customers.size() <= pageSize) {
+                        return new CustomerPage(customers, null);
+                    }
+                    List<Customer> page = customers.subList(0, pageSize);
+                    return new CustomerPage(
+                            List.copyOf(page),
+                            OpaqueToken.encode(page.get(pageSize - 1).getId())
+                    );
+                });
+    }
+
+    public Mono<String> getCustomersFingerprint() {
+        return customerDao.selectCustomersFingerprint();
+    }
+
+    public Mono<Long> getCustomerVersion(Long id) {
+        return customerDao.selectCustomerVersion(id)
+                .switchIfEmpty(notFound(id));
+    }
+
+    public Mono<Customer> getCustomer(Long id) {
+        return customerDao.selectCustomerById(id)
+                .switchIfEmpty(notFound(id));
+    }
+
+    public Mono<Long> addCustomer(CustomerRegistrationRequest customerRegistrationRequest) {
+        Customer customer = new Customer(
+                customerRegistrationRequest.name(),
+                customerRegistrationRequest.email(),
+                customerRegistrationRequest.age()
+        );
+
+        // the unique constraint decides, so concurrent signups cannot race past a check
+        return customerDao.insertCustomerIfEmailAbsent(customer)
+                .switchIfEmpty(Mono.error(() -> new DuplicateResourceException("Email is already taken")));
+    }
+
+    public Mono<Void> deleteCustomerById(Long id) {
+        return customerDao.deleteCustomer(id)
+                .switchIfEmpty(notFound(id))
+                .then();
+    }
+
+    public Mono<Customer> updateCustomer(Long id, CustomerUpdateRequest updateRequest, Long expectedVersion) {
+        if (updateRequest.name() == null && updateRequest.email() == null && updateRequest.age() == null) {
+            return Mono.error(new RequestValidationException("No data changed"));
+        }
+
+        Customer update = new Customer(
+                id,
+                updateRequest.name(),
+                updateRequest.email(),
+                updateRequest.age(),
+                expectedVersion
+        );
+
+        return customerDao.updateCustomer(update)
+                // the only constraint a partial update can break is the unique email
+                .onErrorMap(DataIntegrityViolationException.class,
+                        e -> new DuplicateResourceException("Email is already taken"))
+                .flatMap(result -> switch (result.status()) {
+                    case UPDATED -> Mono.just(result.customer());
+                    case NOT_FOUND -> notFound(id);
+                    case UNCHANGED -> Mono.error(new RequestValidationException("No data changed"));
+                    case VERSION_MISMATCH -> Mono.error(new PreconditionFailedException(
+                            "customer with id [%s] has been modified".formatted(id)
+                    ));
+                });
+    }
+
+    private static <T> Mono<T> notFound(Long id) {
+        return Mono.error(() -> new ResourceNotFoundException(
+                "customer with id [%s] not found".formatted(id)
+        ));
+    }
+}
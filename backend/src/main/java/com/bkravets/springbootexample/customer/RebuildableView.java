@@ -0,0 +1,120 @@
+package com.bkravets.springbootexample.customer;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * An in-memory view of the customer table held by a decorating DAO: rebuilt
+ * from scratch by streaming the table, and kept current in between by the
+ * writes the DAO sees. Writes made during a rebuild go to the view being built
+ * as well, and the swap waits for writes in progress, so none are lost when
+ * it replaces the current one.
+ */
+final class RebuildableView<T> {
+
+    private final TransactionOperations transactionOperations;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    // writes share it, swapping views takes it alone, so no write sees half a swap
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+
+    private volatile T current;
+    private volatile T building;
+
+    RebuildableView(TransactionOperations transactionOperations) {
+        this.transactionOperations = transactionOperations;
+    }
+
+    // streaming needs a transaction; after an import commits the old one is still bound
+    static TransactionOperations readOnlyNewTransaction(PlatformTransactionManager transactionManager) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+
+    /**
+     * The view, or {@code null} until the first rebuild is done.
+     */
+    T current() {
+        return current;
+    }
+
+    /**
+     * Fills a view from {@code create} with {@code load}, inside a read-only
+     * transaction, and swaps it in. Rebuilds run one at a time.
+     */
+    void rebuild(Supplier<T> create, Consumer<T> load) {
+        // not synchronized: a virtual thread streaming the table would pin its carrier throughout
+        rebuildLock.lock();
+        try {
+            T next = create.get();
+            swap(current, next);
+            boolean loaded = false;
+            try {
+                transactionOperations.executeWithoutResult(status -> load.accept(next));
+                loaded = true;
+            } finally {
+                swap(loaded ? next : current, null);
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Applies a write to the current view and to one being built.
+     */
+    void apply(Consumer<T> write) {
+        swapLock.readLock().lock();
+        try {
+            if (current != null) {
+                write.accept(current);
+            }
+            if (building != null) {
+                write.accept(building);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private void swap(T current, T building) {
+        swapLock.writeLock().lock();
+        try {
+            this.current = current;
+            this.building = building;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies a write like {@link #apply} once the current transaction commits,
+     * or not at all if it rolls back. Outside a transaction it is applied at once.
+     */
+    void applyAfterCommit(Consumer<T> write) {
+        afterCommit(() -> apply(write));
+    }
+
+    static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
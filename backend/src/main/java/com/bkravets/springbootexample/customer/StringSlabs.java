@@ -0,0 +1,79 @@
+package com.bkravets.springbootexample.customer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only UTF-8 string storage in direct (off-heap) buffers. A string is
+ * addressed by a {@code long} reference packing slab number, offset and length,
+ * so callers keep one primitive per value instead of a {@link String}.
+ * Not thread-safe: appends must be serialized by the caller, reads may run
+ * concurrently with each other.
+ */
+final class StringSlabs {
+
+    static final int MAX_BYTES = 0xFFFF;
+
+    private static final int SLAB_BITS = 24;
+    private static final int SLAB_SIZE = 1 << SLAB_BITS;
+
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private int position = SLAB_SIZE;
+
+    long append(String value) {
+        return append(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    long append(byte[] bytes) {
+        if (bytes.length > MAX_BYTES) {
+            throw new IllegalArgumentException("value is longer than %s bytes".formatted(MAX_BYTES));
+        }
+        if (position + bytes.length > SLAB_SIZE) {
+            slabs.add(ByteBuffer.allocateDirect(SLAB_SIZE));
+            position = 0;
+        }
+        int slab = slabs.size() - 1;
+        slabs.get(slab).put(position, bytes);
+        long ref = ((long) slab << 40) | ((long) position << 16) | bytes.length;
+        position += bytes.length;
+        return ref;
+    }
+
+    String read(long ref) {
+        byte[] bytes = new byte[length(ref)];
+        slabs.get(slab(ref)).get(offset(ref), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    boolean contentEquals(long ref, byte[] bytes) {
+        if (length(ref) != bytes.length) {
+            return false;
+        }
+        ByteBuffer slab = slabs.get(slab(ref));
+        int offset = offset(ref);
+        for (int i = 0; i < bytes.length; i++) {
+            if (slab.get(offset + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long memoryBytes() {
+        return (long) slabs.size() * SLAB_SIZE;
+    }
+
+    private static int slab(long ref) {
+        return (int) (ref >>> 40);
+    }
+
+    private static int offset(long ref) {
+        return (int) (ref >>> 16) & (SLAB_SIZE - 1);
+    }
+
+    private static int length(long ref) {
+        return (int) ref & MAX_BYTES;
+    }
+}
@@ -0,0 +1,518 @@
+package com.bkravets.springbootexample.customer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index from the trigrams of customer names and email local parts to
+ * the customers containing them, for typeahead lookups that tolerate typos.
+ * <p>
+ * Words are lowercased and padded the way {@code pg_trgm} does it, two spaces
+ * in front and one behind, so word starts weigh more than their middle. The
+ * last word of a query is not padded behind, since it is usually still being
+ * typed. A customer matches when it shares at least {@code minSimilarity} of
+ * the query's trigrams; matches are ranked by that share, then by how few
+ * trigrams they have, so shorter names come first.
+ * <p>
+ * Every indexed version of a customer is a document with a sequential number.
+ * Posting lists are growable {@code int} arrays of document numbers, sorted
+ * because documents are only appended, and are found through an open-addressing
+ * table keyed by the packed trigram. Candidates come from merging the shortest
+ * lists a match must appear in; the rest are galloped through. Once enough
+ * matches are found, later ones must share as many trigrams as the worst of
+ * them, so fewer lists need merging.
+ * Names and emails are kept in {@link StringSlabs}.
+ * <p>
+ * Replaced and deleted versions stay behind as dead documents that remember
+ * id and version, so an older version arriving late, such as from a table
+ * scan that started before the write, cannot bring them back. {@link #compact()}
+ * drops them. Thread-safe: lookups share a read lock, writes take the write lock.
+ */
+final class TrigramIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int[] NO_DOCUMENTS = new int[0];
+    // {shared trigrams, document trigrams, id, document}: most shared, then fewest trigrams, then lowest id
+    private static final Comparator<long[]> RANKING = Comparator.<long[]>comparingLong(match -> -match[0])
+            .thenComparingLong(match -> match[1])
+            .thenComparingLong(match -> match[2]);
+
+    private final double minSimilarity;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private StringSlabs names;
+    private StringSlabs emails;
+    private long[] ids;
+    private long[] versions;
+    private long[] nameRefs;
+    private long[] emailRefs;
+    private short[] trigramCounts;
+    private BitSet dead;
+    private int documents;
+    private int deadDocuments;
+
+    // trigram -> posting list, open addressing with 0 as the empty key (no trigram packs to 0)
+    private long[] trigramKeys;
+    private int[][] postings;
+    private int[] postingSizes;
+    private int trigramCount;
+
+    // id -> document number, open addressing with 0 as the empty key (ids start at 1)
+    private long[] idKeys;
+    private int[] idDocuments;
+    private int idCount;
+
+    TrigramIndex(double minSimilarity) {
+        if (minSimilarity <= 0 || minSimilarity > 1) {
+            throw new IllegalArgumentException("minSimilarity must be greater than 0 and at most 1");
+        }
+        this.minSimilarity = minSimilarity;
+        clear();
+    }
+
+    /**
+     * Indexes the customer unless a version at least as new is already known.
+     */
+    void put(Customer customer) {
+        lock.writeLock().lock();
+        try {
+            long version = versionOf(customer);
+            int existing = documentOf(customer.getId());
+            if (existing >= 0) {
+                if (versions[existing] >= version) {
+                    return;
+                }
+                kill(existing);
+            }
+            append(customer.getId(), version, customer.getName(), customer.getEmail());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops the customer unless a newer version is already known.
+     */
+    void remove(Customer customer) {
+        lock.writeLock().lock();
+        try {
+            long version = versionOf(customer);
+            int existing = documentOf(customer.getId());
+            if (existing >= 0) {
+                if (versions[existing] > version) {
+                    return;
+                }
+                kill(existing);
+                versions[existing] = version;
+            } else {
+                // a tombstone, in case the row still turns up
+                int document = append(customer.getId(), version, null, null);
+                kill(document);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    List<CustomerSuggestion> lookup(String query, int limit) {
+        long[] queryTrigrams = trigrams(query, true);
+        if (queryTrigrams.length == 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            return lookup(queryTrigrams, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<CustomerSuggestion> lookup(long[] queryTrigrams, int limit) {
+        int q = queryTrigrams.length;
+        int[][] lists = new int[q][];
+        int[] sizes = new int[q];
+        Integer[] order = new Integer[q];
+        for (int i = 0; i < q; i++) {
+            int slot = trigramSlot(queryTrigrams[i]);
+            lists[i] = trigramKeys[slot] == 0 ? NO_DOCUMENTS : postings[slot];
+            sizes[i] = trigramKeys[slot] == 0 ? 0 : postingSizes[slot];
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(i -> sizes[i]));
+
+        int minShared = Math.max(1, (int) Math.ceil(minSimilarity * q));
+        // a document sharing n trigrams is in at least one of the q - n + 1 shortest lists;
+        // those are merged, the others only searched from where the last search ended
+        int probes = q - minShared + 1;
+        int[] cursors = new int[q];
+
+        // worst match first, so it is the one to drop
+        PriorityQueue<long[]> best = new PriorityQueue<>(limit + 1, RANKING.reversed());
+        while (true) {
+            int document = Integer.MAX_VALUE;
+            for (int p = 0; p < probes; p++) {
+                int list = order[p];
+                if (cursors[p] < sizes[list]) {
+                    document = Math.min(document, lists[list][cursors[p]]);
+                }
+            }
+            if (document == Integer.MAX_VALUE) {
+                break;
+            }
+            int shared = 0;
+            for (int p = 0; p < probes; p++) {
+                int list = order[p];
+                if (cursors[p] < sizes[list] && lists[list][cursors[p]] == document) {
+                    shared++;
+                    cursors[p]++;
+                }
+            }
+            if (dead.get(document)) {
+                continue;
+            }
+            int needed = best.size() == limit ? Math.max(minShared, (int) best.peek()[0]) : minShared;
+            for (int p = probes; p < q && shared + (q - p) >= needed; p++) {
+                int list = order[p];
+                cursors[p] = gallop(lists[list], cursors[p], sizes[list], document);
+                if (cursors[p] < sizes[list] && lists[list][cursors[p]] == document) {
+                    shared++;
+                }
+            }
+            if (shared < needed || best.size() == limit && !outranks(shared, document, best.peek())) {
+                continue;
+            }
+            if (best.size() == limit) {
+                best.poll();
+            }
+            best.add(new long[]{shared, trigramCounts[document], ids[document], document});
+            if (best.size() == limit) {
+                // anything still to come has to share as many trigrams as the worst of the best
+                probes = Math.min(probes, q - (int) Math.max(minShared, best.peek()[0]) + 1);
+            }
+        }
+
+        List<long[]> ranked = new ArrayList<>(best);
+        ranked.sort(RANKING);
+        return ranked.stream()
+                .map(match -> {
+                    int document = (int) match[3];
+                    return new CustomerSuggestion(
+                            ids[document],
+                            names.read(nameRefs[document]),
+                            emails.read(emailRefs[document]),
+                            (double) match[0] / q);
+                })
+                .toList();
+    }
+
+    // first position at or after from holding a document not below target
+    private static int gallop(int[] list, int from, int size, int target) {
+        int bound = from;
+        for (int step = 1; bound < size && list[bound] < target; step <<= 1) {
+            from = bound + 1;
+            bound += step;
+        }
+        int found = Arrays.binarySearch(list, from, Math.min(bound + 1, size), target);
+        return found >= 0 ? found : -found - 1;
+    }
+
+    // same order as RANKING, without allocating a match for the many that lose
+    private boolean outranks(int shared, int document, long[] match) {
+        if (shared != match[0]) {
+            return shared > match[0];
+        }
+        if (trigramCounts[document] != match[1]) {
+            return trigramCounts[document] < match[1];
+        }
+        return ids[document] < match[2];
+    }
+
+    boolean isWasteful() {
+        lock.readLock().lock();
+        try {
+            return deadDocuments > INITIAL_CAPACITY && deadDocuments * 2 > documents;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the index from its live documents, forgetting dead ones.
+     */
+    void compact() {
+        lock.writeLock().lock();
+        try {
+            StringSlabs oldNames = names;
+            StringSlabs oldEmails = emails;
+            long[] oldIds = ids;
+            long[] oldVersions = versions;
+            long[] oldNameRefs = nameRefs;
+            long[] oldEmailRefs = emailRefs;
+            BitSet oldDead = dead;
+            int oldDocuments = documents;
+            clear();
+            for (int document = 0; document < oldDocuments; document++) {
+                if (!oldDead.get(document)) {
+                    append(oldIds[document], oldVersions[document],
+                            oldNames.read(oldNameRefs[document]), oldEmails.read(oldEmailRefs[document]));
+                }
+            }
+            trimPostings();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Cuts posting lists down to their size, after a bulk load.
+     */
+    void trim() {
+        lock.writeLock().lock();
+        try {
+            trimPostings();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return documents - deadDocuments;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long memoryBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = (long) ids.length * (8 + 8 + 8 + 8 + 2)
+                    + dead.size() / 8
+                    + (long) idKeys.length * (8 + 4)
+                    + (long) trigramKeys.length * (8 + 8 + 4)
+                    + names.memoryBytes()
+                    + emails.memoryBytes();
+            for (int[] list : postings) {
+                if (list != null) {
+                    // the array plus its header
+                    bytes += (long) list.length * 4 + 16;
+                }
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void clear() {
+        names = new StringSlabs();
+        emails = new StringSlabs();
+        ids = new long[INITIAL_CAPACITY];
+        versions = new long[INITIAL_CAPACITY];
+        nameRefs = new long[INITIAL_CAPACITY];
+        emailRefs = new long[INITIAL_CAPACITY];
+        trigramCounts = new short[INITIAL_CAPACITY];
+        dead = new BitSet();
+        documents = 0;
+        deadDocuments = 0;
+        trigramKeys = new long[INITIAL_CAPACITY * 2];
+        postings = new int[INITIAL_CAPACITY * 2][];
+        postingSizes = new int[INITIAL_CAPACITY * 2];
+        trigramCount = 0;
+        idKeys = new long[INITIAL_CAPACITY * 2];
+        idDocuments = new int[INITIAL_CAPACITY * 2];
+        idCount = 0;
+    }
+
+    private int append(long id, long version, String name, String email) {
+        int document = documents;
+        ensureCapacity(document + 1);
+        ids[document] = id;
+        versions[document] = version;
+        if (name != null) {
+            nameRefs[document] = names.append(name);
+            emailRefs[document] = emails.append(email);
+            long[] documentTrigrams = trigrams(name + " " + localPart(email), false);
+            trigramCounts[document] = (short) Math.min(documentTrigrams.length, Short.MAX_VALUE);
+            for (long trigram : documentTrigrams) {
+                addPosting(trigram, document);
+            }
+        }
+        documents++;
+        mapId(id, document);
+        return document;
+    }
+
+    private void kill(int document) {
+        if (!dead.get(document)) {
+            dead.set(document);
+            deadDocuments++;
+        }
+    }
+
+    private void trimPostings() {
+        for (int slot = 0; slot < trigramKeys.length; slot++) {
+            if (trigramKeys[slot] != 0) {
+                postings[slot] = Arrays.copyOf(postings[slot], postingSizes[slot]);
+            }
+        }
+    }
+
+    // the trigram's slot, or the empty one where it would go
+    private int trigramSlot(long trigram) {
+        int mask = trigramKeys.length - 1;
+        int slot = spread(trigram) & mask;
+        while (trigramKeys[slot] != 0 && trigramKeys[slot] != trigram) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void addPosting(long trigram, int document) {
+        int slot = trigramSlot(trigram);
+        if (trigramKeys[slot] == 0) {
+            // at most half full, like the id table
+            if ((trigramCount + 1) * 2 > trigramKeys.length) {
+                growTrigrams();
+                slot = trigramSlot(trigram);
+            }
+            trigramKeys[slot] = trigram;
+            postings[slot] = new int[4];
+            trigramCount++;
+        }
+        int[] list = postings[slot];
+        int size = postingSizes[slot];
+        if (size == list.length) {
+            list = Arrays.copyOf(list, size + (size >> 1) + 1);
+            postings[slot] = list;
+        }
+        list[size] = document;
+        postingSizes[slot] = size + 1;
+    }
+
+    private void growTrigrams() {
+        long[] oldKeys = trigramKeys;
+        int[][] oldPostings = postings;
+        int[] oldSizes = postingSizes;
+        trigramKeys = new long[oldKeys.length * 2];
+        postings = new int[oldKeys.length * 2][];
+        postingSizes = new int[oldKeys.length * 2];
+        for (int old = 0; old < oldKeys.length; old++) {
+            if (oldKeys[old] != 0) {
+                int slot = trigramSlot(oldKeys[old]);
+                trigramKeys[slot] = oldKeys[old];
+                postings[slot] = oldPostings[old];
+                postingSizes[slot] = oldSizes[old];
+            }
+        }
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(size, ids.length * 2);
+        ids = Arrays.copyOf(ids, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+        nameRefs = Arrays.copyOf(nameRefs, capacity);
+        emailRefs = Arrays.copyOf(emailRefs, capacity);
+        trigramCounts = Arrays.copyOf(trigramCounts, capacity);
+    }
+
+    private int documentOf(long id) {
+        int mask = idKeys.length - 1;
+        for (int slot = spread(id) & mask; ; slot = (slot + 1) & mask) {
+            if (idKeys[slot] == 0) {
+                return -1;
+            }
+            if (idKeys[slot] == id) {
+                return idDocuments[slot];
+            }
+        }
+    }
+
+    private void mapId(long id, int document) {
+        // at most half full, so probes stay short and always end at an empty slot
+        if ((idCount + 1) * 2 > idKeys.length) {
+            long[] oldKeys = idKeys;
+            int[] oldDocuments = idDocuments;
+            idKeys = new long[oldKeys.length * 2];
+            idDocuments = new int[oldKeys.length * 2];
+            idCount = 0;
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldKeys[slot] != 0) {
+                    mapId(oldKeys[slot], oldDocuments[slot]);
+                }
+            }
+        }
+        int mask = idKeys.length - 1;
+        int slot = spread(id) & mask;
+        while (idKeys[slot] != 0 && idKeys[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        if (idKeys[slot] == 0) {
+            idKeys[slot] = id;
+            idCount++;
+        }
+        idDocuments[slot] = document;
+    }
+
+    private static int spread(long id) {
+        long h = id * 0x9e3779b97f4a7c15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static long versionOf(Customer customer) {
+        return customer.getVersion() == null ? 0 : customer.getVersion();
+    }
+
+    static String localPart(String email) {
+        int at = email.indexOf('@');
+        return at < 0 ? email : email.substring(0, at);
+    }
+
+    /**
+     * Distinct trigrams of the words in {@code text}, three UTF-16 units packed
+     * into the low 48 bits of each {@code long}, sorted.
+     */
+    static long[] trigrams(String text, boolean typing) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        long[] trigrams = new long[lower.length() * 2 + 4];
+        int count = 0;
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                boolean padEnd = !typing || i < lower.length();
+                String padded = "  " + lower.substring(start, i) + (padEnd ? " " : "");
+                for (int j = 0; j + 3 <= padded.length(); j++) {
+                    if (count == trigrams.length) {
+                        trigrams = Arrays.copyOf(trigrams, count * 2);
+                    }
+                    trigrams[count++] = ((long) padded.charAt(j) << 32)
+                            | ((long) padded.charAt(j + 1) << 16)
+                            | padded.charAt(j + 2);
+                }
+                start = -1;
+            }
+        }
+        long[] sorted = Arrays.copyOf(trigrams, count);
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, distinct);
+    }
+}
@@ -0,0 +1,21 @@
+package com.bkravets.springbootexample.datasource;
+
+/**
+ * Which database the current thread's next connection comes from, for code
+ * that has to keep reads from different databases apart without depending on
+ * how they are routed.
+ */
+@FunctionalInterface
+public interface ConnectionRouting {
+
+    /**
+     * Routing when there are no replicas.
+     */
+    ConnectionRouting PRIMARY_ONLY = () -> false;
+
+    /**
+     * Whether a connection the current thread takes now would come from a
+     * replica, given that one is healthy.
+     */
+    boolean routesToReplica();
+}
@@ -0,0 +1,21 @@
+package com.bkravets.springbootexample.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps a connection pool in something that guards that one pool, such as a
+ * bulkhead sized to it. A data source that routes between several pools
+ * applies it to each of them.
+ */
+@FunctionalInterface
+public interface PoolGuard {
+
+    /**
+     * Leaves pools as they are.
+     */
+    PoolGuard NONE = pool -> pool;
+
+    DataSource guard(HikariDataSource pool);
+}
@@ -0,0 +1,19 @@
+package com.bkravets.springbootexample.diagnostics;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A statement that ran longer than the slow-query threshold. Parameters are
+ * described by type and size only, never by value; {@code plan} is the
+ * {@code EXPLAIN (ANALYZE, BUFFERS)} output, or null when none was captured.
+ */
+public record SlowQuery(
+        Instant executedAt,
+        long millis,
+        String sql,
+        List<String> parameters,
+        int batchSize,
+        String plan
+) {
+}
@@ -0,0 +1,47 @@
+package com.bkravets.springbootexample.diagnostics;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Times every statement that goes through the application's {@link DataSource},
+ * whether it comes from JdbcTemplate, JPA or Flyway, see {@link SlowQueryDataSource}.
+ * <p>
+ * The wrapper has to be the outermost one: Spring matches the connection a
+ * statement reports against the one bound to the transaction, so the
+ * post processor is left unordered and runs after ordered ones like the bulkhead.
+ */
+@Configuration
+@ConditionalOnProperty(name = "jdbc.slow-query.enabled", havingValue = "true")
+public class SlowQueryConfig {
+
+    @Bean
+    public static BeanPostProcessor slowQueryDataSourcePostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof SlowQueryDataSource) {
+                    return bean;
+                }
+                return new SlowQueryDataSource(
+                        dataSource,
+                        environment.getProperty("jdbc.slow-query.threshold", Duration.class, Duration.ofMillis(200)),
+                        environment.getProperty("jdbc.slow-query.history-size", Integer.class, 100),
+                        environment.getProperty("jdbc.slow-query.explain", Boolean.class, true),
+                        environment.getProperty("jdbc.slow-query.explain-interval", Duration.class, Duration.ofMinutes(1)));
+            }
+        };
+    }
+
+    @Bean
+    public SlowQueryEndpoint slowQueryEndpoint(DataSource dataSource) throws SQLException {
+        return new SlowQueryEndpoint(dataSource.unwrap(SlowQueryDataSource.class));
+    }
+}
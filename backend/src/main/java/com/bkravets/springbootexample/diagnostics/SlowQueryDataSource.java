@@ -0,0 +1,280 @@
+package com.bkravets.springbootexample.diagnostics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Times every statement executed on connections of the target data source and
+ * logs the ones that take at least {@code threshold}, with the type and size
+ * of each bind parameter but not its value. The last {@code historySize} of
+ * them are kept for {@link SlowQueryEndpoint}.
+ * <p>
+ * A slow {@code SELECT} is re-run under {@code EXPLAIN (ANALYZE, BUFFERS)} with
+ * the same parameters, in a read-only transaction on a connection of its own,
+ * at most once per {@code explainInterval} for the same SQL. Plans are captured
+ * on a single background thread; while it is busy, slow queries are kept
+ * without a plan. Writes are never explained, since ANALYZE executes them.
+ * <p>
+ * For a streamed query only the time to the first batch of rows is measured.
+ */
+public class SlowQueryDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SlowQueryDataSource.class);
+
+    private final long thresholdNanos;
+    private final boolean explain;
+    private final long explainIntervalNanos;
+    private final Executor explainer;
+    private final AtomicReferenceArray<SlowQuery> history;
+    private final AtomicLong recorded = new AtomicLong();
+    private final Map<String, Long> lastExplained = new ConcurrentHashMap<>();
+
+    public SlowQueryDataSource(DataSource target, Duration threshold, int historySize,
+                               boolean explain, Duration explainInterval) {
+        this(target, threshold, historySize, explain, explainInterval, new ThreadPoolExecutor(
+                1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(16),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "slow-query-explain");
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+    }
+
+    SlowQueryDataSource(DataSource target, Duration threshold, int historySize,
+                        boolean explain, Duration explainInterval, Executor explainer) {
+        super(target);
+        this.thresholdNanos = threshold.toNanos();
+        this.explain = explain;
+        this.explainIntervalNanos = explainInterval.toNanos();
+        this.explainer = explainer;
+        this.history = new AtomicReferenceArray<>(historySize);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return timing(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return timing(super.getConnection(username, password));
+    }
+
+    /**
+     * Slow queries still held, newest first.
+     */
+    public List<SlowQuery> recent() {
+        long end = recorded.get();
+        List<SlowQuery> queries = new ArrayList<>();
+        for (long i = end - 1; i >= 0 && i >= end - history.length(); i--) {
+            SlowQuery query = history.get((int) (i % history.length()));
+            if (query != null) {
+                queries.add(query);
+            }
+        }
+        return queries;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (explainer instanceof ExecutorService executor) {
+            executor.shutdownNow();
+        }
+        // this wraps the data source bean, so its shutdown is ours to pass on
+        if (obtainTargetDataSource() instanceof AutoCloseable target) {
+            target.close();
+        }
+    }
+
+    private Connection timing(Connection target) {
+        return (Connection) Proxy.newProxyInstance(
+                ConnectionProxy.class.getClassLoader(),
+                new Class<?>[]{ConnectionProxy.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "getTargetConnection" -> target;
+                    case "createStatement" -> timing((Connection) proxy,
+                            (Statement) invoke(target, method, args), method.getReturnType(), null);
+                    case "prepareStatement", "prepareCall" -> timing((Connection) proxy,
+                            (Statement) invoke(target, method, args), method.getReturnType(), (String) args[0]);
+                    default -> invoke(target, method, args);
+                });
+    }
+
+    private Statement timing(Connection connection, Statement target, Class<?> type, String preparedSql) {
+        StatementState state = new StatementState(preparedSql);
+        return (Statement) Proxy.newProxyInstance(
+                SlowQueryDataSource.class.getClassLoader(),
+                new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.startsWith("execute")) {
+                        String sql = args != null && args[0] instanceof String executed ? executed : state.sql;
+                        long start = System.nanoTime();
+                        try {
+                            return invoke(target, method, args);
+                        } finally {
+                            long elapsed = System.nanoTime() - start;
+                            if (elapsed >= thresholdNanos) {
+                                slow(sql, state, elapsed);
+                            }
+                            if (name.equals("executeBatch") || name.equals("executeLargeBatch")) {
+                                state.batchSize = 0;
+                            }
+                        }
+                    }
+                    switch (name) {
+                        case "equals" -> {
+                            return proxy == args[0];
+                        }
+                        case "hashCode" -> {
+                            return System.identityHashCode(proxy);
+                        }
+                        case "getConnection" -> {
+                            return connection;
+                        }
+                        case "clearParameters" -> state.parameters.clear();
+                        case "clearBatch" -> state.batchSize = 0;
+                        case "addBatch" -> {
+                            state.batchSize++;
+                            if (args != null) {
+                                state.sql = (String) args[0];
+                            }
+                        }
+                        default -> {
+                            if (name.startsWith("set") && args != null && args.length >= 2
+                                    && args[0] instanceof Integer index) {
+                                state.parameters.put(index, new Parameter(method, args));
+                            }
+                        }
+                    }
+                    return invoke(target, method, args);
+                });
+    }
+
+    private void slow(String sql, StatementState state, long nanos) {
+        if (sql == null) {
+            return;
+        }
+        String compact = sql.strip().replaceAll("\\s+", " ");
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        List<String> shapes = new ArrayList<>(state.parameters.size());
+        state.parameters.forEach((index, parameter) -> shapes.add("$" + index + " " + parameter.shape()));
+        log.warn("slow query took {} ms: {} {}", millis, compact, shapes);
+
+        Instant executedAt = Instant.now();
+        int batchSize = state.batchSize;
+        if (explain && compact.regionMatches(true, 0, "SELECT", 0, 6) && dueForExplain(compact)) {
+            List<Parameter> parameters = List.copyOf(state.parameters.values());
+            try {
+                explainer.execute(() -> {
+                    String plan = explain(sql, parameters);
+                    log.info("plan of slow query {}:\n{}", compact, plan);
+                    record(new SlowQuery(executedAt, millis, compact, shapes, batchSize, plan));
+                });
+                return;
+            } catch (RejectedExecutionException e) {
+                // still busy with earlier plans
+            }
+        }
+        record(new SlowQuery(executedAt, millis, compact, shapes, batchSize, null));
+    }
+
+    private boolean dueForExplain(String sql) {
+        long now = System.nanoTime();
+        return lastExplained.compute(sql, (key, last) ->
+                last == null || now - last >= explainIntervalNanos ? now : last) == now;
+    }
+
+    private String explain(String sql, List<Parameter> parameters) {
+        try (Connection connection = obtainTargetDataSource().getConnection()) {
+            connection.setReadOnly(true);
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN (ANALYZE, BUFFERS) " + sql)) {
+                for (Parameter parameter : parameters) {
+                    parameter.method().invoke(statement, parameter.args());
+                }
+                StringJoiner plan = new StringJoiner("\n");
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        plan.add(rs.getString(1));
+                    }
+                }
+                return plan.toString();
+            } finally {
+                connection.rollback();
+            }
+        } catch (SQLException | ReflectiveOperationException | RuntimeException e) {
+            return "EXPLAIN failed: " + e;
+        }
+    }
+
+    private void record(SlowQuery query) {
+        long index = recorded.getAndIncrement();
+        history.set((int) (index % history.length()), query);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private static final class StatementState {
+        private final Map<Integer, Parameter> parameters = new TreeMap<>();
+        private String sql;
+        private int batchSize;
+
+        private StatementState(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    private record Parameter(Method method, Object[] args) {
+
+        String shape() {
+            if (method.getName().equals("setNull")) {
+                return "null";
+            }
+            return switch (args[1]) {
+                case null -> "null";
+                case String s -> "String(" + s.length() + ")";
+                case byte[] bytes -> "byte[" + bytes.length + "]";
+                case java.sql.Array array -> "Array";
+                default -> args[1].getClass().getSimpleName();
+            };
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.bkravets.springbootexample.diagnostics;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.List;
+
+/**
+ * {@code /actuator/slowqueries}: the most recent slow statements, newest first.
+ */
+@Endpoint(id = "slowqueries")
+public class SlowQueryEndpoint {
+
+    private final SlowQueryDataSource dataSource;
+
+    public SlowQueryEndpoint(SlowQueryDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @ReadOperation
+    public List<SlowQuery> slowQueries() {
+        return dataSource.recent();
+    }
+}
@@ -0,0 +1,127 @@
+package com.bkravets.springbootexample.execution;
+
+import com.bkravets.springbootexample.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lets at most {@code maxConcurrent} callers hold or wait for a connection of
+ * the target pool; the rest queue on a fair semaphore and are turned away with
+ * {@link ServiceUnavailableException} after {@code maxWait}. With a virtual
+ * thread per request there is no thread pool left to bound how many requests
+ * reach the database, so this does it in front of the connection pool.
+ * <p>
+ * A permit is returned when the connection handed out is closed.
+ */
+public class BulkheadDataSource extends DelegatingDataSource implements MeterBinder, AutoCloseable {
+
+    private final int maxConcurrent;
+    private final Duration maxWait;
+    private final Semaphore permits;
+
+    public BulkheadDataSource(DataSource target, int maxConcurrent, Duration maxWait) {
+        super(target);
+        this.maxConcurrent = maxConcurrent;
+        this.maxWait = maxWait;
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return releasingOnClose(super.getConnection());
+        } catch (SQLException | RuntimeException | Error e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return releasingOnClose(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException | Error e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("jdbc.bulkhead.available", permits, Semaphore::availablePermits)
+                .description("Connections the bulkhead would still hand out without waiting")
+                .register(registry);
+        Gauge.builder("jdbc.bulkhead.queued", permits, Semaphore::getQueueLength)
+                .description("Callers waiting for the bulkhead")
+                .register(registry);
+    }
+
+    @Override
+    public void close() throws Exception {
+        // this replaces the pool's bean, so its shutdown is ours to pass on
+        if (getTargetDataSource() instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    private void acquire() throws SQLException {
+        try {
+            if (!permits.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new ServiceUnavailableException(
+                        "all %s database connections stayed busy for %s".formatted(maxConcurrent, maxWait));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("interrupted while waiting for a database connection", e);
+        }
+    }
+
+    private Connection releasingOnClose(Connection target) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(
+                ConnectionProxy.class.getClassLoader(),
+                new Class<?>[]{ConnectionProxy.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "getTargetConnection" -> target;
+                    case "close" -> {
+                        try {
+                            target.close();
+                        } finally {
+                            if (released.compareAndSet(false, true)) {
+                                permits.release();
+                            }
+                        }
+                        yield null;
+                    }
+                    default -> {
+                        try {
+                            yield method.invoke(target, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    }
+                });
+    }
+}
@@ -0,0 +1,38 @@
+package com.bkravets.springbootexample.execution;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * The {@code reactive} profile serves customers with WebFlux and R2DBC, but
+ * Flyway, JPA and the blocking DAOs still need JDBC. Spring Boot drops its own
+ * DataSource as soon as an R2DBC ConnectionFactory exists, so it is declared
+ * here from the usual {@code spring.datasource} properties.
+ * <p>
+ * Tomcat is on the classpath for the servlet stack and would be picked ahead
+ * of Netty, which is what serves many slow clients on a few event loops.
+ */
+@Configuration
+@Profile("reactive")
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class ReactiveStackConfig {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+    }
+}
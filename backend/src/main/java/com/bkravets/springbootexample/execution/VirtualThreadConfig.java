@@ -0,0 +1,96 @@
+package com.bkravets.springbootexample.execution;
+
+import com.bkravets.springbootexample.datasource.PoolGuard;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+/**
+ * Opt-in mode that runs Tomcat requests and MVC async work (such as the
+ * customer export) on virtual threads. Every request gets its own thread, so
+ * the database is guarded by a {@link BulkheadDataSource} per Hikari pool,
+ * sized to it, instead of by the number of Tomcat threads.
+ * <p>
+ * Uses the property Spring Boot 3.2 reads for the same purpose, so the flag
+ * keeps its meaning once Boot takes this over.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    /**
+     * A bulkhead per pool, admitting as many callers as the pool holds and
+     * waiting no longer than the pool itself would.
+     */
+    @Bean
+    public static PoolGuard bulkheadPoolGuard(Environment environment) {
+        Duration maxWait = environment.getProperty("jdbc.bulkhead.max-wait", Duration.class, Duration.ofSeconds(5));
+        return pool -> {
+            // an unset pool size stays -1 until the pool starts and falls back to Hikari's default of 10
+            int poolSize = pool.getMaximumPoolSize() > 0 ? pool.getMaximumPoolSize() : 10;
+            Duration connectionTimeout = Duration.ofMillis(pool.getConnectionTimeout());
+            return new BulkheadDataSource(pool, poolSize,
+                    maxWait.compareTo(connectionTimeout) < 0 ? maxWait : connectionTimeout);
+        };
+    }
+
+    @Bean
+    public static BulkheadDataSourcePostProcessor bulkheadDataSourcePostProcessor(PoolGuard bulkheadPoolGuard) {
+        return new BulkheadDataSourcePostProcessor(bulkheadPoolGuard);
+    }
+
+    @Bean
+    public MeterBinder bulkheadDataSourceMetrics(DataSource dataSource) {
+        return registry -> {
+            try {
+                dataSource.unwrap(BulkheadDataSource.class).bindTo(registry);
+            } catch (SQLException e) {
+                throw new IllegalStateException("data source is not behind a bulkhead", e);
+            }
+        };
+    }
+
+    /**
+     * Ordered, so that the bulkhead sits right on the pool and other data
+     * source wrappers, such as the slow-query log, go around it. The replica
+     * routing, ordered ahead of this, guards the primary and every replica
+     * pool itself and is left alone. The bean method returns this type since
+     * Spring reads the order off the declared type.
+     */
+    record BulkheadDataSourcePostProcessor(PoolGuard guard) implements BeanPostProcessor, Ordered {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            return bean instanceof HikariDataSource pool ? guard.guard(pool) : bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.bkravets.springbootexample.metrics;
+
+import com.bkravets.springbootexample.customer.CustomerDao;
+import com.bkravets.springbootexample.customer.CustomerService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+
+/**
+ * Meters every {@link CustomerDao} bean as {@code customer.dao.*}, tagged with
+ * its bean name ({@code jdbc}, {@code jpa}, {@code cache}, ...), and the
+ * {@link CustomerService} as {@code customer.service.*}. Decorating DAOs hold
+ * the proxied delegate, so each layer of the chain shows up on its own.
+ */
+@Configuration
+public class MethodMetricsConfig {
+
+    @Bean
+    public static BeanPostProcessor methodMetricsPostProcessor(ObjectProvider<MeterRegistry> registry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof CustomerDao) {
+                    return metered(bean, CustomerDao.class,
+                            new MethodMetricsInterceptor(registry, "customer.dao", Tags.of("dao", beanName)));
+                }
+                if (bean instanceof CustomerService) {
+                    return metered(bean, CustomerService.class,
+                            new MethodMetricsInterceptor(registry, "customer.service", Tags.empty()));
+                }
+                return bean;
+            }
+        };
+    }
+
+    static Object metered(Object bean, Class<?> type, MethodMetricsInterceptor interceptor) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(new DeclaredMethodsPointcut(type), interceptor);
+        if (bean instanceof Advised advised && !advised.isFrozen()) {
+            // metering twice would count every call twice
+            for (var existing : advised.getAdvisors()) {
+                if (existing.getAdvice() instanceof MethodMetricsInterceptor) {
+                    return bean;
+                }
+            }
+            // e.g. the transactional proxy of CustomerService: time the transaction too
+            advised.addAdvisor(0, advisor);
+            return bean;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        // keep the concrete class, event listeners and MeterBinders are found on it
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvisor(advisor);
+        return proxyFactory.getProxy(ClassUtils.getDefaultClassLoader());
+    }
+
+    private static class DeclaredMethodsPointcut extends StaticMethodMatcherPointcut {
+        private final Class<?> type;
+
+        DeclaredMethodsPointcut(Class<?> type) {
+            this.type = type;
+        }
+
+        @Override
+        public boolean matches(Method method, Class<?> targetClass) {
+            return method.getDeclaringClass() != Object.class && ClassUtils.hasMethod(type, method);
+        }
+    }
+}
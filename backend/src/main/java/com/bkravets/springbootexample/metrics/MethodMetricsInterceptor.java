@@ -0,0 +1,193 @@
+package com.bkravets.springbootexample.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Times every call it intercepts as {@code <prefix>.invocations}, tagged with
+ * the method and the simple name of the exception thrown ({@code none} on
+ * success), and records how many rows a {@link Collection}, {@link Optional}
+ * or {@link Stream} result carried as {@code <prefix>.rows}. A returned stream
+ * is timed and counted until it is closed, which is when its query is done,
+ * or until iterating it fails, which is then the exception it is tagged with.
+ * A stream that is never closed is never recorded; it also never gives its
+ * connection back, so callers must close it regardless.
+ * <p>
+ * The registry is looked up on the first call, so the interceptor can be
+ * created by a bean post processor before the registry exists.
+ */
+public class MethodMetricsInterceptor implements MethodInterceptor {
+
+    private final ObjectProvider<MeterRegistry> registryProvider;
+    private final String prefix;
+    private final Tags tags;
+    private final Map<Method, Timer> successTimers = new ConcurrentHashMap<>();
+    private final Map<Method, DistributionSummary> rowSummaries = new ConcurrentHashMap<>();
+    private volatile MeterRegistry registry;
+
+    public MethodMetricsInterceptor(ObjectProvider<MeterRegistry> registryProvider, String prefix, Tags tags) {
+        this.registryProvider = registryProvider;
+        this.prefix = prefix;
+        this.tags = tags;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = invocation.proceed();
+        } catch (Throwable e) {
+            record(method, start, e.getClass().getSimpleName());
+            throw e;
+        }
+
+        if (result instanceof Stream<?> stream) {
+            return metered(stream, method, start);
+        }
+        record(method, start, "none");
+        if (result instanceof Collection<?> collection) {
+            rows(method).record(collection.size());
+        } else if (result instanceof Optional<?> optional) {
+            rows(method).record(optional.isPresent() ? 1 : 0);
+        }
+        return result;
+    }
+
+    private <T> Stream<T> metered(Stream<T> stream, Method method, long start) {
+        MeteredRows<T> rows = new MeteredRows<>(stream.spliterator(), method, start);
+        return StreamSupport.stream(rows, false)
+                .onClose(() -> {
+                    try {
+                        stream.close();
+                    } catch (RuntimeException | Error e) {
+                        rows.done(e);
+                        throw e;
+                    }
+                    rows.done(null);
+                });
+    }
+
+    private void record(Method method, long start, String exception) {
+        timer(method, exception).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(Method method, String exception) {
+        if (exception.equals("none")) {
+            return successTimers.computeIfAbsent(method, m -> newTimer(m, exception));
+        }
+        // failures are rare, so their timers are not worth caching
+        return newTimer(method, exception);
+    }
+
+    private Timer newTimer(Method method, String exception) {
+        return Timer.builder(prefix + ".invocations")
+                .tags(tags)
+                .tag("method", method.getName())
+                .tag("exception", exception)
+                .register(registry());
+    }
+
+    private DistributionSummary rows(Method method) {
+        return rowSummaries.computeIfAbsent(method, m -> DistributionSummary.builder(prefix + ".rows")
+                .baseUnit("rows")
+                .tags(tags)
+                .tag("method", m.getName())
+                .register(registry()));
+    }
+
+    private MeterRegistry registry() {
+        MeterRegistry registry = this.registry;
+        if (registry == null) {
+            registry = registryProvider.getObject();
+            this.registry = registry;
+        }
+        return registry;
+    }
+
+    /**
+     * Counts the rows of a returned stream and records the call once, tagged
+     * with the first exception iterating or closing it threw.
+     */
+    private final class MeteredRows<T> implements Spliterator<T> {
+        private final Spliterator<T> source;
+        private final Method method;
+        private final long start;
+        private final LongAdder count = new LongAdder();
+        private final AtomicBoolean recorded = new AtomicBoolean();
+
+        private MeteredRows(Spliterator<T> source, Method method, long start) {
+            this.source = source;
+            this.method = method;
+            this.start = start;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            try {
+                return source.tryAdvance(row -> {
+                    count.increment();
+                    action.accept(row);
+                });
+            } catch (RuntimeException | Error e) {
+                done(e);
+                throw e;
+            }
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            try {
+                source.forEachRemaining(row -> {
+                    count.increment();
+                    action.accept(row);
+                });
+            } catch (RuntimeException | Error e) {
+                done(e);
+                throw e;
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return source.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            // not sized, or count() would skip the rows without counting them
+            return source.characteristics() & ~(Spliterator.SIZED | Spliterator.SUBSIZED);
+        }
+
+        private void done(Throwable failure) {
+            if (recorded.compareAndSet(false, true)) {
+                record(method, start, failure == null ? "none" : failure.getClass().getSimpleName());
+                rows(method).record(count.sum());
+            }
+        }
+    }
+}
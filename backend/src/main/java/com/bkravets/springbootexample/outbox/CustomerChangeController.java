@@ -0,0 +1,47 @@
+package com.bkravets.springbootexample.outbox;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/v1/customers")
+@Profile("!reactive")
+@ConditionalOnProperty(name = "customer.outbox.enabled", havingValue = "true")
+public class CustomerChangeController {
+
+    private final CustomerChangeStream changeStream;
+    private final CustomerSyncService syncService;
+
+    public CustomerChangeController(CustomerChangeStream changeStream,
+                                    CustomerSyncService syncService) {
+        this.changeStream = changeStream;
+        this.syncService = syncService;
+    }
+
+    /**
+     * Browsers' EventSource resumes with the Last-Event-ID header on its own,
+     * other clients can pass the last offset they saw as {@code after}.
+     */
+    @GetMapping(value = "events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+            @RequestParam(required = false) Long after) {
+
+        return changeStream.subscribe(lastEventId != null ? lastEventId : after);
+    }
+
+    @GetMapping("changes")
+    public CustomerChanges getChanges(
+            @RequestParam(required = false) String since,
+            @RequestParam(required = false) Integer limit) {
+
+        return syncService.getChanges(since, limit);
+    }
+}
@@ -0,0 +1,25 @@
+package com.bkravets.springbootexample.outbox;
+
+import com.bkravets.springbootexample.customer.Customer;
+
+import java.time.Instant;
+
+/**
+ * A committed change to a customer. {@code customer} is the row as written,
+ * or as it was before a delete. Offsets have no gaps and follow commit order,
+ * so a consumer resumes by asking for the events after the last one it saw.
+ */
+public record CustomerChangeEvent(
+        long offset,
+        Type type,
+        Customer customer,
+        long version,
+        Instant occurredAt
+) {
+
+    public enum Type {
+        CUSTOMER_CREATED,
+        CUSTOMER_UPDATED,
+        CUSTOMER_DELETED
+    }
+}
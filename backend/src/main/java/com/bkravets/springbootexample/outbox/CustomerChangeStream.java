@@ -0,0 +1,255 @@
+package com.bkravets.springbootexample.outbox;
+
+import com.bkravets.springbootexample.exception.RequestValidationException;
+import com.bkravets.springbootexample.exception.ResourceGoneException;
+import com.bkravets.springbootexample.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fans published {@link CustomerChangeEvent}s out to Server-Sent Events
+ * subscribers. {@link #deliver} and {@link #heartbeat} are only called from
+ * the relay's thread and never write to a client: they put the events on each
+ * subscriber's bounded queue, which one sender thread at a time drains, so
+ * every subscriber receives its events in order and a slow one holds up
+ * nobody else. A subscriber whose queue overflows is disconnected and resumes
+ * from the last event it received when it reconnects.
+ * <p>
+ * A subscriber resuming from an older offset is sent one page of the events it
+ * missed per delivery until it has caught up, so it does not hold up the others.
+ */
+@Component
+@ConditionalOnProperty(name = "customer.outbox.enabled", havingValue = "true")
+public class CustomerChangeStream implements MeterBinder, AutoCloseable {
+
+    private final CustomerOutboxRepository repository;
+    private final int pageSize;
+    private final int maxSubscribers;
+    private final int queueSize;
+    // each subscriber drains on at most one thread, so there are never more than max-subscribers
+    private final Executor sender;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    // offset of the last event sent to subscribers that are caught up, -1 before the first delivery
+    private long head = -1;
+
+    @Autowired
+    public CustomerChangeStream(CustomerOutboxRepository repository,
+                                @Value("${customer.outbox.batch-size}") int pageSize,
+                                @Value("${customer.outbox.max-subscribers}") int maxSubscribers,
+                                @Value("${customer.outbox.subscriber-queue-size}") int queueSize) {
+        this(repository, pageSize, maxSubscribers, queueSize, Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "customer-change-stream");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    CustomerChangeStream(CustomerOutboxRepository repository,
+                         int pageSize,
+                         int maxSubscribers,
+                         int queueSize,
+                         Executor sender) {
+        this.repository = repository;
+        this.pageSize = pageSize;
+        this.maxSubscribers = maxSubscribers;
+        this.queueSize = queueSize;
+        this.sender = sender;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("customer.events.subscribers", subscribers, List::size)
+                .description("Clients connected to the customer change stream")
+                .register(registry);
+    }
+
+    /**
+     * Streams the events after {@code afterOffset}, or from now on when it is {@code null}.
+     */
+    public SseEmitter subscribe(Long afterOffset) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new ServiceUnavailableException("Too many clients follow customer changes");
+        }
+        if (afterOffset == null) {
+            return register(new SseEmitter(), repository.selectLastOffset());
+        }
+        switch (repository.retentionAfter(afterOffset)) {
+            case EXPIRED -> throw new ResourceGoneException(
+                    "events after offset [%s] are no longer kept, read the customers again and follow from now on"
+                            .formatted(afterOffset));
+            case UNPUBLISHED -> throw new RequestValidationException(
+                    "offset [%s] has not been published yet".formatted(afterOffset));
+            case RETAINED -> {
+            }
+        }
+        return register(new SseEmitter(), afterOffset);
+    }
+
+    SseEmitter register(SseEmitter emitter, long offset) {
+        Subscriber subscriber = new Subscriber(emitter, offset);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    void deliver() {
+        if (head < 0) {
+            head = repository.selectLastOffset();
+        }
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.offset < head) {
+                List<CustomerChangeEvent> missed = repository.selectPublished(subscriber.offset, head, pageSize);
+                if (missed.isEmpty()) {
+                    expire(subscriber);
+                } else {
+                    send(subscriber, missed);
+                }
+            }
+        }
+        List<CustomerChangeEvent> page;
+        do {
+            long from = head;
+            page = repository.selectPublished(from, Long.MAX_VALUE, pageSize);
+            if (page.isEmpty()) {
+                break;
+            }
+            for (Subscriber subscriber : subscribers) {
+                // the ones still catching up get these from the database later
+                if (subscriber.offset >= from) {
+                    send(subscriber, page);
+                }
+            }
+            head = page.get(page.size() - 1).offset();
+        } while (page.size() == pageSize);
+    }
+
+    void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            // one that still has events queued is not idle
+            if (subscriber.queue.isEmpty()) {
+                subscriber.offer(SseEmitter.event().comment("heartbeat"));
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (sender instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    private void send(Subscriber subscriber, List<CustomerChangeEvent> events) {
+        for (CustomerChangeEvent event : events) {
+            if (event.offset() <= subscriber.offset) {
+                continue;
+            }
+            if (event.offset() != subscriber.offset + 1) {
+                expire(subscriber);
+                return;
+            }
+            boolean queued = subscriber.offer(SseEmitter.event()
+                    .id(Long.toString(event.offset()))
+                    .name(event.type().name())
+                    .data(event, MediaType.APPLICATION_JSON));
+            if (!queued) {
+                disconnect(subscriber);
+                return;
+            }
+            subscriber.offset = event.offset();
+        }
+    }
+
+    // what it missed was deleted while it caught up; resuming from here answers 410
+    private void expire(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+        subscriber.close();
+    }
+
+    // it reads too slowly to keep up; resuming from the last event it received catches it up from the table
+    private void disconnect(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+        subscriber.queue.clear();
+        subscriber.close();
+    }
+
+    private void drop(Subscriber subscriber, Exception e) {
+        subscribers.remove(subscriber);
+        subscriber.emitter.completeWithError(e);
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue;
+        // set while a sender thread owns the emitter, and for good once it completed it
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+        // offset of the last event queued, only used by the relay's thread
+        private long offset;
+
+        private Subscriber(SseEmitter emitter, long offset) {
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(queueSize);
+            this.offset = offset;
+        }
+
+        private boolean offer(SseEmitter.SseEventBuilder event) {
+            if (!queue.offer(event)) {
+                return false;
+            }
+            schedule();
+            return true;
+        }
+
+        // completes the emitter once what is still queued has been sent
+        private void close() {
+            closed = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                SseEmitter.SseEventBuilder event;
+                while ((event = queue.poll()) != null) {
+                    try {
+                        emitter.send(event);
+                    } catch (IOException | IllegalStateException e) {
+                        drop(this, e);
+                        return;
+                    }
+                }
+                if (closed) {
+                    emitter.complete();
+                    return;
+                }
+                draining.set(false);
+            } while ((closed || !queue.isEmpty()) && draining.compareAndSet(false, true));
+        }
+    }
+}
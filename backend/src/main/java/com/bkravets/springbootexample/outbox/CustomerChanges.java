@@ -0,0 +1,18 @@
+package com.bkravets.springbootexample.outbox;
+
+import com.bkravets.springbootexample.customer.Customer;
+
+import java.util.List;
+
+/**
+ * What changed since a sync token: customers as they are now and ids of
+ * deleted ones. {@code next} is the token to sync from next time, or right
+ * away while {@code hasMore} is set.
+ */
+public record CustomerChanges(
+        List<Customer> changed,
+        List<Long> deleted,
+        String next,
+        boolean hasMore
+) {
+}
@@ -0,0 +1,124 @@
+package com.bkravets.springbootexample.outbox;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains the customer outbox in the background: publishes new events in
+ * batches, hands them to the {@link CustomerChangeStream} and deletes the ones
+ * older than the retention. Every instance runs one; publishing is taken in
+ * turns through the database, streaming is done by each for its own clients.
+ * Handing events to the stream only queues them for its sender threads, so a
+ * slow client never holds up publishing or the purge.
+ */
+@Component
+@ConditionalOnProperty(name = "customer.outbox.enabled", havingValue = "true")
+public class CustomerOutboxRelay implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerOutboxRelay.class);
+
+    private static final Duration PURGE_INTERVAL = Duration.ofMinutes(1);
+
+    private final CustomerOutboxRepository repository;
+    private final CustomerChangeStream stream;
+    private final TransactionOperations transactionOperations;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Duration heartbeatInterval;
+    private final Duration retention;
+    private final Clock clock;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "customer-outbox-relay");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Instant lastPurge;
+
+    @Autowired
+    public CustomerOutboxRelay(CustomerOutboxRepository repository,
+                               CustomerChangeStream stream,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${customer.outbox.batch-size}") int batchSize,
+                               @Value("${customer.outbox.poll-interval}") Duration pollInterval,
+                               @Value("${customer.outbox.heartbeat-interval}") Duration heartbeatInterval,
+                               @Value("${customer.outbox.retention}") Duration retention) {
+        this(repository, stream, new TransactionTemplate(transactionManager),
+                batchSize, pollInterval, heartbeatInterval, retention, Clock.systemUTC());
+    }
+
+    CustomerOutboxRelay(CustomerOutboxRepository repository,
+                        CustomerChangeStream stream,
+                        TransactionOperations transactionOperations,
+                        int batchSize,
+                        Duration pollInterval,
+                        Duration heartbeatInterval,
+                        Duration retention,
+                        Clock clock) {
+        this.repository = repository;
+        this.stream = stream;
+        this.transactionOperations = transactionOperations;
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.heartbeatInterval = heartbeatInterval;
+        this.retention = retention;
+        this.clock = clock;
+    }
+
+    // not ApplicationReadyEvent: the listeners of that one rebuild in-memory views of the table first
+    @EventListener(ApplicationStartedEvent.class)
+    public void start() {
+        executor.scheduleWithFixedDelay(this::relay,
+                0, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(stream::heartbeat,
+                heartbeatInterval.toMillis(), heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    void relay() {
+        // an exception would cancel the schedule
+        try {
+            int published;
+            do {
+                published = transactionOperations.execute(status -> repository.publish(batchSize));
+            } while (published == batchSize);
+            stream.deliver();
+            purge();
+        } catch (RuntimeException e) {
+            log.warn("customer outbox relay failed, retrying in {}", pollInterval, e);
+        }
+    }
+
+    private void purge() {
+        Instant now = clock.instant();
+        if (lastPurge != null && Duration.between(lastPurge, now).compareTo(PURGE_INTERVAL) < 0) {
+            return;
+        }
+        lastPurge = now;
+        Instant cutoff = now.minus(retention);
+        int deleted;
+        do {
+            deleted = repository.deletePublishedBefore(cutoff, batchSize);
+        } while (deleted == batchSize);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
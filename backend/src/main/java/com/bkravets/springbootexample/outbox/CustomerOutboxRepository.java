@@ -0,0 +1,133 @@
+package com.bkravets.springbootexample.outbox;
+
+import com.bkravets.springbootexample.customer.Customer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Reads and publishes the {@code customer_outbox} rows that the triggers of
+ * V5 write in the same transaction as every insert, update and delete of a customer.
+ */
+@Repository
+public class CustomerOutboxRepository {
+
+    private static final RowMapper<CustomerChangeEvent> EVENT_MAPPER = (rs, rowNum) -> new CustomerChangeEvent(
+            rs.getLong("event_offset"),
+            CustomerChangeEvent.Type.valueOf(rs.getString("event_type")),
+            new Customer(
+                    rs.getLong("customer_id"),
+                    rs.getString("name"),
+                    rs.getString("email"),
+                    rs.getInt("age"),
+                    rs.getLong("version")),
+            rs.getLong("version"),
+            rs.getTimestamp("occurred_at").toInstant());
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CustomerOutboxRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Gives the oldest unpublished events the next offsets, unless another relay
+     * is doing so right now, and returns how many it published. Has to run in a
+     * transaction: holding the relay row until commit is what makes offsets
+     * become visible in order.
+     */
+    public int publish(int batchSize) {
+        List<Long> lastOffset = jdbcTemplate.queryForList(
+                "SELECT last_offset FROM customer_outbox_relay FOR UPDATE SKIP LOCKED",
+                Long.class);
+        if (lastOffset.isEmpty()) {
+            return 0;
+        }
+        String sql = """
+                UPDATE customer_outbox AS outbox
+                SET event_offset = ? + batch.n
+                FROM (
+                    SELECT id, row_number() OVER (ORDER BY id) AS n
+                    FROM customer_outbox
+                    WHERE event_offset IS NULL
+                    ORDER BY id
+                    LIMIT ?
+                ) AS batch
+                WHERE outbox.id = batch.id
+                """;
+        int published = jdbcTemplate.update(sql, lastOffset.get(0), batchSize);
+        if (published > 0) {
+            jdbcTemplate.update("UPDATE customer_outbox_relay SET last_offset = last_offset + ?", published);
+        }
+        return published;
+    }
+
+    public long selectLastOffset() {
+        return jdbcTemplate.queryForObject("SELECT last_offset FROM customer_outbox_relay", Long.class);
+    }
+
+    /**
+     * Published events with an offset above {@code afterOffset} and up to {@code upToOffset}, in order.
+     */
+    public List<CustomerChangeEvent> selectPublished(long afterOffset, long upToOffset, int limit) {
+        String sql = """
+                SELECT * FROM customer_outbox
+                WHERE event_offset > ? AND event_offset <= ?
+                ORDER BY event_offset
+                LIMIT ?
+                """;
+        return jdbcTemplate.query(sql, EVENT_MAPPER, afterOffset, upToOffset, limit);
+    }
+
+    /**
+     * Whether every event after {@code afterOffset} is still kept, no longer
+     * kept, or whether the offset was never handed out.
+     */
+    public Retention retentionAfter(long afterOffset) {
+        String sql = """
+                SELECT CASE
+                    WHEN ? > last_offset THEN 'UNPUBLISHED'
+                    WHEN ? = last_offset
+                        OR EXISTS (SELECT 1 FROM customer_outbox WHERE event_offset = ? + 1) THEN 'RETAINED'
+                    ELSE 'EXPIRED'
+                END
+                FROM customer_outbox_relay
+                """;
+        return Retention.valueOf(jdbcTemplate.queryForObject(
+                sql, String.class, afterOffset, afterOffset, afterOffset));
+    }
+
+    public enum Retention {
+        RETAINED,
+        EXPIRED,
+        // beyond the last published offset, so not one a client was given
+        UNPUBLISHED
+    }
+
+    /**
+     * Deletes published events older than {@code cutoff}, oldest first and
+     * stopping at the first newer one, so what is kept has no gaps.
+     */
+    public int deletePublishedBefore(Instant cutoff, int limit) {
+        String sql = """
+                WITH oldest AS (
+                    SELECT id, event_offset, occurred_at FROM customer_outbox
+                    WHERE event_offset IS NOT NULL
+                    ORDER BY event_offset
+                    LIMIT ?
+                )
+                DELETE FROM customer_outbox
+                WHERE id IN (
+                    SELECT id FROM oldest
+                    WHERE event_offset < coalesce(
+                        (SELECT min(event_offset) FROM oldest WHERE occurred_at >= ?),
+                        (SELECT max(event_offset) + 1 FROM oldest))
+                )
+                """;
+        return jdbcTemplate.update(sql, limit, Timestamp.from(cutoff));
+    }
+}
@@ -0,0 +1,85 @@
+package com.bkravets.springbootexample.outbox;
+
+import com.bkravets.springbootexample.customer.Customer;
+import com.bkravets.springbootexample.exception.RequestValidationException;
+import com.bkravets.springbootexample.exception.ResourceGoneException;
+import com.bkravets.springbootexample.token.OpaqueToken;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Delta sync over the published outbox events. A page reads the next events
+ * by offset and keeps the last one of each customer, so its cost follows the
+ * number of changes and not the size of the table.
+ * <p>
+ * A client without a token first takes one, then reads the full list: changes
+ * in between are then synced again rather than lost.
+ */
+@Service
+@ConditionalOnProperty(name = "customer.outbox.enabled", havingValue = "true")
+public class CustomerSyncService {
+
+    static final int DEFAULT_PAGE_SIZE = 500;
+    static final int MAX_PAGE_SIZE = 1000;
+
+    private final CustomerOutboxRepository repository;
+
+    public CustomerSyncService(CustomerOutboxRepository repository) {
+        this.repository = repository;
+    }
+
+    public CustomerChanges getChanges(String since, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new RequestValidationException(
+                    "limit must be between 1 and %s".formatted(MAX_PAGE_SIZE)
+            );
+        }
+        if (since == null) {
+            return new CustomerChanges(
+                    List.of(), List.of(), OpaqueToken.encode(repository.selectLastOffset()), false);
+        }
+        long offset = OpaqueToken.decode(since, "sync token");
+        switch (repository.retentionAfter(offset)) {
+            case EXPIRED -> throw new ResourceGoneException(
+                    "sync token has expired, read the customers again and sync from a new token");
+            case UNPUBLISHED -> throw new RequestValidationException("Invalid sync token");
+            case RETAINED -> {
+            }
+        }
+
+        // one extra event tells us whether there is more without a COUNT
+        List<CustomerChangeEvent> events = repository.selectPublished(offset, Long.MAX_VALUE, pageSize + 1);
+        boolean hasMore = events.size() > pageSize;
+        List<CustomerChangeEvent> page = hasMore ? events.subList(0, pageSize) : events;
+        if (page.isEmpty()) {
+            return new CustomerChanges(List.of(), List.of(), since, false);
+        }
+
+        Map<Long, CustomerChangeEvent> latest = new LinkedHashMap<>();
+        for (CustomerChangeEvent event : page) {
+            // re-inserted, so the customer is listed at its last change
+            latest.remove(event.customer().getId());
+            latest.put(event.customer().getId(), event);
+        }
+        List<Customer> changed = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        for (CustomerChangeEvent event : latest.values()) {
+            if (event.type() == CustomerChangeEvent.Type.CUSTOMER_DELETED) {
+                deleted.add(event.customer().getId());
+            } else {
+                changed.add(event.customer());
+            }
+        }
+        return new CustomerChanges(
+                changed,
+                deleted,
+                OpaqueToken.encode(page.get(page.size() - 1).offset()),
+                hasMore);
+    }
+}
@@ -0,0 +1,35 @@
+package com.bkravets.springbootexample.replica;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * Lets the select, exists and stream methods of a {@code CustomerDao} read from
+ * a replica and keeps every other method, and whatever it calls, on the primary.
+ */
+class ReadOnlyRoutingInterceptor implements MethodInterceptor {
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (ReplicaRouting.isDecided()) {
+            return invocation.proceed();
+        }
+        boolean read = isRead(invocation.getMethod().getName());
+        ReplicaRouting.decide(read);
+        try {
+            Object result = invocation.proceed();
+            if (!read) {
+                ReplicaRouting.wrote();
+            }
+            return result;
+        } finally {
+            ReplicaRouting.clearDecision();
+        }
+    }
+
+    static boolean isRead(String methodName) {
+        return methodName.startsWith("select")
+                || methodName.startsWith("exists")
+                || methodName.startsWith("stream");
+    }
+}
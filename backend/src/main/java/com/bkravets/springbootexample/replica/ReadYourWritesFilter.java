@@ -0,0 +1,93 @@
+package com.bkravets.springbootexample.replica;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Keeps a client's reads on the primary for {@code window} after its own
+ * writes, so it does not read a replica that has yet to replay them. The
+ * deadline travels in a cookie set by the request that wrote, so any instance
+ * can honour it without shared state.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE = "primary-reads-until";
+
+    private final Duration window;
+    private final Clock clock;
+
+    public ReadYourWritesFilter(Duration window) {
+        this(window, Clock.systemUTC());
+    }
+
+    ReadYourWritesFilter(Duration window, Clock clock) {
+        this.window = window;
+        this.clock = clock;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        ReplicaRouting.bind(new Client(primaryReadsUntil(request) > clock.millis(), response));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReplicaRouting.unbind();
+        }
+    }
+
+    private static long primaryReadsUntil(HttpServletRequest request) {
+        if (request.getCookies() == null) {
+            return 0;
+        }
+        for (Cookie cookie : request.getCookies()) {
+            if (cookie.getName().equals(COOKIE)) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private final class Client implements ReplicaRouting.Client {
+        private final HttpServletResponse response;
+        private boolean pinned;
+        private boolean cookieSet;
+
+        private Client(boolean pinned, HttpServletResponse response) {
+            this.pinned = pinned;
+            this.response = response;
+        }
+
+        @Override
+        public boolean pinnedToPrimary() {
+            return pinned;
+        }
+
+        @Override
+        public void wrote() {
+            pinned = true;
+            // DAO writes happen before the response body, so the header can still go out
+            if (!cookieSet && !response.isCommitted()) {
+                Cookie cookie = new Cookie(COOKIE, Long.toString(clock.millis() + window.toMillis()));
+                cookie.setMaxAge((int) Math.max(1, (window.toMillis() + 999) / 1000));
+                cookie.setPath("/");
+                cookie.setHttpOnly(true);
+                response.addCookie(cookie);
+                cookieSet = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.bkravets.springbootexample.replica;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Where the current thread's next connection should come from. The outermost
+ * {@code CustomerDao} call decides, so reads made on behalf of a write stay on
+ * the primary, and a client that has just written is pinned to the primary
+ * for the rest of its read-your-writes window.
+ */
+final class ReplicaRouting {
+
+    private static final ThreadLocal<Boolean> readOnly = new ThreadLocal<>();
+    private static final ThreadLocal<Client> client = new ThreadLocal<>();
+
+    private ReplicaRouting() {
+    }
+
+    /**
+     * The client of the current request, told about its writes.
+     */
+    interface Client {
+        boolean pinnedToPrimary();
+
+        void wrote();
+    }
+
+    static boolean readsFromReplica() {
+        Client current = client.get();
+        return Boolean.TRUE.equals(readOnly.get())
+                && (current == null || !current.pinnedToPrimary())
+                // a transaction keeps the connection it started with
+                && !TransactionSynchronizationManager.isActualTransactionActive();
+    }
+
+    static boolean isDecided() {
+        return readOnly.get() != null;
+    }
+
+    static void decide(boolean read) {
+        readOnly.set(read);
+    }
+
+    static void clearDecision() {
+        readOnly.remove();
+    }
+
+    static void wrote() {
+        Client current = client.get();
+        if (current != null) {
+            current.wrote();
+        }
+    }
+
+    static void bind(Client current) {
+        client.set(current);
+    }
+
+    static void unbind() {
+        client.remove();
+    }
+}
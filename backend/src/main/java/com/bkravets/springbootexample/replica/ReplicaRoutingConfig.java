@@ -0,0 +1,145 @@
+package com.bkravets.springbootexample.replica;
+
+import com.bkravets.springbootexample.customer.CustomerDao;
+import com.bkravets.springbootexample.datasource.ConnectionRouting;
+import com.bkravets.springbootexample.datasource.PoolGuard;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.NameMatchMethodPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.util.ClassUtils;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Sends {@code CustomerDao} reads to the read-only copies of
+ * {@code spring.datasource} listed in {@code jdbc.replicas.urls}; the replica
+ * pools take their settings from the primary's.
+ */
+@Configuration
+@ConditionalOnProperty(name = "jdbc.replicas.enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+
+    @Bean
+    public static ReplicaRoutingDataSourcePostProcessor replicaRoutingDataSourcePostProcessor(
+            Environment environment, ObjectProvider<PoolGuard> poolGuard) {
+        return new ReplicaRoutingDataSourcePostProcessor(environment, poolGuard);
+    }
+
+    @Bean
+    public static BeanPostProcessor readOnlyRoutingPostProcessor() {
+        NameMatchMethodPointcut pointcut = new NameMatchMethodPointcut();
+        pointcut.setMappedNames(Arrays.stream(CustomerDao.class.getMethods())
+                .map(Method::getName)
+                .toArray(String[]::new));
+        Advisor advisor = new DefaultPointcutAdvisor(pointcut, new ReadOnlyRoutingInterceptor());
+
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof CustomerDao)) {
+                    return bean;
+                }
+                if (bean instanceof Advised advised && !advised.isFrozen()) {
+                    // one routing advisor per bean is enough
+                    if (!Arrays.asList(advised.getAdvisors()).contains(advisor)) {
+                        advised.addAdvisor(advisor);
+                    }
+                    return bean;
+                }
+                ProxyFactory proxyFactory = new ProxyFactory(bean);
+                proxyFactory.setProxyTargetClass(true);
+                proxyFactory.addAdvisor(advisor);
+                return proxyFactory.getProxy(ClassUtils.getDefaultClassLoader());
+            }
+        };
+    }
+
+    @Bean
+    public ConnectionRouting replicaConnectionRouting() {
+        return ReplicaRouting::readsFromReplica;
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public ReadYourWritesFilter readYourWritesFilter(
+            @Value("${jdbc.replicas.read-your-writes}") Duration window,
+            @Value("${jdbc.replicas.max-lag:10s}") Duration maxLag,
+            @Value("${jdbc.replicas.health-check-interval:5s}") Duration healthCheckInterval) {
+        // a replica in rotation may be max-lag behind, and fall further behind until the next check
+        Duration replicaLag = maxLag.plus(healthCheckInterval);
+        if (window.compareTo(replicaLag) < 0) {
+            throw new IllegalStateException(
+                    "jdbc.replicas.read-your-writes (%s) must be at least max-lag plus health-check-interval (%s)"
+                            .formatted(window, replicaLag));
+        }
+        return new ReadYourWritesFilter(window);
+    }
+
+    /**
+     * Ordered ahead of the other data source wrappers, so that they go around
+     * the routing and apply to every connection. Guards meant for one pool,
+     * such as the bulkhead, are applied to the primary and to each replica.
+     */
+    record ReplicaRoutingDataSourcePostProcessor(Environment environment, ObjectProvider<PoolGuard> poolGuard)
+            implements BeanPostProcessor, Ordered {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof HikariDataSource primary)) {
+                return bean;
+            }
+            List<String> urls = Arrays.stream(environment.getRequiredProperty("jdbc.replicas.urls", String[].class))
+                    .map(String::strip)
+                    .filter(url -> !url.isEmpty())
+                    .toList();
+            Duration connectionTimeout = environment.getProperty(
+                    "jdbc.replicas.connection-timeout", Duration.class, Duration.ofSeconds(1));
+            PoolGuard guard = poolGuard.getIfAvailable(() -> PoolGuard.NONE);
+            List<DataSource> replicas = IntStream.range(0, urls.size())
+                    .mapToObj(i -> guard.guard(replica(primary, i, urls.get(i), connectionTimeout)))
+                    .toList();
+            return new ReplicaRoutingDataSource(
+                    guard.guard(primary),
+                    replicas,
+                    environment.getProperty("jdbc.replicas.max-lag", Duration.class, Duration.ofSeconds(10)),
+                    environment.getProperty("jdbc.replicas.health-check-interval", Duration.class, Duration.ofSeconds(5)));
+        }
+
+        private static HikariDataSource replica(HikariDataSource primary, int index, String url,
+                                                Duration connectionTimeout) {
+            HikariConfig config = new HikariConfig();
+            primary.copyStateTo(config);
+            config.setJdbcUrl(url);
+            config.setPoolName("replica-" + index);
+            config.setReadOnly(true);
+            // a read waits this long for a replica before it falls back to the primary
+            config.setConnectionTimeout(connectionTimeout.toMillis());
+            // an unreachable replica must not stop the application, the health check takes it out
+            config.setInitializationFailTimeout(-1);
+            return new HikariDataSource(config);
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.bkravets.springbootexample.replica;
+
+import com.bkravets.springbootexample.exception.ServiceUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Hands out connections of the primary, except for {@code CustomerDao} reads
+ * outside a transaction (see {@link ReplicaRouting}), which take turns on the
+ * healthy replicas. When no replica is healthy, reads go to the primary too.
+ * <p>
+ * A replica is taken out of rotation when it refuses a connection or when a
+ * health check finds it unreachable or lagging more than {@code maxLag}
+ * behind; the next successful check puts it back. A replica too busy to hand
+ * out a connection in time stays in rotation, and the read goes to the
+ * primary. Unwrapping reaches the primary, so pool metrics keep seeing it.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    // zero when the replica has replayed everything it received, null on a server that is not a replica
+    private static final String LAG_SQL = """
+            SELECT coalesce(
+                CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                     ELSE extract(epoch FROM now() - pg_last_xact_replay_timestamp())
+                END, 0)
+            """;
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final long maxLagMillis;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService healthChecks;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<? extends DataSource> replicas,
+                                    Duration maxLag, Duration healthCheckInterval) {
+        this(primary, replicas, maxLag, Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        healthChecks.scheduleWithFixedDelay(this::checkHealth,
+                0, healthCheckInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    ReplicaRoutingDataSource(DataSource primary, List<? extends DataSource> replicas,
+                             Duration maxLag, ScheduledExecutorService healthChecks) {
+        this.primary = primary;
+        this.replicas = IntStream.range(0, replicas.size())
+                .mapToObj(i -> new Replica(i, replicas.get(i)))
+                .toList();
+        this.maxLagMillis = maxLag.toMillis();
+        this.healthChecks = healthChecks;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (ReplicaRouting.readsFromReplica()) {
+            for (int i = 0; i < replicas.size(); i++) {
+                Replica replica = replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+                if (!replica.healthy) {
+                    continue;
+                }
+                try {
+                    return replica.dataSource.getConnection();
+                } catch (SQLException e) {
+                    replica.markDown(e.getMessage());
+                } catch (ServiceUnavailableException e) {
+                    // its bulkhead is full, which says nothing about its health
+                }
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(this) ? (T) this : primary.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primary.isWrapperFor(iface);
+    }
+
+    void checkHealth() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(LAG_SQL)) {
+                rs.next();
+                long lagMillis = (long) (rs.getDouble(1) * 1000);
+                if (lagMillis > maxLagMillis) {
+                    replica.markDown("%d ms behind the primary".formatted(lagMillis));
+                } else if (!replica.healthy) {
+                    replica.healthy = true;
+                    log.info("replica {} is back in rotation", replica.index);
+                }
+            } catch (SQLException | RuntimeException e) {
+                replica.markDown(e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        healthChecks.shutdownNow();
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+        // this wraps the primary's bean, so its shutdown is ours to pass on
+        if (primary instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private static final class Replica {
+        private final int index;
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+
+        private Replica(int index, DataSource dataSource) {
+            this.index = index;
+            this.dataSource = dataSource;
+        }
+
+        private void markDown(String reason) {
+            if (healthy) {
+                healthy = false;
+                log.warn("replica {} taken out of rotation: {}", index, reason);
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.bkravets.springbootexample.token;
+
+import com.bkravets.springbootexample.exception.RequestValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque tokens handed out to clients, such as list cursors and sync tokens.
+ * They only wrap a non-negative position, but clients must not rely on
+ * their format.
+ */
+public final class OpaqueToken {
+
+    private OpaqueToken() {
+    }
+
+    public static String encode(long position) {
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(Long.toString(position).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the position in {@code token}, or fails with
+     * "Invalid {@code kind}" when it is not one we could have handed out.
+     */
+    public static long decode(String token, String kind) {
+        long position;
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(token);
+            position = Long.parseLong(new String(bytes, StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new RequestValidationException("Invalid " + kind);
+        }
+        if (position < 0) {
+            throw new RequestValidationException("Invalid " + kind);
+        }
+        return position;
+    }
+}
@@ -0,0 +1,7 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX customer_age_idx ON customer (age);
+
+CREATE INDEX customer_email_domain_idx ON customer (lower(split_part(email, '@', 2)));
+
+CREATE INDEX customer_name_trgm_idx ON customer USING gin (lower(name) gin_trgm_ops);
@@ -0,0 +1,48 @@
+CREATE TABLE customer_outbox(
+    id BIGSERIAL PRIMARY KEY,
+    event_type TEXT NOT NULL,
+    customer_id BIGINT NOT NULL,
+    name TEXT NOT NULL,
+    email TEXT NOT NULL,
+    age INT NOT NULL,
+    version BIGINT NOT NULL,
+    occurred_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    -- assigned by the relay in commit order, null until published
+    event_offset BIGINT UNIQUE
+);
+
+CREATE INDEX customer_outbox_unpublished_idx ON customer_outbox (id) WHERE event_offset IS NULL;
+
+-- the last offset handed out; its row lock lets one relay publish at a time
+CREATE TABLE customer_outbox_relay(
+    last_offset BIGINT NOT NULL
+);
+
+INSERT INTO customer_outbox_relay (last_offset) VALUES (0);
+
+-- statement level with transition tables, so a bulk insert writes its events in one go
+CREATE FUNCTION customer_outbox_record() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    INSERT INTO customer_outbox (event_type, customer_id, name, email, age, version)
+    SELECT TG_ARGV[0], id, name, email, age, version
+    FROM changed
+    ORDER BY id;
+    RETURN NULL;
+END
+$$;
+
+CREATE TRIGGER customer_outbox_insert
+AFTER INSERT ON customer
+REFERENCING NEW TABLE AS changed
+FOR EACH STATEMENT EXECUTE FUNCTION customer_outbox_record('CUSTOMER_CREATED');
+
+CREATE TRIGGER customer_outbox_update
+AFTER UPDATE ON customer
+REFERENCING NEW TABLE AS changed
+FOR EACH STATEMENT EXECUTE FUNCTION customer_outbox_record('CUSTOMER_UPDATED');
+
+CREATE TRIGGER customer_outbox_delete
+AFTER DELETE ON customer
+REFERENCING OLD TABLE AS changed
+FOR EACH STATEMENT EXECUTE FUNCTION customer_outbox_record('CUSTOMER_DELETED');
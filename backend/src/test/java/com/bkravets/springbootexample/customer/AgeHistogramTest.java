@@ -0,0 +1,50 @@
+package com.bkravets.springbootexample.customer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AgeHistogramTest {
+
+    @Test
+    void summarizesAgesExactly() {
+        AgeHistogram underTest = new AgeHistogram();
+
+        IntStream.rangeClosed(1, 100).forEach(underTest::add);
+        AgeHistogram.Snapshot actual = underTest.snapshot();
+
+        assertThat(actual.total()).isEqualTo(100);
+        assertThat(actual.min()).isEqualTo(1);
+        assertThat(actual.max()).isEqualTo(100);
+        assertThat(actual.mean()).isEqualTo(50.5);
+        assertThat(actual.quantile(0.25)).isEqualTo(25);
+        assertThat(actual.quantile(0.5)).isEqualTo(50);
+        assertThat(actual.quantile(0.99)).isEqualTo(99);
+    }
+
+    @Test
+    void removedAgesNoLongerCount() {
+        AgeHistogram underTest = new AgeHistogram();
+        underTest.add(20);
+        underTest.add(30);
+        underTest.add(90);
+
+        underTest.remove(90);
+        AgeHistogram.Snapshot actual = underTest.snapshot();
+
+        assertThat(actual.total()).isEqualTo(2);
+        assertThat(actual.max()).isEqualTo(30);
+        assertThat(actual.quantile(1.0)).isEqualTo(30);
+    }
+
+    @Test
+    void emptyHistogramHasNoSummary() {
+        AgeHistogram.Snapshot actual = new AgeHistogram().snapshot();
+
+        assertThat(actual.min()).isNull();
+        assertThat(actual.mean()).isNull();
+        assertThat(actual.quantile(0.5)).isNull();
+    }
+}
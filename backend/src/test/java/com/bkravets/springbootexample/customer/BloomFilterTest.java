@@ -0,0 +1,41 @@
+package com.bkravets.springbootexample.customer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+    @Test
+    void hasNoFalseNegatives() {
+        BloomFilter underTest = new BloomFilter(1_000, 0.01);
+
+        IntStream.range(0, 1_000).forEach(i -> underTest.put("user" + i + "@mail.com"));
+
+        assertThat(IntStream.range(0, 1_000))
+                .allMatch(i -> underTest.mightContain("user" + i + "@mail.com"));
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTarget() {
+        BloomFilter underTest = new BloomFilter(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> underTest.put("user" + i + "@mail.com"));
+
+        long falsePositives = IntStream.range(0, 100_000)
+                .filter(i -> underTest.mightContain("other" + i + "@mail.com"))
+                .count();
+
+        assertThat(falsePositives / 100_000.0).isLessThan(0.02);
+        assertThat(underTest.expectedFpp()).isBetween(0.005, 0.02);
+    }
+
+    @Test
+    void memoryMatchesSizingFormula() {
+        BloomFilter underTest = new BloomFilter(1_000_000, 0.01);
+
+        // ~9.6 bits per element for 1%
+        assertThat(underTest.memoryBytes()).isBetween(1_190_000L, 1_210_000L);
+    }
+}
@@ -0,0 +1,164 @@
+package com.bkravets.springbootexample.customer;
+
+import com.bkravets.springbootexample.datasource.ConnectionRouting;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerBatchingDataAccessServiceTest {
+    @Mock
+    private CustomerDao delegate;
+
+    private CustomerBatchingDataAccessService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerBatchingDataAccessService(
+                delegate, ConnectionRouting.PRIMARY_ONLY, Duration.ofSeconds(10), 3);
+    }
+
+    @Test
+    void loneLookupIsLoadedRightAway() {
+        Customer customer = new Customer(1L, "Name", "email@mail.com", 30, 0L);
+        when(delegate.selectCustomersByIds(any())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.contains(1L) ? List.of(customer) : List.of();
+        });
+
+        assertThat(underTest.selectCustomerById(1L)).contains(customer);
+        assertThat(underTest.selectCustomerById(2L)).isEmpty();
+
+        verify(delegate, never()).selectCustomerById(any());
+    }
+
+    @Test
+    void lookupsArrivingDuringALoadAreCoalesced() throws Exception {
+        CountDownLatch firstLoadStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstLoad = new CountDownLatch(1);
+        List<List<Long>> loads = new CopyOnWriteArrayList<>();
+        when(delegate.selectCustomersByIds(any())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            loads.add(List.copyOf(ids));
+            if (ids.contains(1L)) {
+                firstLoadStarted.countDown();
+                releaseFirstLoad.await();
+            }
+            return ids.stream()
+                    .map(id -> new Customer(id, "Name " + id, id + "@mail.com", 30, 0L))
+                    .toList();
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            CompletableFuture<Optional<Customer>> first =
+                    CompletableFuture.supplyAsync(() -> underTest.selectCustomerById(1L), executor);
+            assertThat(firstLoadStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+            List<CompletableFuture<Optional<Customer>>> coalesced = List.of(2L, 3L, 4L).stream()
+                    .map(id -> CompletableFuture.supplyAsync(() -> underTest.selectCustomerById(id), executor))
+                    .toList();
+            for (CompletableFuture<Optional<Customer>> lookup : coalesced) {
+                assertThat(lookup.get(5, TimeUnit.SECONDS)).isPresent();
+            }
+            releaseFirstLoad.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).hasValueSatisfying(c -> assertThat(c.getId()).isEqualTo(1L));
+            assertThat(loads).hasSize(2);
+            assertThat(loads.get(1)).containsExactlyInAnyOrder(2L, 3L, 4L);
+        } finally {
+            releaseFirstLoad.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void replicaAndPrimaryLookupsAreNotBatchedTogether() throws Exception {
+        ThreadLocal<Boolean> replica = ThreadLocal.withInitial(() -> false);
+        underTest = new CustomerBatchingDataAccessService(
+                delegate, replica::get, Duration.ofSeconds(10), 2);
+        CountDownLatch firstLoadStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstLoad = new CountDownLatch(1);
+        List<List<Long>> loads = new CopyOnWriteArrayList<>();
+        when(delegate.selectCustomersByIds(any())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            loads.add(List.copyOf(ids));
+            if (ids.contains(1L)) {
+                firstLoadStarted.countDown();
+                releaseFirstLoad.await();
+            }
+            return List.of();
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            CompletableFuture<Optional<Customer>> first =
+                    CompletableFuture.supplyAsync(() -> underTest.selectCustomerById(1L), executor);
+            assertThat(firstLoadStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // each batch is loaded as soon as two lookups fill it
+            List<CompletableFuture<Optional<Customer>>> lookups = List.of(2L, 3L, 4L, 5L).stream()
+                    .map(id -> CompletableFuture.supplyAsync(() -> {
+                        replica.set(id > 3);
+                        return underTest.selectCustomerById(id);
+                    }, executor))
+                    .toList();
+            for (CompletableFuture<Optional<Customer>> lookup : lookups) {
+                lookup.get(5, TimeUnit.SECONDS);
+            }
+            releaseFirstLoad.countDown();
+            first.get(5, TimeUnit.SECONDS);
+
+            assertThat(loads).hasSize(3);
+            assertThat(loads.subList(1, 3).stream().map(Set::copyOf))
+                    .containsExactlyInAnyOrder(Set.of(2L, 3L), Set.of(4L, 5L));
+        } finally {
+            releaseFirstLoad.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failedLoadIsRethrown() {
+        DataAccessResourceFailureException failure = new DataAccessResourceFailureException("down");
+        when(delegate.selectCustomersByIds(any())).thenThrow(failure);
+
+        assertThatThrownBy(() -> underTest.selectCustomerById(1L)).isSameAs(failure);
+    }
+
+    @Test
+    void lookupInsideTransactionIsNotBatched() {
+        Customer customer = new Customer(1L, "Name", "email@mail.com", 30, 0L);
+        when(delegate.selectCustomerById(1L)).thenReturn(Optional.of(customer));
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertThat(underTest.selectCustomerById(1L)).contains(customer);
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+
+        verify(delegate, never()).selectCustomersByIds(any());
+    }
+}
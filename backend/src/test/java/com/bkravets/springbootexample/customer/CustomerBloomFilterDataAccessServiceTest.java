@@ -0,0 +1,128 @@
+package com.bkravets.springbootexample.customer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerBloomFilterDataAccessServiceTest {
+    @Mock
+    private CustomerDao delegate;
+
+    private CustomerBloomFilterDataAccessService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerBloomFilterDataAccessService(
+                delegate, TransactionOperations.withoutTransaction(), 1_000, 0.01);
+    }
+
+    @Test
+    void existsCustomerWithEmailFallsThroughBeforeBuild() {
+        when(delegate.existsCustomerWithEmail("a@mail.com")).thenReturn(false);
+
+        boolean actual = underTest.existsCustomerWithEmail("a@mail.com");
+
+        assertThat(actual).isFalse();
+        verify(delegate).existsCustomerWithEmail("a@mail.com");
+    }
+
+    @Test
+    void existsCustomerWithEmailAnswersNegativesFromFilter() {
+        when(delegate.streamAllEmails()).thenReturn(Stream.of("taken@mail.com"));
+        underTest.rebuild();
+
+        boolean actual = underTest.existsCustomerWithEmail("free@mail.com");
+
+        assertThat(actual).isFalse();
+        verify(delegate, never()).existsCustomerWithEmail(any());
+    }
+
+    @Test
+    void existsCustomerWithEmailAsksDelegateForProbablePositives() {
+        when(delegate.streamAllEmails()).thenReturn(Stream.of("taken@mail.com"));
+        when(delegate.existsCustomerWithEmail("taken@mail.com")).thenReturn(true);
+        underTest.rebuild();
+
+        boolean actual = underTest.existsCustomerWithEmail("taken@mail.com");
+
+        assertThat(actual).isTrue();
+    }
+
+    @Test
+    void insertedEmailsAreRemembered() {
+        when(delegate.streamAllEmails()).thenReturn(Stream.empty());
+        underTest.rebuild();
+        Customer customer = new Customer("Name", "new@mail.com", 20);
+        when(delegate.insertCustomerIfEmailAbsent(customer)).thenReturn(Optional.of(1L));
+        when(delegate.existsCustomerWithEmail("new@mail.com")).thenReturn(true);
+
+        underTest.insertCustomerIfEmailAbsent(customer);
+
+        assertThat(underTest.existsCustomerWithEmail("new@mail.com")).isTrue();
+    }
+
+    @Test
+    void updatedEmailsAreRemembered() {
+        when(delegate.streamAllEmails()).thenReturn(Stream.empty());
+        underTest.rebuild();
+        Customer updated = new Customer(1L, "Name", "changed@mail.com", 20, 1L);
+        when(delegate.updateCustomer(any())).thenReturn(CustomerUpdateResult.updated(
+                updated, new Customer(1L, "Name", "before@mail.com", 20, 0L)));
+        when(delegate.existsCustomerWithEmail("changed@mail.com")).thenReturn(true);
+
+        underTest.updateCustomer(new Customer(1L, null, "changed@mail.com", null));
+
+        assertThat(underTest.existsCustomerWithEmail("changed@mail.com")).isTrue();
+    }
+
+    @Test
+    void selectExistingEmailsOnlyQueriesCandidates() {
+        when(delegate.streamAllEmails()).thenReturn(Stream.of("taken@mail.com"));
+        when(delegate.selectExistingEmails(List.of("taken@mail.com")))
+                .thenReturn(Set.of("taken@mail.com"));
+        underTest.rebuild();
+
+        Set<String> actual = underTest.selectExistingEmails(List.of("taken@mail.com", "free@mail.com"));
+
+        assertThat(actual).containsExactly("taken@mail.com");
+    }
+
+    @Test
+    void selectExistingEmailsSkipsDelegateWhenNothingMatches() {
+        when(delegate.streamAllEmails()).thenReturn(Stream.of("taken@mail.com"));
+        underTest.rebuild();
+
+        Set<String> actual = underTest.selectExistingEmails(List.of("free@mail.com"));
+
+        assertThat(actual).isEmpty();
+        verify(delegate, never()).selectExistingEmails(any());
+    }
+
+    @Test
+    void bindToReportsMemoryAndFalsePositiveRate() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        when(delegate.streamAllEmails()).thenReturn(Stream.of("taken@mail.com"));
+        underTest.rebuild();
+        underTest.bindTo(registry);
+
+        underTest.existsCustomerWithEmail("free@mail.com");
+
+        assertThat(registry.get("customer.email.bloom.memory").gauge().value()).isPositive();
+        assertThat(registry.get("customer.email.bloom.fpp.observed").gauge().value()).isZero();
+        assertThat(registry.get("customer.email.bloom.checks").tag("result", "negative")
+                .functionCounter().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,117 @@
+package com.bkravets.springbootexample.customer;
+
+import com.bkravets.springbootexample.customer.CustomerRegistrationOutcome.Status;
+import com.bkravets.springbootexample.exception.RequestValidationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerBulkRegistrationServiceTest {
+    @Mock
+    private CustomerDao customerDao;
+
+    private CustomerBulkRegistrationService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerBulkRegistrationService(customerDao, 2, 10);
+    }
+
+    @Test
+    void registerCustomersReportsOutcomePerItem() {
+        List<CustomerRegistrationRequest> requests = List.of(
+                new CustomerRegistrationRequest("A", "a@mail.com", 20),
+                new CustomerRegistrationRequest("B", "taken@mail.com", 21),
+                new CustomerRegistrationRequest("C", null, 22),
+                new CustomerRegistrationRequest("D", "a@mail.com", 23),
+                new CustomerRegistrationRequest("E", "e@mail.com", 24),
+                new CustomerRegistrationRequest("F", "f@mail.com", 25)
+        );
+        when(customerDao.selectExistingEmails(anySet())).thenReturn(Set.of("taken@mail.com"));
+        when(customerDao.insertCustomers(anyList()))
+                .thenReturn(new long[]{1L, 2L})
+                .thenReturn(new long[]{0L});
+
+        List<CustomerRegistrationOutcome> actual = underTest.registerCustomers(requests);
+
+        assertThat(actual).extracting(CustomerRegistrationOutcome::status).containsExactly(
+                Status.CREATED,
+                Status.DUPLICATE,
+                Status.INVALID,
+                Status.DUPLICATE,
+                Status.CREATED,
+                Status.DUPLICATE
+        );
+        assertThat(actual).extracting(CustomerRegistrationOutcome::index).containsExactly(0, 1, 2, 3, 4, 5);
+    }
+
+    @Test
+    void registerCustomersReportsNullItemAsInvalid() {
+        List<CustomerRegistrationRequest> requests = Arrays.asList(
+                new CustomerRegistrationRequest("A", "a@mail.com", 20),
+                null
+        );
+        when(customerDao.selectExistingEmails(anySet())).thenReturn(Set.of());
+        when(customerDao.insertCustomers(anyList())).thenReturn(new long[]{1L});
+
+        List<CustomerRegistrationOutcome> actual = underTest.registerCustomers(requests);
+
+        assertThat(actual).containsExactly(
+                new CustomerRegistrationOutcome(0, "a@mail.com", Status.CREATED),
+                new CustomerRegistrationOutcome(1, null, Status.INVALID)
+        );
+        verify(customerDao).selectExistingEmails(Set.of("a@mail.com"));
+    }
+
+    @Test
+    void registerCustomersInsertsInChunks() {
+        List<CustomerRegistrationRequest> requests = List.of(
+                new CustomerRegistrationRequest("A", "a@mail.com", 20),
+                new CustomerRegistrationRequest("B", "b@mail.com", 21),
+                new CustomerRegistrationRequest("C", "c@mail.com", 22)
+        );
+        when(customerDao.selectExistingEmails(anySet())).thenReturn(Set.of());
+        when(customerDao.insertCustomers(anyList()))
+                .thenReturn(new long[]{1L, 2L})
+                .thenReturn(new long[]{1L});
+
+        underTest.registerCustomers(requests);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Customer>> chunks = ArgumentCaptor.forClass(List.class);
+        verify(customerDao, times(2)).insertCustomers(chunks.capture());
+        assertThat(chunks.getAllValues().get(0))
+                .extracting(Customer::getEmail)
+                .containsExactly("a@mail.com", "b@mail.com");
+        assertThat(chunks.getAllValues().get(1))
+                .extracting(Customer::getEmail)
+                .containsExactly("c@mail.com");
+        verify(customerDao).selectExistingEmails(Set.of("a@mail.com", "b@mail.com", "c@mail.com"));
+    }
+
+    @Test
+    void registerCustomersThrowsWhenRequestTooLarge() {
+        List<CustomerRegistrationRequest> requests = Collections.nCopies(
+                11, new CustomerRegistrationRequest("A", "a@mail.com", 20));
+
+        assertThatThrownBy(() -> underTest.registerCustomers(requests))
+                .isInstanceOf(RequestValidationException.class);
+
+        verifyNoInteractions(customerDao);
+    }
+}
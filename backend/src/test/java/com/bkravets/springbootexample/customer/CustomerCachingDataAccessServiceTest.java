@@ -0,0 +1,190 @@
+package com.bkravets.springbootexample.customer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerCachingDataAccessServiceTest {
+    @Mock
+    private CustomerDao delegate;
+
+    private CustomerCachingDataAccessService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerCachingDataAccessService(delegate, 100, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void selectCustomerByIdLoadsOnce() {
+        Customer customer = new Customer(1L, "Name", "email@mail.com", 30, 0L);
+        when(delegate.selectCustomerById(1L)).thenReturn(Optional.of(customer));
+
+        underTest.selectCustomerById(1L);
+        Optional<Customer> actual = underTest.selectCustomerById(1L);
+
+        assertThat(actual).contains(customer);
+        verify(delegate, times(1)).selectCustomerById(1L);
+    }
+
+    @Test
+    void selectCustomerByIdDoesNotCacheMisses() {
+        when(delegate.selectCustomerById(1L)).thenReturn(Optional.empty());
+
+        underTest.selectCustomerById(1L);
+        underTest.selectCustomerById(1L);
+
+        verify(delegate, times(2)).selectCustomerById(1L);
+    }
+
+    @Test
+    void selectCustomerByIdReturnsCopies() {
+        when(delegate.selectCustomerById(1L))
+                .thenReturn(Optional.of(new Customer(1L, "Name", "email@mail.com", 30, 0L)));
+
+        underTest.selectCustomerById(1L).orElseThrow().setName("Changed");
+
+        assertThat(underTest.selectCustomerById(1L))
+                .hasValueSatisfying(c -> assertThat(c.getName()).isEqualTo("Name"));
+    }
+
+    @Test
+    void selectCustomersByIdsLoadsOnlyMisses() {
+        Customer cached = new Customer(1L, "Name", "email@mail.com", 30, 0L);
+        Customer missed = new Customer(2L, "Other", "other@mail.com", 40, 0L);
+        when(delegate.selectCustomerById(1L)).thenReturn(Optional.of(cached));
+        when(delegate.selectCustomersByIds(List.of(2L, 3L))).thenReturn(List.of(missed));
+        underTest.selectCustomerById(1L);
+
+        List<Customer> actual = underTest.selectCustomersByIds(List.of(1L, 2L, 3L, 1L));
+
+        assertThat(actual).containsExactlyInAnyOrder(cached, missed);
+        assertThat(underTest.selectCustomerById(2L)).contains(missed);
+        verify(delegate, never()).selectCustomerById(2L);
+    }
+
+    @Test
+    void selectCustomerVersionIsServedFromCache() {
+        when(delegate.selectCustomerById(1L))
+                .thenReturn(Optional.of(new Customer(1L, "Name", "email@mail.com", 30, 4L)));
+        underTest.selectCustomerById(1L);
+
+        Optional<Long> actual = underTest.selectCustomerVersion(1L);
+
+        assertThat(actual).contains(4L);
+        verify(delegate, never()).selectCustomerVersion(any());
+    }
+
+    @Test
+    void updateCustomerInvalidates() {
+        Customer customer = new Customer(1L, "Name", "email@mail.com", 30, 0L);
+        Customer updated = new Customer(1L, "New", "email@mail.com", 30, 1L);
+        when(delegate.selectCustomerById(1L))
+                .thenReturn(Optional.of(customer), Optional.of(updated));
+        underTest.selectCustomerById(1L);
+
+        underTest.updateCustomer(new Customer(1L, "New", null, null));
+
+        assertThat(underTest.selectCustomerById(1L)).contains(updated);
+    }
+
+    @Test
+    void rowReadBeforeConcurrentUpdateIsNotCached() {
+        Customer stale = new Customer(1L, "Name", "email@mail.com", 30, 0L);
+        Customer updated = new Customer(1L, "New", "email@mail.com", 30, 1L);
+        when(delegate.selectCustomerById(1L))
+                .thenAnswer(invocation -> {
+                    // the update commits and invalidates while this read is still in flight
+                    underTest.updateCustomer(new Customer(1L, "New", null, null));
+                    return Optional.of(stale);
+                })
+                .thenReturn(Optional.of(updated));
+        underTest.selectCustomerById(1L);
+
+        assertThat(underTest.selectCustomerById(1L)).contains(updated);
+    }
+
+    @Test
+    void concurrentUpdateOfAnotherIdDoesNotStopCaching() {
+        Customer customer = new Customer(2L, "Name", "email@mail.com", 30, 0L);
+        when(delegate.selectCustomerById(2L)).thenAnswer(invocation -> {
+            underTest.updateCustomer(new Customer(1L, "New", null, null));
+            return Optional.of(customer);
+        });
+        underTest.selectCustomerById(2L);
+
+        assertThat(underTest.selectCustomerById(2L)).contains(customer);
+        verify(delegate, times(1)).selectCustomerById(2L);
+    }
+
+    @Test
+    void concurrentUpdateSpoilsOnlyItsOwnIdInABatch() {
+        Customer first = new Customer(1L, "First", "first@mail.com", 30, 0L);
+        Customer second = new Customer(2L, "Second", "second@mail.com", 30, 0L);
+        when(delegate.selectCustomersByIds(List.of(1L, 2L))).thenAnswer(invocation -> {
+            underTest.updateCustomer(new Customer(1L, "New", null, null));
+            return List.of(first, second);
+        });
+        underTest.selectCustomersByIds(List.of(1L, 2L));
+
+        assertThat(underTest.selectCustomerById(2L)).contains(second);
+        verify(delegate, never()).selectCustomerById(2L);
+        when(delegate.selectCustomerById(1L)).thenReturn(Optional.of(first));
+        underTest.selectCustomerById(1L);
+        verify(delegate).selectCustomerById(1L);
+    }
+
+    @Test
+    void loadAfterFailedLoadIsCached() {
+        when(delegate.selectCustomerById(1L))
+                .thenThrow(new IllegalStateException("down"))
+                .thenReturn(Optional.of(new Customer(1L, "Name", "email@mail.com", 30, 0L)));
+        assertThatThrownBy(() -> underTest.selectCustomerById(1L)).isInstanceOf(IllegalStateException.class);
+
+        underTest.selectCustomerById(1L);
+        underTest.selectCustomerById(1L);
+
+        verify(delegate, times(2)).selectCustomerById(1L);
+    }
+
+    @Test
+    void deleteCustomerInvalidates() {
+        Customer customer = new Customer(1L, "Name", "email@mail.com", 30, 0L);
+        when(delegate.selectCustomerById(1L))
+                .thenReturn(Optional.of(customer), Optional.empty());
+        underTest.selectCustomerById(1L);
+
+        underTest.deleteCustomer(1L);
+
+        assertThat(underTest.selectCustomerById(1L)).isEmpty();
+    }
+
+    @Test
+    void bindToRegistersCacheStatistics() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        when(delegate.selectCustomerById(1L))
+                .thenReturn(Optional.of(new Customer(1L, "Name", "email@mail.com", 30, 0L)));
+
+        underTest.bindTo(registry);
+        underTest.selectCustomerById(1L);
+        underTest.selectCustomerById(1L);
+
+        assertThat(registry.get("cache.gets").tag("result", "hit").functionCounter().count())
+                .isEqualTo(1);
+        assertThat(registry.get("cache.gets").tag("result", "miss").functionCounter().count())
+                .isEqualTo(1);
+        assertThat(registry.find("cache.evictions").functionCounter()).isNotNull();
+    }
+}
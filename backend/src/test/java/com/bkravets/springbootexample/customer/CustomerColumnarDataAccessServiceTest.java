@@ -0,0 +1,139 @@
+package com.bkravets.springbootexample.customer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerColumnarDataAccessServiceTest {
+
+    private CustomerColumnarDataAccessService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerColumnarDataAccessService();
+    }
+
+    @Test
+    void insertAndSelectCustomerById() {
+        Long id = underTest.insertCustomerIfEmailAbsent(new Customer("Zoë", "zoe@mail.com", 30)).orElseThrow();
+
+        assertThat(underTest.selectCustomerById(id))
+                .contains(new Customer(id, "Zoë", "zoe@mail.com", 30, 0L));
+        assertThat(underTest.selectCustomerById(id + 1)).isEmpty();
+    }
+
+    @Test
+    void insertCustomerIfEmailAbsentReturnsEmptyWhenEmailTaken() {
+        underTest.insertCustomer(new Customer("A", "a@mail.com", 20));
+
+        assertThat(underTest.insertCustomerIfEmailAbsent(new Customer("B", "a@mail.com", 21))).isEmpty();
+        assertThatThrownBy(() -> underTest.insertCustomer(new Customer("B", "a@mail.com", 21)))
+                .isInstanceOf(DuplicateKeyException.class);
+    }
+
+    @Test
+    void emailIndexSurvivesGrowth() {
+        IntStream.range(0, 10_000).forEach(i ->
+                underTest.insertCustomer(new Customer("N" + i, "user" + i + "@mail.com", 20)));
+
+        assertThat(IntStream.range(0, 10_000))
+                .allMatch(i -> underTest.existsCustomerWithEmail("user" + i + "@mail.com"));
+        assertThat(underTest.existsCustomerWithEmail("user10000@mail.com")).isFalse();
+        assertThat(underTest.selectAllCustomers()).hasSize(10_000);
+    }
+
+    @Test
+    void selectCustomersAfterSkipsDeletedRows() {
+        IntStream.rangeClosed(1, 5).forEach(i ->
+                underTest.insertCustomer(new Customer("N", "user" + i + "@mail.com", 20)));
+        underTest.deleteCustomer(3L);
+
+        List<Customer> actual = underTest.selectCustomersAfter(1L, 3);
+
+        assertThat(actual).extracting(Customer::getId).containsExactly(2L, 4L, 5L);
+    }
+
+    @Test
+    void selectCustomersMatchingSkipsDeletedRows() {
+        IntStream.rangeClosed(1, 5).forEach(i ->
+                underTest.insertCustomer(new Customer("N" + i, "user" + i + "@mail.com", 20 + i)));
+        underTest.deleteCustomer(4L);
+        CustomerSearchCriteria criteria = new CustomerSearchCriteria(22, null, null, null, "n", null);
+
+        List<Customer> actual = underTest.selectCustomersMatching(criteria, 0L, 2);
+
+        assertThat(actual).extracting(Customer::getId).containsExactly(2L, 3L);
+        assertThat(underTest.selectCustomersMatching(criteria, 3L, 2))
+                .extracting(Customer::getId).containsExactly(5L);
+    }
+
+    @Test
+    void streamAllCustomers() {
+        underTest.insertCustomer(new Customer("A", "a@mail.com", 20));
+        underTest.insertCustomer(new Customer("B", "b@mail.com", 21));
+        underTest.deleteCustomer(1L);
+
+        try (Stream<Customer> customers = underTest.streamAllCustomers()) {
+            assertThat(customers).extracting(Customer::getEmail).containsExactly("b@mail.com");
+        }
+    }
+
+    @Test
+    void deleteCustomerReleasesEmail() {
+        underTest.insertCustomer(new Customer("A", "a@mail.com", 20));
+
+        assertThat(underTest.deleteCustomer(1L))
+                .hasValueSatisfying(c -> assertThat(c.getEmail()).isEqualTo("a@mail.com"));
+        assertThat(underTest.existsCustomerWithId(1L)).isFalse();
+        assertThat(underTest.deleteCustomer(1L)).isEmpty();
+        assertThat(underTest.insertCustomerIfEmailAbsent(new Customer("A", "a@mail.com", 20))).contains(2L);
+    }
+
+    @Test
+    void updateCustomerChangesOnlyGivenColumns() {
+        underTest.insertCustomer(new Customer("A", "a@mail.com", 20));
+
+        CustomerUpdateResult actual = underTest.updateCustomer(new Customer(1L, null, "new@mail.com", null));
+
+        assertThat(actual.status()).isEqualTo(CustomerUpdateResult.Status.UPDATED);
+        assertThat(actual.customer()).isEqualTo(new Customer(1L, "A", "new@mail.com", 20, 1L));
+        assertThat(underTest.existsCustomerWithEmail("a@mail.com")).isFalse();
+        assertThat(underTest.existsCustomerWithEmail("new@mail.com")).isTrue();
+    }
+
+    @Test
+    void updateCustomerReportsUnchangedMismatchAndNotFound() {
+        underTest.insertCustomer(new Customer("A", "a@mail.com", 20));
+
+        assertThat(underTest.updateCustomer(new Customer(1L, "A", null, 20)).status())
+                .isEqualTo(CustomerUpdateResult.Status.UNCHANGED);
+        assertThat(underTest.updateCustomer(new Customer(1L, "B", null, null, 3L)).status())
+                .isEqualTo(CustomerUpdateResult.Status.VERSION_MISMATCH);
+        assertThat(underTest.updateCustomer(new Customer(2L, "B", null, null)).status())
+                .isEqualTo(CustomerUpdateResult.Status.NOT_FOUND);
+    }
+
+    @Test
+    void updateCustomerThrowsWhenEmailTaken() {
+        underTest.insertCustomer(new Customer("A", "a@mail.com", 20));
+        underTest.insertCustomer(new Customer("B", "b@mail.com", 21));
+
+        assertThatThrownBy(() -> underTest.updateCustomer(new Customer(1L, null, "b@mail.com", null)))
+                .isInstanceOf(DuplicateKeyException.class);
+    }
+
+    @Test
+    void fingerprintMatchesOtherDaos() {
+        underTest.insertCustomer(new Customer("A", "a@mail.com", 20));
+
+        assertThat(underTest.selectCustomersFingerprint())
+                .isEqualTo(CustomerETag.fingerprint(List.of(new Customer(1L, "A", "a@mail.com", 20, 0L))));
+    }
+}
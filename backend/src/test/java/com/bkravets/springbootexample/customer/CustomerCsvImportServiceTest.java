@@ -0,0 +1,82 @@
+package com.bkravets.springbootexample.customer;
+
+import com.bkravets.springbootexample.AbstractTestContainersUnitTest;
+import com.bkravets.springbootexample.exception.RequestValidationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerCsvImportServiceTest extends AbstractTestContainersUnitTest {
+    private CustomerCsvImportService underTest;
+    private CustomerJDBCDataAccessService customerDao;
+    private TransactionTemplate transactionTemplate;
+    private final List<Object> events = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate jdbcTemplate = getJdbcTemplate();
+        underTest = new CustomerCsvImportService(jdbcTemplate, events::add);
+        customerDao = new CustomerJDBCDataAccessService(jdbcTemplate, new CustomerRowMapper());
+        transactionTemplate = new TransactionTemplate(
+                new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+    }
+
+    @Test
+    void importCustomers() {
+        // Given
+        String takenEmail = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        String newEmail = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        String otherEmail = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        customerDao.insertCustomer(new Customer("Taken", takenEmail, 20));
+
+        String csv = """
+                name,email,age
+                New,%s,30
+                "Other, Jr.",%s, 31
+                Taken,%s,40
+                Duplicate,%s,50
+                NoAge,%s,
+                BadAge,%s,abc
+                """.formatted(newEmail, otherEmail, takenEmail, newEmail,
+                UUID.randomUUID(), UUID.randomUUID());
+
+        // When
+        CustomerImportResult actual = transactionTemplate.execute(status -> underTest.importCustomers(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8))));
+
+        // Then
+        assertThat(actual).isEqualTo(new CustomerImportResult(2, 4));
+        assertThat(customerDao.existsCustomerWithEmail(newEmail)).isTrue();
+        assertThat(customerDao.existsCustomerWithEmail(otherEmail)).isTrue();
+        assertThat(events).singleElement()
+                .isInstanceOfSatisfying(CustomersImportedEvent.class, event ->
+                        assertThat(customerDao.selectCustomersByIds(event.ids()))
+                                .extracting(Customer::getEmail)
+                                .containsExactlyInAnyOrder(newEmail, otherEmail));
+    }
+
+    @Test
+    void importCustomersRejectsMalformedCsv() {
+        // Given
+        String csv = """
+                name,email,age
+                too,many,columns,here
+                """;
+
+        // When / Then
+        assertThatThrownBy(() -> transactionTemplate.execute(status -> underTest.importCustomers(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)))))
+                .isInstanceOf(RequestValidationException.class);
+    }
+}
@@ -0,0 +1,30 @@
+package com.bkravets.springbootexample.customer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class CustomerDaoConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(CustomerDaoConfig.class)
+            .withBean("jdbc", CustomerDao.class, () -> mock(CustomerDao.class))
+            .withBean("cache", CustomerDao.class, () -> mock(CustomerDao.class));
+
+    @Test
+    void selectedDaoIsPrimaryWithoutSecondBean() {
+        contextRunner.withPropertyValues("customer.dao=cache").run(context -> {
+            assertThat(context.getBean(CustomerDao.class)).isSameAs(context.getBean("cache"));
+            assertThat(context.getBean(CustomerDaoConfig.PRIMARY_NAME)).isSameAs(context.getBean("cache"));
+            assertThat(context.getBeansOfType(CustomerDao.class)).containsOnlyKeys("jdbc", "cache");
+        });
+    }
+
+    @Test
+    void unknownDaoFailsStartup() {
+        contextRunner.withPropertyValues("customer.dao=missing")
+                .run(context -> assertThat(context).hasFailed());
+    }
+}
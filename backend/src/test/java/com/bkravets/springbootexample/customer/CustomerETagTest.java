@@ -0,0 +1,71 @@
+package com.bkravets.springbootexample.customer;
+
+import com.bkravets.springbootexample.exception.PreconditionFailedException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerETagTest {
+
+    @Test
+    void of() {
+        assertThat(CustomerETag.of(7L)).isEqualTo("\"7\"");
+    }
+
+    @Test
+    void fingerprintIgnoresOrderAndTracksVersions() {
+        Customer a = new Customer(1L, "A", "a@mail.com", 20, 0L);
+        Customer b = new Customer(2L, "B", "b@mail.com", 21, 0L);
+        Customer bUpdated = new Customer(2L, "B", "b@mail.com", 21, 1L);
+
+        assertThat(CustomerETag.fingerprint(List.of(a, b)))
+                .isEqualTo(CustomerETag.fingerprint(List.of(b, a)))
+                .isNotEqualTo(CustomerETag.fingerprint(List.of(a, bUpdated)));
+        assertThat(CustomerETag.fingerprint(List.of()))
+                .isEqualTo("d41d8cd98f00b204e9800998ecf8427e");
+    }
+
+    @Test
+    void matchesIfNoneMatch() {
+        assertThat(CustomerETag.matchesIfNoneMatch("\"7\"", "\"7\"")).isTrue();
+        assertThat(CustomerETag.matchesIfNoneMatch("\"6\", W/\"7\"", "\"7\"")).isTrue();
+        assertThat(CustomerETag.matchesIfNoneMatch("*", "\"7\"")).isTrue();
+        assertThat(CustomerETag.matchesIfNoneMatch("\"6\"", "\"7\"")).isFalse();
+        assertThat(CustomerETag.matchesIfNoneMatch(null, "\"7\"")).isFalse();
+    }
+
+    @Test
+    void parseIfMatch() {
+        assertThat(CustomerETag.parseIfMatch("\"7\"")).containsExactly(7L);
+    }
+
+    @Test
+    void parseIfMatchAcceptsEveryListedTag() {
+        assertThat(CustomerETag.parseIfMatch("\"3\", \"4\"")).containsExactly(3L, 4L);
+        assertThat(CustomerETag.parseIfMatch("W/\"3\",\"4\" , \"abc\", \"4\"")).containsExactly(4L);
+    }
+
+    @Test
+    void parseIfMatchReturnsNothingWhenAbsentOrWildcard() {
+        assertThat(CustomerETag.parseIfMatch(null)).isEmpty();
+        assertThat(CustomerETag.parseIfMatch("*")).isEmpty();
+    }
+
+    @Test
+    void parseIfMatchRejectsWeakAndForeignTags() {
+        assertThatThrownBy(() -> CustomerETag.parseIfMatch("W/\"7\""))
+                .isInstanceOf(PreconditionFailedException.class);
+        assertThatThrownBy(() -> CustomerETag.parseIfMatch("\"abc\", W/\"7\""))
+                .isInstanceOf(PreconditionFailedException.class);
+    }
+
+    @Test
+    void requireAnyOf() {
+        assertThat(CustomerETag.requireAnyOf(List.of(3L, 4L), 4L)).isEqualTo(4L);
+        assertThatThrownBy(() -> CustomerETag.requireAnyOf(List.of(3L, 4L), 5L))
+                .isInstanceOf(PreconditionFailedException.class);
+    }
+}
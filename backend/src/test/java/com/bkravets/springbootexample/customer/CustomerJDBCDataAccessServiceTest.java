@@ -1,14 +1,19 @@
 package com.bkravets.springbootexample.customer;
 
 import com.bkravets.springbootexample.AbstractTestContainersUnitTest;
+import com.zaxxer.hikari.HikariDataSource;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class CustomerJDBCDataAccessServiceTest extends AbstractTestContainersUnitTest {
     private CustomerJDBCDataAccessService underTest;
@@ -38,6 +43,103 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestContainersUnitTest {
         assertThat(actual).isNotEmpty();
     }
 
+    @Test
+    void selectCustomersAfter() {
+        // Given
+        for (int i = 0; i < 3; i++) {
+            underTest.insertCustomer(new Customer(
+                    FAKER.name().fullName(),
+                    FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                    20));
+        }
+        List<Long> ids = underTest.selectAllCustomers()
+                .stream()
+                .map(Customer::getId)
+                .sorted()
+                .toList();
+        long afterId = ids.get(ids.size() - 3);
+
+        // When
+        List<Customer> actual = underTest.selectCustomersAfter(afterId, 2);
+
+        // Then
+        assertThat(actual)
+                .extracting(Customer::getId)
+                .containsExactly(ids.get(ids.size() - 2), ids.get(ids.size() - 1));
+    }
+
+    @Test
+    void selectCustomersMatching() {
+        // Given
+        String domain = UUID.randomUUID() + ".com";
+        underTest.insertCustomer(new Customer("Alexandra " + domain, "alexandra@" + domain, 30));
+        underTest.insertCustomer(new Customer("Sasha Alexeev " + domain, "sasha@" + domain.toUpperCase(), 40));
+        underTest.insertCustomer(new Customer("Alex " + domain, "alex@" + domain, 18));
+        underTest.insertCustomer(new Customer("Jamila " + domain, "jamila@" + domain, 30));
+        CustomerSearchCriteria criteria = new CustomerSearchCriteria(25, 40, null, domain, null, "ALEX");
+
+        // When
+        List<Customer> actual = underTest.selectCustomersMatching(criteria, 0L, 10);
+
+        // Then
+        assertThat(actual)
+                .extracting(Customer::getName)
+                .containsExactly("Alexandra " + domain, "Sasha Alexeev " + domain);
+    }
+
+    @Test
+    void selectCustomersMatchingTreatsWildcardsLiterally() {
+        // Given
+        String suffix = UUID.randomUUID().toString();
+        underTest.insertCustomer(new Customer("100% " + suffix, "percent-" + suffix + "@mail.com", 20));
+        underTest.insertCustomer(new Customer("1000 " + suffix, "digits-" + suffix + "@mail.com", 20));
+        CustomerSearchCriteria criteria = new CustomerSearchCriteria(null, null, null, null, "100%", suffix);
+
+        // When
+        List<Customer> actual = underTest.selectCustomersMatching(criteria, 0L, 10);
+
+        // Then
+        assertThat(actual).extracting(Customer::getName).containsExactly("100% " + suffix);
+    }
+
+    @Test
+    void streamAllCustomers() {
+        // Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(
+                FAKER.name().fullName(),
+                email,
+                20));
+
+        // When
+        List<Customer> actual;
+        try (Stream<Customer> customers = underTest.streamAllCustomers()) {
+            actual = customers.toList();
+        }
+
+        // Then
+        assertThat(actual).extracting(Customer::getEmail).contains(email);
+    }
+
+    @Test
+    void streamAllEmails() {
+        // Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(
+                FAKER.name().fullName(),
+                email,
+                20));
+
+        // When
+        List<String> actual;
+        try (Stream<String> emails = underTest.streamAllEmails()) {
+            actual = emails.toList();
+        }
+
+        // Then
+        assertThat(actual).contains(email);
+    }
+
     @Test
     void selectCustomerById() {
         // Given
@@ -68,6 +170,52 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestContainersUnitTest {
         });
     }
 
+    @Test
+    void selectCustomerByIdReturnsItsConnection() {
+        // Given
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(postgreSQLContainer.getJdbcUrl());
+        dataSource.setUsername(postgreSQLContainer.getUsername());
+        dataSource.setPassword(postgreSQLContainer.getPassword());
+        dataSource.setMaximumPoolSize(1);
+        dataSource.setConnectionTimeout(250);
+
+        try (dataSource) {
+            CustomerJDBCDataAccessService onePool =
+                    new CustomerJDBCDataAccessService(new JdbcTemplate(dataSource), customerRowMapper);
+
+            // When
+            // a stream left open would keep the only connection, and the second call would time out
+            for (int i = 0; i < 3; i++) {
+                onePool.selectCustomerById(-1L);
+            }
+
+            // Then
+            assertThat(dataSource.getHikariPoolMXBean().getActiveConnections()).isZero();
+        }
+    }
+
+    @Test
+    void selectCustomersByIds() {
+        // Given
+        List<Long> ids = Stream.of(20, 30)
+                .map(age -> underTest.insertCustomerIfEmailAbsent(new Customer(
+                                FAKER.name().fullName(),
+                                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                                age))
+                        .orElseThrow())
+                .toList();
+
+        // When
+        List<Customer> actual = underTest.selectCustomersByIds(List.of(ids.get(0), ids.get(1), 0L));
+
+        // Then
+        assertThat(actual)
+                .extracting(Customer::getId)
+                .containsExactlyInAnyOrderElementsOf(ids);
+        assertThat(underTest.selectCustomersByIds(List.of())).isEmpty();
+    }
+
     @Test
     void willReturnEmptyWhenSelectCustomerById() {
         // Given
@@ -80,6 +228,105 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestContainersUnitTest {
         assertThat(actual).isEmpty();
     }
 
+    @Test
+    void selectCustomerVersion() {
+        // Given
+        Long id = underTest.insertCustomerIfEmailAbsent(new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                20)).orElseThrow();
+
+        // When
+        Optional<Long> actual = underTest.selectCustomerVersion(id);
+
+        // Then
+        assertThat(actual).contains(0L);
+        assertThat(underTest.selectCustomerVersion(0L)).isEmpty();
+    }
+
+    @Test
+    void selectCustomersFingerprintMatchesInMemoryFingerprint() {
+        // Given
+        Long id = underTest.insertCustomerIfEmailAbsent(new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                20)).orElseThrow();
+        String before = underTest.selectCustomersFingerprint();
+
+        // When
+        underTest.updateCustomer(new Customer(id, "Changed " + UUID.randomUUID(), null, null));
+        String actual = underTest.selectCustomersFingerprint();
+
+        // Then
+        assertThat(actual)
+                .isNotEqualTo(before)
+                .isEqualTo(CustomerETag.fingerprint(underTest.selectAllCustomers()));
+    }
+
+    @Test
+    void insertCustomerIfEmailAbsent() {
+        // Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Customer customer = new Customer(FAKER.name().fullName(), email, 20);
+
+        // When
+        Optional<Long> actual = underTest.insertCustomerIfEmailAbsent(customer);
+
+        // Then
+        assertThat(actual).isPresent();
+        assertThat(underTest.selectCustomerById(actual.get()))
+                .hasValueSatisfying(c -> assertThat(c.getEmail()).isEqualTo(email));
+    }
+
+    @Test
+    void insertCustomerIfEmailAbsentReturnsEmptyWhenEmailTaken() {
+        // Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), email, 20));
+
+        // When
+        Optional<Long> actual = underTest.insertCustomerIfEmailAbsent(
+                new Customer(FAKER.name().fullName(), email, 30));
+
+        // Then
+        assertThat(actual).isEmpty();
+    }
+
+    @Test
+    void insertCustomersSkipsTakenEmails() {
+        // Given
+        String takenEmail = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        String freeEmail = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), takenEmail, 20));
+
+        // When
+        long[] actual = underTest.insertCustomers(List.of(
+                new Customer(FAKER.name().fullName(), takenEmail, 30),
+                new Customer(FAKER.name().fullName(), freeEmail, 31),
+                new Customer(FAKER.name().fullName(), freeEmail, 32)));
+
+        // Then
+        assertThat(actual[0]).isZero();
+        assertThat(actual[2]).isZero();
+        assertThat(underTest.selectCustomerById(actual[1]))
+                .map(Customer::getAge)
+                .contains(31);
+    }
+
+    @Test
+    void selectExistingEmails() {
+        // Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        String missingEmail = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), email, 20));
+
+        // When
+        var actual = underTest.selectExistingEmails(List.of(email, missingEmail));
+
+        // Then
+        assertThat(actual).containsExactly(email);
+    }
+
     @Test
     void existsCustomerWithEmail() {
         // Given
@@ -167,13 +414,23 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestContainersUnitTest {
                 .orElseThrow();
 
         // When
-        underTest.deleteCustomer(id);
+        Optional<Customer> deleted = underTest.deleteCustomer(id);
 
         // Then
+        assertThat(deleted).hasValueSatisfying(c -> assertThat(c.getEmail()).isEqualTo(email));
         Optional<Customer> actual = underTest.selectCustomerById(id);
         assertThat(actual).isNotPresent();
     }
 
+    @Test
+    void deleteCustomerReturnsEmptyWhenIdNotPresent() {
+        // When
+        Optional<Customer> actual = underTest.deleteCustomer(-1L);
+
+        // Then
+        assertThat(actual).isEmpty();
+    }
+
     @Test
     void updateCustomerName() {
         // Given
@@ -362,5 +619,111 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestContainersUnitTest {
         });
     }
 
+    @Test
+    void updateCustomerReturnsUpdatedRow() {
+        // Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        long id = underTest.insertCustomerIfEmailAbsent(
+                new Customer(FAKER.name().fullName(), email, 20)).orElseThrow();
+
+        Customer update = new Customer();
+        update.setId(id);
+        update.setAge(42);
+
+        // When
+        CustomerUpdateResult actual = underTest.updateCustomer(update);
+
+        // Then
+        assertThat(actual.status()).isEqualTo(CustomerUpdateResult.Status.UPDATED);
+        assertThat(actual.customer().getId()).isEqualTo(id);
+        assertThat(actual.customer().getAge()).isEqualTo(42);
+        assertThat(actual.customer().getEmail()).isEqualTo(email);        assertThat(actual.previous().getAge()).isEqualTo(20);
+        assertThat(actual.previous().getVersion()).isEqualTo(actual.customer().getVersion() - 1);
+    }
+
+    @Test
+    void updateCustomerReturnsUnchangedWhenValuesAreTheSame() {
+        // Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        long id = underTest.insertCustomerIfEmailAbsent(
+                new Customer(FAKER.name().fullName(), email, 20)).orElseThrow();
 
-}
\ No newline at end of file
+        Customer update = new Customer();
+        update.setId(id);
+        update.setEmail(email);
+        update.setAge(20);
+
+        // When
+        CustomerUpdateResult actual = underTest.updateCustomer(update);
+
+        // Then
+        assertThat(actual.status()).isEqualTo(CustomerUpdateResult.Status.UNCHANGED);
+    }
+
+    @Test
+    void updateCustomerReturnsNotFoundWhenIdNotPresent() {
+        // Given
+        Customer update = new Customer();
+        update.setId(-1L);
+        update.setName("foo");
+
+        // When
+        CustomerUpdateResult actual = underTest.updateCustomer(update);
+
+        // Then
+        assertThat(actual.status()).isEqualTo(CustomerUpdateResult.Status.NOT_FOUND);
+    }
+
+    @Test
+    void updateCustomerThrowsWhenEmailTaken() {
+        // Given
+        String takenEmail = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), takenEmail, 20));
+        long id = underTest.insertCustomerIfEmailAbsent(new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                20)).orElseThrow();
+
+        Customer update = new Customer();
+        update.setId(id);
+        update.setEmail(takenEmail);
+
+        // When / Then
+        assertThatThrownBy(() -> underTest.updateCustomer(update))
+                .isInstanceOf(DuplicateKeyException.class);
+    }
+
+    @Test
+    void updateCustomerIncrementsVersion() {
+        // Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        long id = underTest.insertCustomerIfEmailAbsent(
+                new Customer(FAKER.name().fullName(), email, 20)).orElseThrow();
+
+        // When
+        CustomerUpdateResult actual = underTest.updateCustomer(new Customer(id, "foo", null, null, 0L));
+
+        // Then
+        assertThat(actual.status()).isEqualTo(CustomerUpdateResult.Status.UPDATED);
+        assertThat(actual.customer().getVersion()).isEqualTo(1L);
+        assertThat(underTest.selectCustomerById(id))
+                .hasValueSatisfying(c -> assertThat(c.getVersion()).isEqualTo(1L));
+    }
+
+    @Test
+    void updateCustomerReturnsVersionMismatchWhenVersionIsStale() {
+        // Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        long id = underTest.insertCustomerIfEmailAbsent(
+                new Customer(FAKER.name().fullName(), email, 20)).orElseThrow();
+        underTest.updateCustomer(new Customer(id, "foo", null, null, 0L));
+
+        // When
+        CustomerUpdateResult actual = underTest.updateCustomer(new Customer(id, "bar", null, null, 0L));
+
+        // Then
+        assertThat(actual.status()).isEqualTo(CustomerUpdateResult.Status.VERSION_MISMATCH);
+        assertThat(underTest.selectCustomerById(id))
+                .hasValueSatisfying(c -> assertThat(c.getName()).isEqualTo("foo"));
+    }
+}
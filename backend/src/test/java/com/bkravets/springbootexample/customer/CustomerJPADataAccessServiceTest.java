@@ -7,6 +7,10 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -39,6 +43,39 @@ class CustomerJPADataAccessServiceTest {
 
     }
 
+    @Test
+    void selectCustomersAfter() {
+        long afterId = 10L;
+        int limit = 5;
+
+        underTest.selectCustomersAfter(afterId, limit);
+
+        verify(customerRepository).findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, limit));
+    }
+
+    @Test
+    void selectCustomersMatching() {
+        int limit = 5;
+
+        underTest.selectCustomersMatching(CustomerSearchCriteria.none(), 10L, limit);
+
+        verify(customerRepository).findMatching(any(), eq(limit));
+    }
+
+    @Test
+    void streamAllCustomers() {
+        underTest.streamAllCustomers();
+
+        verify(customerRepository).streamAllBy();
+    }
+
+    @Test
+    void streamAllEmails() {
+        underTest.streamAllEmails();
+
+        verify(customerRepository).streamAllEmails();
+    }
+
     @Test
     void selectCustomerById() {
         long id = 1L;
@@ -48,6 +85,22 @@ class CustomerJPADataAccessServiceTest {
         verify(customerRepository).findById(id);
     }
 
+    @Test
+    void selectCustomerVersion() {
+        long id = 1L;
+
+        underTest.selectCustomerVersion(id);
+
+        verify(customerRepository).findVersionById(id);
+    }
+
+    @Test
+    void selectCustomersFingerprint() {
+        underTest.selectCustomersFingerprint();
+
+        verify(customerRepository).computeFingerprint();
+    }
+
     @Test
     void insertCustomer() {
         Customer customer = new Customer("Name", "email@mail.com", 35);
@@ -57,6 +110,37 @@ class CustomerJPADataAccessServiceTest {
         verify(customerRepository).save(customer);
     }
 
+    @Test
+    void insertCustomerIfEmailAbsent() {
+        Customer customer = new Customer("Name", "email@mail.com", 35);
+
+        underTest.insertCustomerIfEmailAbsent(customer);
+
+        verify(customerRepository).insertIfEmailAbsent("Name", "email@mail.com", 35);
+    }
+
+    @Test
+    void insertCustomers() {
+        List<Customer> customers = List.of(
+                new Customer("Name", "email@mail.com", 35),
+                new Customer("Other", "other@mail.com", 36));
+
+        when(customerRepository.insertAllIfEmailAbsent(customers)).thenReturn(new long[]{7L, 0L});
+
+        long[] actual = underTest.insertCustomers(customers);
+
+        assertArrayEquals(new long[]{7L, 0L}, actual);
+    }
+
+    @Test
+    void selectExistingEmails() {
+        List<String> emails = List.of("email@mail.com");
+
+        underTest.selectExistingEmails(emails);
+
+        verify(customerRepository).findExistingEmails(emails);
+    }
+
     @Test
     void existsCustomerWithId() {
         long id = 1L;
@@ -81,15 +165,57 @@ class CustomerJPADataAccessServiceTest {
 
         underTest.deleteCustomer(id);
 
-        verify(customerRepository).deleteById(id);
+        verify(customerRepository).deleteByIdReturning(id);
     }
 
     @Test
     void updateCustomer() {
-        Customer customer = new Customer(1L,"Name", "email@mail.com", 35);
+        Customer existing = new Customer(1L, "Name", "email@mail.com", 35);
+        when(customerRepository.findById(1L)).thenReturn(Optional.of(existing));
+        when(customerRepository.save(existing)).thenReturn(existing);
+
+        Customer update = new Customer();
+        update.setId(1L);
+        update.setName("New Name");
+        CustomerUpdateResult actual = underTest.updateCustomer(update);
+
+        verify(customerRepository).save(existing);
+        assertEquals(CustomerUpdateResult.Status.UPDATED, actual.status());
+        assertEquals("New Name", actual.customer().getName());
+        assertEquals("email@mail.com", actual.customer().getEmail());
+    }
 
-        underTest.updateCustomer(customer);
+    @Test
+    void updateCustomerWithoutChanges() {
+        Customer existing = new Customer(1L, "Name", "email@mail.com", 35);
+        when(customerRepository.findById(1L)).thenReturn(Optional.of(existing));
 
-        verify(customerRepository).save(customer);
+        CustomerUpdateResult actual = underTest.updateCustomer(
+                new Customer(1L, "Name", "email@mail.com", 35));
+
+        verify(customerRepository, never()).save(any());
+        assertEquals(CustomerUpdateResult.Status.UNCHANGED, actual.status());
+    }
+
+    @Test
+    void updateCustomerWithStaleVersion() {
+        Customer existing = new Customer(1L, "Name", "email@mail.com", 35, 2L);
+        when(customerRepository.findById(1L)).thenReturn(Optional.of(existing));
+
+        CustomerUpdateResult actual = underTest.updateCustomer(
+                new Customer(1L, "New Name", null, null, 1L));
+
+        verify(customerRepository, never()).save(any());
+        assertEquals(CustomerUpdateResult.Status.VERSION_MISMATCH, actual.status());
+    }
+
+    @Test
+    void updateCustomerWhenNotFound() {
+        when(customerRepository.findById(1L)).thenReturn(Optional.empty());
+
+        CustomerUpdateResult actual = underTest.updateCustomer(
+                new Customer(1L, "Name", "email@mail.com", 35));
+
+        assertEquals(CustomerUpdateResult.Status.NOT_FOUND, actual.status());
     }
 }
\ No newline at end of file
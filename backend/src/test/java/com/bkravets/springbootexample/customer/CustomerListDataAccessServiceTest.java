@@ -0,0 +1,142 @@
+package com.bkravets.springbootexample.customer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerListDataAccessServiceTest {
+
+    private CustomerListDataAccessService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerListDataAccessService();
+    }
+
+    @Test
+    void insertCustomerAssignsIds() {
+        Long first = underTest.insertCustomerIfEmailAbsent(new Customer("A", "a@mail.com", 20)).orElseThrow();
+        Long second = underTest.insertCustomerIfEmailAbsent(new Customer("B", "b@mail.com", 21)).orElseThrow();
+
+        assertThat(second).isGreaterThan(first);
+        assertThat(underTest.selectCustomerById(second))
+                .contains(new Customer(second, "B", "b@mail.com", 21, 0L));
+    }
+
+    @Test
+    void insertCustomerThrowsWhenEmailTaken() {
+        assertThatThrownBy(() -> underTest.insertCustomer(new Customer("A", "alex@gmail.com", 20)))
+                .isInstanceOf(DuplicateKeyException.class);
+    }
+
+    @Test
+    void selectCustomersAfterIsOrderedById() {
+        underTest.insertCustomer(new Customer("A", "a@mail.com", 20));
+
+        List<Customer> actual = underTest.selectCustomersAfter(1L, 2);
+
+        assertThat(actual).extracting(Customer::getId).containsExactly(2L, 3L);
+    }
+
+    @Test
+    void selectCustomersMatchingFiltersCaseInsensitively() {
+        underTest.insertCustomer(new Customer("Alexandra", "alexandra@Mail.com", 30));
+        underTest.insertCustomer(new Customer("Sasha Alexeev", "sasha@mail.com", 40));
+        CustomerSearchCriteria criteria = new CustomerSearchCriteria(25, null, null, "mail.com", null, "ALEX");
+
+        List<Customer> actual = underTest.selectCustomersMatching(criteria, 0L, 10);
+
+        assertThat(actual).extracting(Customer::getName).containsExactly("Alexandra", "Sasha Alexeev");
+        assertThat(underTest.selectCustomersMatching(criteria, actual.get(0).getId(), 10))
+                .extracting(Customer::getName).containsExactly("Sasha Alexeev");
+    }
+
+    @Test
+    void returnedCustomersAreCopies() {
+        underTest.selectCustomerById(1L).orElseThrow().setEmail("changed@mail.com");
+
+        assertThat(underTest.selectCustomerById(1L))
+                .hasValueSatisfying(c -> assertThat(c.getEmail()).isEqualTo("alex@gmail.com"));
+    }
+
+    @Test
+    void updateCustomerReplacesRowAndMovesEmail() {
+        CustomerUpdateResult actual = underTest.updateCustomer(new Customer(1L, null, "new@mail.com", null));
+
+        assertThat(actual.status()).isEqualTo(CustomerUpdateResult.Status.UPDATED);
+        assertThat(underTest.selectAllCustomers()).hasSize(2);
+        assertThat(underTest.selectCustomerById(1L))
+                .contains(new Customer(1L, "Alex", "new@mail.com", 21, 1L));
+        assertThat(underTest.existsCustomerWithEmail("alex@gmail.com")).isFalse();
+        assertThat(underTest.existsCustomerWithEmail("new@mail.com")).isTrue();
+    }
+
+    @Test
+    void updateCustomerThrowsWhenEmailTaken() {
+        assertThatThrownBy(() -> underTest.updateCustomer(new Customer(1L, null, "jamila@gmail.com", null)))
+                .isInstanceOf(DuplicateKeyException.class);
+
+        assertThat(underTest.selectCustomerById(1L))
+                .hasValueSatisfying(c -> assertThat(c.getEmail()).isEqualTo("alex@gmail.com"));
+    }
+
+    @Test
+    void updateCustomerReturnsVersionMismatchWhenVersionIsStale() {
+        Customer stale = new Customer(1L, "Changed", null, null, 5L);
+
+        CustomerUpdateResult actual = underTest.updateCustomer(stale);
+
+        assertThat(actual.status()).isEqualTo(CustomerUpdateResult.Status.VERSION_MISMATCH);
+    }
+
+    @Test
+    void deleteCustomerReleasesEmail() {
+        Optional<Customer> actual = underTest.deleteCustomer(1L);
+
+        assertThat(actual).hasValueSatisfying(c -> assertThat(c.getEmail()).isEqualTo("alex@gmail.com"));
+        assertThat(underTest.existsCustomerWithId(1L)).isFalse();
+        assertThat(underTest.insertCustomerIfEmailAbsent(new Customer("A", "alex@gmail.com", 20))).isPresent();
+    }
+
+    @Test
+    void concurrentWritersKeepIndexesConsistent() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Optional<Long>>> inserts = IntStream.range(0, 1_000)
+                    .mapToObj(i -> executor.submit(() -> underTest.insertCustomerIfEmailAbsent(
+                            new Customer("N", "user" + (i % 100) + "@mail.com", 20))))
+                    .toList();
+            long inserted = 0;
+            for (Future<Optional<Long>> insert : inserts) {
+                inserted += insert.get().isPresent() ? 1 : 0;
+            }
+
+            List<Future<CustomerUpdateResult>> updates = IntStream.range(0, 1_000)
+                    .mapToObj(i -> executor.submit(() -> underTest.updateCustomer(
+                            new Customer(1L, null, null, 100 + i))))
+                    .toList();
+            for (Future<CustomerUpdateResult> update : updates) {
+                update.get();
+            }
+
+            assertThat(inserted).isEqualTo(100);
+            assertThat(underTest.selectAllCustomers()).hasSize(102);
+            assertThat(underTest.selectCustomerById(1L))
+                    .hasValueSatisfying(c -> assertThat(c.getVersion()).isEqualTo(1_000L));
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+}
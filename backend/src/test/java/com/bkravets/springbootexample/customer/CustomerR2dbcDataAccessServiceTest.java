@@ -0,0 +1,170 @@
+package com.bkravets.springbootexample.customer;
+
+import com.bkravets.springbootexample.AbstractTestContainersUnitTest;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerR2dbcDataAccessServiceTest extends AbstractTestContainersUnitTest {
+    private CustomerR2dbcDataAccessService underTest;
+
+    @BeforeEach
+    void setUp() {
+        String url = "r2dbc:" + postgreSQLContainer.getJdbcUrl().substring("jdbc:".length());
+        underTest = new CustomerR2dbcDataAccessService(ConnectionFactories.get(
+                ConnectionFactoryOptions.parse(url)
+                        .mutate()
+                        .option(ConnectionFactoryOptions.USER, postgreSQLContainer.getUsername())
+                        .option(ConnectionFactoryOptions.PASSWORD, postgreSQLContainer.getPassword())
+                        .build()));
+    }
+
+    @Test
+    void insertCustomerIfEmailAbsentThenSelectById() {
+        // Given
+        String email = randomEmail();
+        Long id = underTest.insertCustomerIfEmailAbsent(new Customer("Name", email, 20)).block();
+
+        // When
+        // Then
+        StepVerifier.create(underTest.selectCustomerById(id))
+                .expectNext(new Customer(id, "Name", email, 20, 0L))
+                .verifyComplete();
+    }
+
+    @Test
+    void insertCustomerIfEmailAbsentIsEmptyWhenEmailTaken() {
+        // Given
+        String email = randomEmail();
+        underTest.insertCustomerIfEmailAbsent(new Customer("Name", email, 20)).block();
+
+        // When
+        // Then
+        StepVerifier.create(underTest.insertCustomerIfEmailAbsent(new Customer("Other", email, 30)))
+                .verifyComplete();
+    }
+
+    @Test
+    void selectCustomersAfterStreamsInIdOrder() {
+        // Given
+        for (int i = 0; i < 3; i++) {
+            underTest.insertCustomerIfEmailAbsent(new Customer("Name", randomEmail(), 20)).block();
+        }
+        List<Long> ids = underTest.selectAllCustomers()
+                .map(Customer::getId)
+                .sort()
+                .collectList()
+                .block();
+        long afterId = ids.get(ids.size() - 3);
+
+        // When
+        // Then
+        StepVerifier.create(underTest.selectCustomersAfter(afterId, 2).map(Customer::getId))
+                .expectNext(ids.get(ids.size() - 2), ids.get(ids.size() - 1))
+                .verifyComplete();
+    }
+
+    @Test
+    void selectAllCustomersHonoursDemand() {
+        // Given
+        for (int i = 0; i < 5; i++) {
+            underTest.insertCustomerIfEmailAbsent(new Customer("Name", randomEmail(), 20)).block();
+        }
+
+        // When
+        // Then
+        StepVerifier.create(underTest.selectAllCustomers(), 2)
+                .expectNextCount(2)
+                .thenRequest(3)
+                .expectNextCount(3)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void selectCustomerVersionAndFingerprint() {
+        // Given
+        Long id = underTest.insertCustomerIfEmailAbsent(new Customer("Name", randomEmail(), 20)).block();
+
+        // When
+        Long version = underTest.selectCustomerVersion(id).block();
+        String fingerprint = underTest.selectCustomersFingerprint().block();
+
+        // Then
+        assertThat(version).isZero();
+        assertThat(fingerprint).isEqualTo(CustomerETag.fingerprint(underTest.selectAllCustomers().collectList().block()));
+    }
+
+    @Test
+    void deleteCustomerReturnsDeletedRow() {
+        // Given
+        String email = randomEmail();
+        Long id = underTest.insertCustomerIfEmailAbsent(new Customer("Name", email, 20)).block();
+
+        // When
+        // Then
+        StepVerifier.create(underTest.deleteCustomer(id))
+                .expectNext(new Customer(id, "Name", email, 20, 0L))
+                .verifyComplete();
+        StepVerifier.create(underTest.deleteCustomer(id)).verifyComplete();
+    }
+
+    @Test
+    void updateCustomerBumpsVersion() {
+        // Given
+        String email = randomEmail();
+        Long id = underTest.insertCustomerIfEmailAbsent(new Customer("Name", email, 20)).block();
+
+        // When
+        CustomerUpdateResult actual = underTest.updateCustomer(new Customer(id, "New", null, null, 0L)).block();
+
+        // Then
+        assertThat(actual).isEqualTo(CustomerUpdateResult.updated(
+                new Customer(id, "New", email, 20, 1L),
+                new Customer(id, "Name", email, 20, 0L)));
+    }
+
+    @Test
+    void updateCustomerTellsOutcomesApart() {
+        // Given
+        Long id = underTest.insertCustomerIfEmailAbsent(new Customer("Name", randomEmail(), 20)).block();
+
+        // When
+        // Then
+        StepVerifier.create(underTest.updateCustomer(new Customer(id, "Name", null, null)))
+                .expectNext(CustomerUpdateResult.unchanged())
+                .verifyComplete();
+        StepVerifier.create(underTest.updateCustomer(new Customer(id, "New", null, null, 7L)))
+                .expectNext(CustomerUpdateResult.versionMismatch())
+                .verifyComplete();
+        StepVerifier.create(underTest.updateCustomer(new Customer(-1L, "New", null, null)))
+                .expectNext(CustomerUpdateResult.notFound())
+                .verifyComplete();
+    }
+
+    @Test
+    void updateCustomerFailsOnTakenEmail() {
+        // Given
+        String taken = randomEmail();
+        underTest.insertCustomerIfEmailAbsent(new Customer("Name", taken, 20)).block();
+        Long id = underTest.insertCustomerIfEmailAbsent(new Customer("Name", randomEmail(), 20)).block();
+
+        // When
+        // Then
+        StepVerifier.create(underTest.updateCustomer(new Customer(id, null, taken, null)))
+                .expectError(DataIntegrityViolationException.class)
+                .verify();
+    }
+
+    private static String randomEmail() {
+        return FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+    }
+}
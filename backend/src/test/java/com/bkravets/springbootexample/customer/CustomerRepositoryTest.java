@@ -0,0 +1,45 @@
+package com.bkravets.springbootexample.customer;
+
+import com.bkravets.springbootexample.AbstractTestContainersUnitTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class CustomerRepositoryTest extends AbstractTestContainersUnitTest {
+
+    // only the JPA slice; the application's beans need the whole DAO chain
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    static class JpaSlice {
+    }
+
+    @Autowired
+    private CustomerRepository underTest;
+
+    @Test
+    void insertAllIfEmailAbsentSkipsTakenEmails() {
+        // Given
+        String taken = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        String free = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertIfEmailAbsent(FAKER.name().fullName(), taken, 20);
+
+        // When
+        long[] actual = underTest.insertAllIfEmailAbsent(List.of(
+                new Customer(FAKER.name().fullName(), free, 30),
+                new Customer(FAKER.name().fullName(), taken, 40)));
+
+        // Then
+        assertThat(actual[1]).isZero();
+        assertThat(underTest.findById(actual[0])).map(Customer::getEmail).contains(free);
+    }
+}
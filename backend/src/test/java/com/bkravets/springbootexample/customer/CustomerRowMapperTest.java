@@ -24,6 +24,7 @@ class CustomerRowMapperTest {
         Mockito.when(rs.getString("name")).thenReturn("John");
         Mockito.when(rs.getString("email")).thenReturn("XXXXXXXXXXXXXX");
         Mockito.when(rs.getInt("age")).thenReturn(25);
+        Mockito.when(rs.getLong("version")).thenReturn(3L);
 
         CustomerRowMapper customerRowMapper = new CustomerRowMapper();
         Customer customer = customerRowMapper.mapRow(rs, 1);
@@ -34,5 +35,6 @@ class CustomerRowMapperTest {
         assertEquals("John", customer.getName());
         assertEquals("XXXXXXXXXXXXXX", customer.getEmail());
         assertEquals(25, customer.getAge());
+        assertEquals(3L, customer.getVersion());
     }
 }
\ No newline at end of file
@@ -0,0 +1,155 @@
+package com.bkravets.springbootexample.customer;
+
+import com.bkravets.springbootexample.AbstractTestContainersUnitTest;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the SQL Hibernate renders for {@link CustomerSpecifications}
+ * can use the search indexes, by explaining it with parameters none of the
+ * rows match.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.bkravets.springbootexample.customer.CustomerSearchPlanTest$LastStatement")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class CustomerSearchPlanTest extends AbstractTestContainersUnitTest {
+
+    // only the JPA slice; the application's beans need the whole DAO chain
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    static class JpaSlice {
+    }
+
+    public static class LastStatement implements StatementInspector {
+        private static volatile String sql;
+
+        @Override
+        public String inspect(String sql) {
+            LastStatement.sql = sql;
+            return sql;
+        }
+    }
+
+    @Autowired
+    private CustomerRepository underTest;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        // enough rows, none of them matching, for an index to beat walking the primary key;
+        // rolled back with the test, statistics included
+        jdbcTemplate.update("""
+                INSERT INTO customer (name, email, age)
+                SELECT 'Customer ' || i, 'customer' || i || '@example.com', 50 + i % 40
+                FROM generate_series(1, 20000) i
+                ON CONFLICT (email) DO NOTHING
+                """);
+        // a long pending list makes the trigram index look dearer than it is on a settled table
+        jdbcTemplate.queryForObject("SELECT gin_clean_pending_list('customer_name_trgm_idx')", Long.class);
+        jdbcTemplate.execute("ANALYZE customer");
+    }
+
+    @Test
+    void ageRangeUsesAgeIndex() {
+        // Given
+        CustomerSearchCriteria criteria = new CustomerSearchCriteria(20, 30, null, null, null, null);
+
+        // When
+        String actual = planOf(criteria, "20", "30");
+
+        // Then
+        assertThat(actual).contains("Index Scan using customer_age_idx");
+    }
+
+    @Test
+    void emailDomainUsesExpressionIndex() {
+        // Given
+        CustomerSearchCriteria criteria = new CustomerSearchCriteria(null, null, null, "Gmail.com", null, null);
+
+        // When
+        String actual = planOf(criteria, "'gmail.com'");
+
+        // Then
+        // bound separator and field would not match the expression index in a generic plan
+        assertThat(LastStatement.sql).contains("split_part(c1_0.email,'@',2)");
+        assertThat(actual).contains("Index Scan using customer_email_domain_idx");
+    }
+
+    @Test
+    void namePrefixUsesTrigramIndex() {
+        // Given
+        CustomerSearchCriteria criteria = new CustomerSearchCriteria(null, null, null, null, "Alexand", null);
+
+        // When
+        String actual = planOf(criteria, "'alexand%'");
+
+        // Then
+        assertThat(actual).contains("Bitmap Index Scan on customer_name_trgm_idx");
+    }
+
+    @Test
+    void nameContainsUsesTrigramIndex() {
+        // Given
+        CustomerSearchCriteria criteria = new CustomerSearchCriteria(null, null, null, null, null, "lexandr");
+
+        // When
+        String actual = planOf(criteria, "'%lexandr%'");
+
+        // Then
+        assertThat(actual).contains("Bitmap Index Scan on customer_name_trgm_idx");
+    }
+
+    private static String[] append(String[] values, String value) {
+        String[] appended = Arrays.copyOf(values, values.length + 1);
+        appended[values.length] = value;
+        return appended;
+    }
+
+    // runs the search, then explains its SQL with the given parameters, the limit of 10 last
+    private String planOf(CustomerSearchCriteria criteria, String... parameters) {
+        underTest.findMatching(CustomerSpecifications.matching(criteria), 10);
+        StringBuilder prepared = new StringBuilder();
+        int parameter = 0;
+        for (char c : LastStatement.sql.toCharArray()) {
+            if (c == '?') {
+                prepared.append('$').append(++parameter);
+            } else {
+                prepared.append(c);
+            }
+        }
+        assertThat(parameter).isEqualTo(parameters.length + 1);
+
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET LOCAL plan_cache_mode = force_custom_plan");
+                statement.execute("PREPARE search AS " + prepared);
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet rs = statement.executeQuery(
+                        "EXPLAIN EXECUTE search(" + String.join(", ", append(parameters, "10")) + ")")) {
+                    while (rs.next()) {
+                        plan.append(rs.getString(1)).append('\n');
+                    }
+                } finally {
+                    statement.execute("DEALLOCATE search");
+                }
+                return plan.toString();
+            }
+        });
+    }
+}
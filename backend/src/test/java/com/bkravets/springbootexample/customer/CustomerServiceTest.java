@@ -1,8 +1,10 @@
 package com.bkravets.springbootexample.customer;
 
 import com.bkravets.springbootexample.exception.DuplicateResourceException;
+import com.bkravets.springbootexample.exception.PreconditionFailedException;
 import com.bkravets.springbootexample.exception.RequestValidationException;
 import com.bkravets.springbootexample.exception.ResourceNotFoundException;
+import com.bkravets.springbootexample.token.OpaqueToken;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -10,8 +12,13 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
 
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -38,6 +45,130 @@ class CustomerServiceTest {
         verify(customerDao).selectAllCustomers();
     }
 
+    @Test
+    void getCustomersPageReturnsCursorWhenMoreRowsExist() {
+        int limit = 2;
+        List<Customer> rows = List.of(
+                new Customer(1L, "A", "a@mail.com", 20),
+                new Customer(2L, "B", "b@mail.com", 21),
+                new Customer(3L, "C", "c@mail.com", 22)
+        );
+        when(customerDao.selectCustomersAfter(0L, limit + 1)).thenReturn(rows);
+
+        CustomerPage actual = underTest.getCustomersPage(null, limit);
+
+        assertThat(actual.customers()).containsExactly(rows.get(0), rows.get(1));
+        assertThat(actual.nextCursor()).isNotNull();
+
+        when(customerDao.selectCustomersAfter(2L, limit + 1)).thenReturn(List.of(rows.get(2)));
+
+        CustomerPage next = underTest.getCustomersPage(actual.nextCursor(), limit);
+
+        assertThat(next.customers()).containsExactly(rows.get(2));
+        assertThat(next.nextCursor()).isNull();
+    }
+
+    @Test
+    void getCustomersReturnsFoundCustomersInRequestedOrder() {
+        Customer first = new Customer(1L, "A", "a@mail.com", 20);
+        Customer third = new Customer(3L, "C", "c@mail.com", 22);
+        when(customerDao.selectCustomersByIds(List.of(3L, 2L, 1L))).thenReturn(List.of(first, third));
+
+        List<Customer> actual = underTest.getCustomers(List.of(3L, 2L, 1L, 3L));
+
+        assertThat(actual).containsExactly(third, first);
+    }
+
+    @Test
+    void getCustomersThrowsWhenTooManyIds() {
+        List<Long> ids = LongStream.rangeClosed(1, CustomerService.MAX_PAGE_SIZE + 1).boxed().toList();
+
+        assertThatThrownBy(() -> underTest.getCustomers(ids))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("at most %s ids can be requested at once".formatted(CustomerService.MAX_PAGE_SIZE));
+        assertThatThrownBy(() -> underTest.getCustomers(List.of()))
+                .isInstanceOf(RequestValidationException.class);
+
+        verifyNoInteractions(customerDao);
+    }
+
+    @Test
+    void getCustomersPageUsesDefaultPageSize() {
+        underTest.getCustomersPage(null, null);
+
+        verify(customerDao).selectCustomersAfter(0L, CustomerService.DEFAULT_PAGE_SIZE + 1);
+    }
+
+    @Test
+    void getCustomersPageThrowsWhenLimitOutOfRange() {
+        assertThatThrownBy(() -> underTest.getCustomersPage(null, CustomerService.MAX_PAGE_SIZE + 1))
+                .isInstanceOf(RequestValidationException.class);
+
+        verifyNoInteractions(customerDao);
+    }
+
+    @Test
+    void getCustomersPageThrowsWhenCursorInvalid() {
+        assertThatThrownBy(() -> underTest.getCustomersPage("not a cursor", 10))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Invalid cursor");
+    }
+
+    @Test
+    void searchCustomersPagesMatchingCustomers() {
+        int limit = 1;
+        CustomerSearchCriteria criteria = new CustomerSearchCriteria(20, 30, null, "mail.com", "a", null);
+        List<Customer> rows = List.of(
+                new Customer(1L, "A", "a@mail.com", 20),
+                new Customer(4L, "Ab", "ab@mail.com", 21)
+        );
+        when(customerDao.selectCustomersMatching(criteria, 0L, limit + 1)).thenReturn(rows);
+
+        CustomerPage actual = underTest.searchCustomers(criteria, null, limit);
+
+        assertThat(actual.customers()).containsExactly(rows.get(0));
+        assertThat(OpaqueToken.decode(actual.nextCursor(), "cursor")).isEqualTo(1L);
+    }
+
+    @Test
+    void searchCustomersThrowsWhenAgeRangeEmpty() {
+        CustomerSearchCriteria criteria = new CustomerSearchCriteria(30, 20, null, null, null, null);
+
+        assertThatThrownBy(() -> underTest.searchCustomers(criteria, null, null))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("minAge must not be greater than maxAge");
+
+        verifyNoInteractions(customerDao);
+    }
+
+    @Test
+    void searchCustomersThrowsWhenTermBlank() {
+        CustomerSearchCriteria criteria = new CustomerSearchCriteria(null, null, null, null, " ", null);
+
+        assertThatThrownBy(() -> underTest.searchCustomers(criteria, null, null))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("search terms must not be blank");
+
+        verifyNoInteractions(customerDao);
+    }
+
+    @Test
+    void exportCustomersStreamsEveryCustomerAndClosesStream() {
+        List<Customer> rows = List.of(
+                new Customer(1L, "A", "a@mail.com", 20),
+                new Customer(2L, "B", "b@mail.com", 21)
+        );
+        AtomicBoolean closed = new AtomicBoolean();
+        when(customerDao.streamAllCustomers())
+                .thenReturn(rows.stream().onClose(() -> closed.set(true)));
+
+        List<Customer> exported = new ArrayList<>();
+        underTest.exportCustomers(exported::add);
+
+        assertThat(exported).containsExactlyElementsOf(rows);
+        assertThat(closed).isTrue();
+    }
+
     @Test
     void canGetCustomer() {
         Long id = 1L;
@@ -50,6 +181,29 @@ class CustomerServiceTest {
         assertThat(actual).isEqualTo(customer);
     }
 
+    @Test
+    void canGetCustomerVersion() {
+        Long id = 1L;
+        Mockito.when(customerDao.selectCustomerVersion(id))
+                .thenReturn(Optional.of(3L));
+
+        Long actual = underTest.getCustomerVersion(id);
+
+        assertThat(actual).isEqualTo(3L);
+        verify(customerDao, never()).selectCustomerById(any());
+    }
+
+    @Test
+    void willThrowWhenGetCustomerVersionReturnsEmptyOptional() {
+        Long id = 1L;
+        Mockito.when(customerDao.selectCustomerVersion(id))
+                .thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> underTest.getCustomerVersion(id))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("customer with id [%s] not found".formatted(id));
+    }
+
     @Test
     void willThrowGetCustomerReturnsEmptyOptional() {
         Long id = 1L;
@@ -66,18 +220,19 @@ class CustomerServiceTest {
     @Test
     void addCustomerWhenEmailFree() {
         String email = "email@mail.com";
-        when(customerDao.existsCustomerWithEmail(anyString()))
-                .thenReturn(false);
+        when(customerDao.insertCustomerIfEmailAbsent(any(Customer.class)))
+                .thenReturn(Optional.of(1L));
 
         CustomerRegistrationRequest customerRegistrationRequest = new CustomerRegistrationRequest(
                 "Name",
                 email,
                 30
         );
-        underTest.addCustomer(customerRegistrationRequest);
+        Long id = underTest.addCustomer(customerRegistrationRequest);
 
+        assertThat(id).isEqualTo(1L);
         ArgumentCaptor<Customer> customerArgumentCaptor = ArgumentCaptor.forClass(Customer.class);
-        verify(customerDao).insertCustomer(customerArgumentCaptor.capture());
+        verify(customerDao).insertCustomerIfEmailAbsent(customerArgumentCaptor.capture());
         Customer capturedCustomer = customerArgumentCaptor.getValue();
         assertThat(capturedCustomer.getEmail()).isEqualTo(email);
         assertThat(capturedCustomer.getName()).isEqualTo(customerRegistrationRequest.name());
@@ -89,8 +244,8 @@ class CustomerServiceTest {
 
     @Test
     void addCustomerWhenEmailDuplicatedExceptionThrown() {
-        when(customerDao.existsCustomerWithEmail(anyString()))
-                .thenReturn(true);
+        when(customerDao.insertCustomerIfEmailAbsent(any(Customer.class)))
+                .thenReturn(Optional.empty());
 
         CustomerRegistrationRequest customerRegistrationRequest = new CustomerRegistrationRequest(
                 "Name",
@@ -102,23 +257,25 @@ class CustomerServiceTest {
                 .isInstanceOf(DuplicateResourceException.class)
                 .hasMessage("Email is already taken");
 
-        verify(customerDao, never()).insertCustomer(any(Customer.class));
+        verify(customerDao, never()).existsCustomerWithEmail(anyString());
     }
 
     @Test
     void deleteCustomerByIdWhenCustomerExists() {
         Long id = 1L;
-        when(customerDao.existsCustomerWithId(id)).thenReturn(true);
+        when(customerDao.deleteCustomer(id))
+                .thenReturn(Optional.of(new Customer(id, "Name", "email@mail.com", 30)));
 
         underTest.deleteCustomerById(id);
 
         verify(customerDao).deleteCustomer(id);
+        verify(customerDao, never()).existsCustomerWithId(id);
     }
 
     @Test
     void deleteCustomerByIdWhenCustomerNotExists() {
         Long id = 1L;
-        when(customerDao.existsCustomerWithId(id)).thenReturn(false);
+        when(customerDao.deleteCustomer(id)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> underTest.deleteCustomerById(id))
                 .isInstanceOf(ResourceNotFoundException.class)
@@ -128,16 +285,15 @@ class CustomerServiceTest {
     @Test
     void canUpdateAllCustomerProperties() {
         Long id = 1L;
-        Customer customer = new Customer(id, "Name", "email@mail.com", 30);
-        Mockito.when(customerDao.selectCustomerById(id))
-                .thenReturn(Optional.of(customer));
-
         String newEmail = "newEmail@mail.com";
         CustomerUpdateRequest request = new CustomerUpdateRequest(
                 "newName",
                 newEmail,
                 40);
-        when(customerDao.existsCustomerWithEmail(newEmail)).thenReturn(false);
+        when(customerDao.updateCustomer(any(Customer.class)))
+                .thenReturn(CustomerUpdateResult.updated(
+                        new Customer(id, "newName", newEmail, 40),
+                        new Customer(id, "Name", "email@mail.com", 30)));
 
         underTest.updateCustomer(id, request);
 
@@ -151,20 +307,22 @@ class CustomerServiceTest {
         assertThat(capturedCustomer.getName()).isEqualTo(request.name());
         assertThat(capturedCustomer.getAge()).isEqualTo(request.age());
         assertThat(capturedCustomer.getId()).isEqualTo(id);
+        verify(customerDao, never()).selectCustomerById(id);
+        verify(customerDao, never()).existsCustomerWithEmail(newEmail);
     }
 
 
     @Test
     public void canUpdateOnlyCustomerName() {
         Long id = 1L;
-        Customer customer = new Customer(id, "Name", "email@mail.com", 30);
-        Mockito.when(customerDao.selectCustomerById(id))
-                .thenReturn(Optional.of(customer));
-
         CustomerUpdateRequest request = new CustomerUpdateRequest(
                 "newName",
                 null,
                 null);
+        when(customerDao.updateCustomer(any(Customer.class)))
+                .thenReturn(CustomerUpdateResult.updated(
+                        new Customer(id, "newName", "email@mail.com", 30),
+                        new Customer(id, "Name", "email@mail.com", 30)));
 
         underTest.updateCustomer(id, request);
 
@@ -174,25 +332,24 @@ class CustomerServiceTest {
 
         Customer capturedCustomer = customerArgumentCaptor.getValue();
 
-        assertThat(capturedCustomer.getEmail()).isEqualTo(customer.getEmail());
+        assertThat(capturedCustomer.getEmail()).isNull();
         assertThat(capturedCustomer.getName()).isEqualTo(request.name());
-        assertThat(capturedCustomer.getAge()).isEqualTo(customer.getAge());
-        assertThat(capturedCustomer.getId()).isEqualTo(customer.getId());
+        assertThat(capturedCustomer.getAge()).isNull();
+        assertThat(capturedCustomer.getId()).isEqualTo(id);
     }
 
     @Test
     public void canUpdateOnlyCustomerEmail() {
         Long id = 1L;
-        Customer customer = new Customer(id, "Name", "email@mail.com", 30);
-        Mockito.when(customerDao.selectCustomerById(id))
-                .thenReturn(Optional.of(customer));
-
         String newEmail = "newName@mail.com";
         CustomerUpdateRequest request = new CustomerUpdateRequest(
                 null,
                 newEmail,
                 null);
-        when(customerDao.existsCustomerWithEmail(newEmail)).thenReturn(false);
+        when(customerDao.updateCustomer(any(Customer.class)))
+                .thenReturn(CustomerUpdateResult.updated(
+                        new Customer(id, "Name", newEmail, 30),
+                        new Customer(id, "Name", "email@mail.com", 30)));
 
         underTest.updateCustomer(id, request);
 
@@ -203,22 +360,22 @@ class CustomerServiceTest {
         Customer capturedCustomer = customerArgumentCaptor.getValue();
 
         assertThat(capturedCustomer.getEmail()).isEqualTo(request.email());
-        assertThat(capturedCustomer.getName()).isEqualTo(customer.getName());
-        assertThat(capturedCustomer.getAge()).isEqualTo(customer.getAge());
-        assertThat(capturedCustomer.getId()).isEqualTo(customer.getId());
+        assertThat(capturedCustomer.getName()).isNull();
+        assertThat(capturedCustomer.getAge()).isNull();
+        assertThat(capturedCustomer.getId()).isEqualTo(id);
     }
 
     @Test
     public void canUpdateOnlyCustomerAge() {
         Long id = 1L;
-        Customer customer = new Customer(id, "Name", "email@mail.com", 30);
-        Mockito.when(customerDao.selectCustomerById(id))
-                .thenReturn(Optional.of(customer));
-
         CustomerUpdateRequest request = new CustomerUpdateRequest(
                 null,
                 null,
                 40);
+        when(customerDao.updateCustomer(any(Customer.class)))
+                .thenReturn(CustomerUpdateResult.updated(
+                        new Customer(id, "Name", "email@mail.com", 40),
+                        new Customer(id, "Name", "email@mail.com", 30)));
 
         underTest.updateCustomer(id, request);
 
@@ -228,54 +385,95 @@ class CustomerServiceTest {
 
         Customer capturedCustomer = customerArgumentCaptor.getValue();
 
-        assertThat(capturedCustomer.getEmail()).isEqualTo(customer.getEmail());
-        assertThat(capturedCustomer.getName()).isEqualTo(customer.getName());
+        assertThat(capturedCustomer.getEmail()).isNull();
+        assertThat(capturedCustomer.getName()).isNull();
         assertThat(capturedCustomer.getAge()).isEqualTo(request.age());
-        assertThat(capturedCustomer.getId()).isEqualTo(customer.getId());
+        assertThat(capturedCustomer.getId()).isEqualTo(id);
     }
 
 
     @Test
     public void updateCustomerThrowsExceptionWhenEmailIsDuplicated() {
         Long id = 1L;
-        Customer customer = new Customer(id, "Name", "email@mail.com", 30);
-        Mockito.when(customerDao.selectCustomerById(id))
-                .thenReturn(Optional.of(customer));
-
         String newEmail = "newName@mail.com";
         CustomerUpdateRequest request = new CustomerUpdateRequest(
                 null,
                 newEmail,
                 null);
-        when(customerDao.existsCustomerWithEmail(newEmail)).thenReturn(true);
+        when(customerDao.updateCustomer(any(Customer.class)))
+                .thenThrow(new DuplicateKeyException("customer_email_uniq"));
 
         assertThatThrownBy(() -> underTest.updateCustomer(id, request))
                 .isInstanceOf(DuplicateResourceException.class)
                 .hasMessage("Email is already taken");
+    }
+
+    @Test
+    void updateCustomerPassesExpectedVersion() {
+        Long id = 1L;
+        CustomerUpdateRequest request = new CustomerUpdateRequest("newName", null, null);
+        Customer updated = new Customer(id, "newName", "email@mail.com", 30, 4L);
+        when(customerDao.updateCustomer(any(Customer.class)))
+                .thenReturn(CustomerUpdateResult.updated(
+                        updated, new Customer(id, "Name", "email@mail.com", 30, 3L)));
+
+        Customer actual = underTest.updateCustomer(id, request, 3L);
 
-        verify(customerDao, never()).updateCustomer(customer);
+        ArgumentCaptor<Customer> customerArgumentCaptor = ArgumentCaptor.forClass(Customer.class);
+        verify(customerDao).updateCustomer(customerArgumentCaptor.capture());
+        assertThat(customerArgumentCaptor.getValue().getVersion()).isEqualTo(3L);
+        assertThat(actual).isEqualTo(updated);
     }
 
     @Test
-    void updateCustomerThrowsExceptionWhenNoChanges() {
+    void updateCustomerThrowsExceptionWhenVersionMismatch() {
         Long id = 1L;
-        String name = "Name";
-        String email = "email@mail.com";
-        int age = 30;
-        Customer customer = new Customer(id, name, email, age);
-        Mockito.when(customerDao.selectCustomerById(id))
-                .thenReturn(Optional.of(customer));
+        CustomerUpdateRequest request = new CustomerUpdateRequest("newName", null, null);
+        when(customerDao.updateCustomer(any(Customer.class)))
+                .thenReturn(CustomerUpdateResult.versionMismatch());
 
+        assertThatThrownBy(() -> underTest.updateCustomer(id, request, 3L))
+                .isInstanceOf(PreconditionFailedException.class)
+                .hasMessage("customer with id [%s] has been modified".formatted(id));
+    }
+
+    @Test
+    void updateCustomerThrowsExceptionWhenNoChanges() {
+        Long id = 1L;
         CustomerUpdateRequest request = new CustomerUpdateRequest(
-                name,
-                email,
-                age);
+                "Name",
+                "email@mail.com",
+                30);
+        when(customerDao.updateCustomer(any(Customer.class)))
+                .thenReturn(CustomerUpdateResult.unchanged());
+
+        assertThatThrownBy(() -> underTest.updateCustomer(id, request))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("No data changed");
+    }
+
+    @Test
+    void updateCustomerThrowsExceptionWhenRequestIsEmpty() {
+        Long id = 1L;
+        CustomerUpdateRequest request = new CustomerUpdateRequest(null, null, null);
 
         assertThatThrownBy(() -> underTest.updateCustomer(id, request))
                 .isInstanceOf(RequestValidationException.class)
                 .hasMessage("No data changed");
 
-        verify(customerDao, never()).updateCustomer(customer);
+        verifyNoInteractions(customerDao);
+    }
+
+    @Test
+    void updateCustomerThrowsExceptionWhenCustomerNotFound() {
+        Long id = 1L;
+        CustomerUpdateRequest request = new CustomerUpdateRequest("Name", null, null);
+        when(customerDao.updateCustomer(any(Customer.class)))
+                .thenReturn(CustomerUpdateResult.notFound());
+
+        assertThatThrownBy(() -> underTest.updateCustomer(id, request))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("customer with id [%s] not found".formatted(id));
     }
 
 }
\ No newline at end of file
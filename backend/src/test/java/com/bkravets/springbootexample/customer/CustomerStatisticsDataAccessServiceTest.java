@@ -0,0 +1,141 @@
+package com.bkravets.springbootexample.customer;
+
+import com.bkravets.springbootexample.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerStatisticsDataAccessServiceTest {
+    @Mock
+    private CustomerDao delegate;
+
+    private CustomerStatisticsDataAccessService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerStatisticsDataAccessService(delegate, TransactionOperations.withoutTransaction());
+    }
+
+    @Test
+    void statisticsThrowBeforeBuild() {
+        assertThatThrownBy(() -> underTest.statistics())
+                .isInstanceOf(ServiceUnavailableException.class);
+    }
+
+    @Test
+    void statisticsSummarizeStreamedCustomers() {
+        when(delegate.streamAllCustomers()).thenReturn(Stream.of(
+                new Customer(1L, "Alex", "alex@gmail.com", 20, 0L),
+                new Customer(2L, "Jamila", "jamila@GMAIL.com", 30, 0L),
+                new Customer(3L, "Olena", "olena@ukr.net", 40, 0L)));
+        underTest.rebuild();
+
+        CustomerStatistics actual = underTest.statistics();
+
+        assertThat(actual.customers()).isEqualTo(3);
+        assertThat(actual.age().min()).isEqualTo(20);
+        assertThat(actual.age().p50()).isEqualTo(30);
+        assertThat(actual.age().mean()).isEqualTo(30.0);
+        assertThat(actual.distinctEmailDomains()).isEqualTo(2);
+    }
+
+    @Test
+    void writesKeepStatisticsCurrent() {
+        when(delegate.streamAllCustomers()).thenReturn(Stream.of(
+                new Customer(1L, "Alex", "alex@gmail.com", 20, 0L),
+                new Customer(2L, "Jamila", "jamila@gmail.com", 30, 0L)));
+        underTest.rebuild();
+        Customer signup = new Customer("Olena", "olena@ukr.net", 60);
+        when(delegate.insertCustomerIfEmailAbsent(signup)).thenReturn(Optional.of(3L));
+        List<Customer> batch = List.of(
+                new Customer("Taken", "alex@gmail.com", 99),
+                new Customer("Taras", "taras@i.ua", 50));
+        when(delegate.insertCustomers(batch)).thenReturn(new long[]{0L, 4L});
+        Customer update = new Customer(1L, null, null, 25, null);
+        when(delegate.updateCustomer(update)).thenReturn(CustomerUpdateResult.updated(
+                new Customer(1L, "Alex", "alex@gmail.com", 25, 1L),
+                new Customer(1L, "Alex", "alex@gmail.com", 20, 0L)));
+        when(delegate.deleteCustomer(2L)).thenReturn(Optional.of(
+                new Customer(2L, "Jamila", "jamila@gmail.com", 30, 0L)));
+
+        underTest.insertCustomerIfEmailAbsent(signup);
+        underTest.insertCustomers(batch);
+        underTest.updateCustomer(update);
+        underTest.deleteCustomer(2L);
+
+        CustomerStatistics actual = underTest.statistics();
+        assertThat(actual.customers()).isEqualTo(3);
+        assertThat(actual.age().min()).isEqualTo(25);
+        assertThat(actual.age().max()).isEqualTo(60);
+        assertThat(actual.age().p50()).isEqualTo(50);
+        assertThat(actual.distinctEmailDomains()).isEqualTo(3);
+    }
+
+    @Test
+    void writesCountOnceTheyCommit() {
+        when(delegate.streamAllCustomers()).thenReturn(Stream.empty());
+        underTest.rebuild();
+        Customer signup = new Customer("Olena", "olena@ukr.net", 60);
+        when(delegate.insertCustomerIfEmailAbsent(signup)).thenReturn(Optional.of(1L));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            underTest.insertCustomerIfEmailAbsent(signup);
+            assertThat(underTest.statistics().customers()).isZero();
+
+            TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(underTest.statistics().customers()).isEqualTo(1);
+    }
+
+    @Test
+    void rolledBackWritesAreNotCounted() {
+        when(delegate.streamAllCustomers()).thenReturn(Stream.empty());
+        underTest.rebuild();
+        Customer signup = new Customer("Olena", "olena@ukr.net", 60);
+        when(delegate.insertCustomerIfEmailAbsent(signup)).thenReturn(Optional.of(1L));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            underTest.insertCustomerIfEmailAbsent(signup);
+
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                    TransactionSynchronizationManager.getSynchronizations(),
+                    TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(underTest.statistics().customers()).isZero();
+    }
+
+    @Test
+    void statisticsDoNotReachTheDelegate() {
+        when(delegate.streamAllCustomers()).thenReturn(Stream.empty());
+        underTest.rebuild();
+
+        underTest.statistics();
+        underTest.statistics();
+
+        verify(delegate).streamAllCustomers();
+        verifyNoMoreInteractions(delegate);
+    }
+}
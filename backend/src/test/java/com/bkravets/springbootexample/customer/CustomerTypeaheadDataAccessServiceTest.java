@@ -0,0 +1,165 @@
+package com.bkravets.springbootexample.customer;
+
+import com.bkravets.springbootexample.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerTypeaheadDataAccessServiceTest {
+    @Mock
+    private CustomerDao delegate;
+
+    private CustomerTypeaheadDataAccessService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerTypeaheadDataAccessService(
+                delegate, TransactionOperations.withoutTransaction(), 0.5);
+    }
+
+    @Test
+    void suggestThrowsBeforeBuild() {
+        assertThatThrownBy(() -> underTest.suggest("alex", 10))
+                .isInstanceOf(ServiceUnavailableException.class);
+    }
+
+    @Test
+    void suggestFindsStreamedCustomers() {
+        when(delegate.streamAllCustomers()).thenReturn(Stream.of(
+                new Customer(1L, "Alex", "alex@gmail.com", 21, 0L)));
+        underTest.rebuild();
+
+        List<CustomerSuggestion> actual = underTest.suggest("alx", 10);
+
+        assertThat(actual).extracting(CustomerSuggestion::id).containsExactly(1L);
+    }
+
+    @Test
+    void writesKeepIndexCurrent() {
+        when(delegate.streamAllCustomers()).thenReturn(Stream.of(
+                new Customer(1L, "Alex", "alex@gmail.com", 21, 0L),
+                new Customer(2L, "Jamila", "jamila@gmail.com", 19, 0L)));
+        underTest.rebuild();
+        Customer signup = new Customer("Olena", "olena@gmail.com", 30);
+        when(delegate.insertCustomerIfEmailAbsent(signup)).thenReturn(Optional.of(3L));
+        Customer update = new Customer(1L, "Alexandra", null, null, null);
+        when(delegate.updateCustomer(update)).thenReturn(CustomerUpdateResult.updated(
+                new Customer(1L, "Alexandra", "alex@gmail.com", 21, 1L),
+                new Customer(1L, "Alex", "alex@gmail.com", 21, 0L)));
+        when(delegate.deleteCustomer(2L)).thenReturn(Optional.of(
+                new Customer(2L, "Jamila", "jamila@gmail.com", 19, 0L)));
+
+        underTest.insertCustomerIfEmailAbsent(signup);
+        underTest.updateCustomer(update);
+        underTest.deleteCustomer(2L);
+
+        assertThat(underTest.suggest("olena", 10)).extracting(CustomerSuggestion::id).containsExactly(3L);
+        assertThat(underTest.suggest("alexandra", 10)).extracting(CustomerSuggestion::id).containsExactly(1L);
+        assertThat(underTest.suggest("jamila", 10)).isEmpty();
+    }
+
+    @Test
+    void insertsBelowTheHighestIndexedIdAreIndexed() {
+        // a batch that took id 2 commits after the one that took id 3
+        when(delegate.streamAllCustomers()).thenReturn(Stream.of(
+                new Customer(1L, "Alex", "alex@gmail.com", 21, 0L)));
+        underTest.rebuild();
+        Customer signup = new Customer("Taras", "taras@i.ua", 50);
+        when(delegate.insertCustomerIfEmailAbsent(signup)).thenReturn(Optional.of(3L));
+        List<Customer> batch = List.of(new Customer("Olena", "olena@gmail.com", 30));
+        when(delegate.insertCustomers(batch)).thenReturn(new long[]{2L});
+
+        underTest.insertCustomer(signup);
+        underTest.insertCustomers(batch);
+
+        assertThat(underTest.suggest("olena", 10)).extracting(CustomerSuggestion::id).containsExactly(2L);
+        assertThat(underTest.suggest("taras", 10)).extracting(CustomerSuggestion::id).containsExactly(3L);
+    }
+
+    @Test
+    void insertCustomerThrowsWhenEmailIsTaken() {
+        Customer signup = new Customer("Alex", "alex@gmail.com", 21);
+        when(delegate.insertCustomerIfEmailAbsent(signup)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> underTest.insertCustomer(signup))
+                .isInstanceOf(DuplicateKeyException.class);
+    }
+
+    @Test
+    void importsIndexTheRowsTheyReport() {
+        when(delegate.streamAllCustomers()).thenReturn(Stream.of(
+                new Customer(1L, "Alex", "alex@gmail.com", 21, 0L),
+                new Customer(3L, "Taras", "taras@i.ua", 50, 0L)));
+        underTest.rebuild();
+        when(delegate.selectCustomersByIds(List.of(2L))).thenReturn(List.of(
+                new Customer(2L, "Olena", "olena@gmail.com", 30, 0L)));
+
+        underTest.onCustomersImported(new CustomersImportedEvent(List.of(2L)));
+
+        assertThat(underTest.suggest("olena", 10)).extracting(CustomerSuggestion::id).containsExactly(2L);
+        verify(delegate).streamAllCustomers();
+    }
+
+    @Test
+    void rolledBackWritesAreNotIndexed() {
+        when(delegate.streamAllCustomers()).thenReturn(Stream.of(
+                new Customer(1L, "Alex", "alex@gmail.com", 21, 0L)));
+        underTest.rebuild();
+        Customer signup = new Customer("Olena", "olena@gmail.com", 30);
+        when(delegate.insertCustomerIfEmailAbsent(signup)).thenReturn(Optional.of(2L));
+        when(delegate.deleteCustomer(1L)).thenReturn(Optional.of(
+                new Customer(1L, "Alex", "alex@gmail.com", 21, 0L)));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            underTest.insertCustomerIfEmailAbsent(signup);
+            underTest.deleteCustomer(1L);
+
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                    TransactionSynchronizationManager.getSynchronizations(),
+                    TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(underTest.suggest("olena", 10)).isEmpty();
+        assertThat(underTest.suggest("alex", 10)).extracting(CustomerSuggestion::id).containsExactly(1L);
+    }
+
+    @Test
+    void insertsAreIndexedOnceTheyCommit() {
+        when(delegate.streamAllCustomers()).thenReturn(Stream.of(
+                new Customer(1L, "Alex", "alex@gmail.com", 21, 0L)));
+        underTest.rebuild();
+        List<Customer> batch = List.of(new Customer("Olena", "olena@gmail.com", 30));
+        when(delegate.insertCustomers(batch)).thenReturn(new long[]{2L});
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            underTest.insertCustomers(batch);
+            assertThat(underTest.suggest("olena", 10)).isEmpty();
+
+            TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(underTest.suggest("olena", 10)).extracting(CustomerSuggestion::id).containsExactly(2L);
+    }
+}
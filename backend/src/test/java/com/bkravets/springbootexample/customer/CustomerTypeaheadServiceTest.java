@@ -0,0 +1,57 @@
+package com.bkravets.springbootexample.customer;
+
+import com.bkravets.springbootexample.exception.RequestValidationException;
+import com.bkravets.springbootexample.exception.ResourceNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerTypeaheadServiceTest {
+    @Mock
+    private CustomerTypeaheadDataAccessService typeahead;
+
+    private CustomerTypeaheadService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerTypeaheadService(typeahead);
+    }
+
+    @Test
+    void suggestUsesDefaultLimit() {
+        underTest.suggest("alex", null);
+
+        verify(typeahead).suggest("alex", CustomerTypeaheadService.DEFAULT_LIMIT);
+    }
+
+    @Test
+    void suggestThrowsWhenQueryBlank() {
+        assertThatThrownBy(() -> underTest.suggest(" ", null))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("q must not be blank");
+
+        verifyNoInteractions(typeahead);
+    }
+
+    @Test
+    void suggestThrowsWhenLimitOutOfRange() {
+        assertThatThrownBy(() -> underTest.suggest("alex", CustomerTypeaheadService.MAX_LIMIT + 1))
+                .isInstanceOf(RequestValidationException.class);
+
+        verifyNoInteractions(typeahead);
+    }
+
+    @Test
+    void suggestThrowsWhenTypeaheadIsNotOnTheChain() {
+        underTest = new CustomerTypeaheadService((CustomerTypeaheadDataAccessService) null);
+
+        assertThatThrownBy(() -> underTest.suggest("alex", null))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+}
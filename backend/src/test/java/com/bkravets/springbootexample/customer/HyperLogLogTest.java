@@ -0,0 +1,39 @@
+package com.bkravets.springbootexample.customer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HyperLogLogTest {
+
+    @Test
+    void smallCardinalitiesAreNearlyExact() {
+        HyperLogLog underTest = new HyperLogLog(14);
+
+        IntStream.range(0, 100).forEach(i -> underTest.add("domain" + i + ".com"));
+
+        assertThat(underTest.estimate()).isBetween(99L, 101L);
+    }
+
+    @Test
+    void duplicatesAreNotCounted() {
+        HyperLogLog underTest = new HyperLogLog(14);
+
+        IntStream.range(0, 10_000).forEach(i -> underTest.add("domain" + i % 10 + ".com"));
+
+        assertThat(underTest.estimate()).isEqualTo(10L);
+    }
+
+    @Test
+    void largeCardinalitiesStayWithinErrorBound() {
+        HyperLogLog underTest = new HyperLogLog(14);
+
+        IntStream.range(0, 1_000_000).forEach(i -> underTest.add("domain" + i + ".com"));
+
+        // three standard errors of 1.04 / sqrt(16384)
+        assertThat(underTest.estimate()).isBetween(975_000L, 1_025_000L);
+        assertThat(underTest.memoryBytes()).isEqualTo(65_536L);
+    }
+}
@@ -0,0 +1,40 @@
+package com.bkravets.springbootexample.customer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OnCustomerDaoChainConditionTest {
+
+    @Test
+    void decoratorsOnTheChainMatch() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("customer.dao", "stats")
+                .withProperty("customer.stats.delegate", "cache")
+                .withProperty("customer.cache.delegate", "jdbc");
+
+        assertThat(OnCustomerDaoChainCondition.isOnChain(environment, "stats")).isTrue();
+        assertThat(OnCustomerDaoChainCondition.isOnChain(environment, "cache")).isTrue();
+        assertThat(OnCustomerDaoChainCondition.isOnChain(environment, "typeahead")).isFalse();
+    }
+
+    @Test
+    void decoratorsAreOffByDefault() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("customer.dao", "jdbc")
+                .withProperty("customer.cache.delegate", "jdbc");
+
+        assertThat(OnCustomerDaoChainCondition.isOnChain(environment, "cache")).isFalse();
+    }
+
+    @Test
+    void cyclicChainEnds() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("customer.dao", "cache")
+                .withProperty("customer.cache.delegate", "batch")
+                .withProperty("customer.batch.delegate", "cache");
+
+        assertThat(OnCustomerDaoChainCondition.isOnChain(environment, "stats")).isFalse();
+    }
+}
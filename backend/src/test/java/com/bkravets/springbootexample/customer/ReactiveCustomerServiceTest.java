@@ -0,0 +1,153 @@
+package com.bkravets.springbootexample.customer;
+
+import com.bkravets.springbootexample.exception.DuplicateResourceException;
+import com.bkravets.springbootexample.exception.PreconditionFailedException;
+import com.bkravets.springbootexample.exception.RequestValidationException;
+import com.bkravets.springbootexample.exception.ResourceNotFoundException;
+import com.bkravets.springbootexample.token.OpaqueToken;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveCustomerServiceTest {
+    @Mock
+    private ReactiveCustomerDao customerDao;
+
+    private ReactiveCustomerService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new ReactiveCustomerService(customerDao);
+    }
+
+    @Test
+    void getCustomersPageReturnsCursorWhenMoreRowsExist() {
+        int limit = 2;
+        List<Customer> rows = List.of(
+                new Customer(1L, "A", "a@mail.com", 20),
+                new Customer(2L, "B", "b@mail.com", 21),
+                new Customer(3L, "C", "c@mail.com", 22)
+        );
+        when(customerDao.selectCustomersAfter(0L, limit + 1)).thenReturn(Flux.fromIterable(rows));
+
+        StepVerifier.create(underTest.getCustomersPage(null, limit))
+                .expectNext(new CustomerPage(List.of(rows.get(0), rows.get(1)), OpaqueToken.encode(2L)))
+                .verifyComplete();
+    }
+
+    @Test
+    void getCustomersPageFailsWhenLimitOutOfRange() {
+        StepVerifier.create(underTest.getCustomersPage(null, CustomerService.MAX_PAGE_SIZE + 1))
+                .expectError(RequestValidationException.class)
+                .verify();
+
+        verifyNoInteractions(customerDao);
+    }
+
+    @Test
+    void getCustomersPageFailsWhenCursorInvalid() {
+        StepVerifier.create(underTest.getCustomersPage("not a cursor", 10))
+                .expectError(RequestValidationException.class)
+                .verify();
+    }
+
+    @Test
+    void getCustomerFailsWhenNotFound() {
+        long id = 10;
+        when(customerDao.selectCustomerById(id)).thenReturn(Mono.empty());
+
+        StepVerifier.create(underTest.getCustomer(id))
+                .expectErrorMatches(e -> e instanceof ResourceNotFoundException
+                        && e.getMessage().equals("customer with id [%s] not found".formatted(id)))
+                .verify();
+    }
+
+    @Test
+    void addCustomerReturnsNewId() {
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest("Alex", "alex@gmail.com", 19);
+        when(customerDao.insertCustomerIfEmailAbsent(new Customer("Alex", "alex@gmail.com", 19)))
+                .thenReturn(Mono.just(5L));
+
+        StepVerifier.create(underTest.addCustomer(request))
+                .expectNext(5L)
+                .verifyComplete();
+    }
+
+    @Test
+    void addCustomerFailsWhenEmailTaken() {
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest("Alex", "alex@gmail.com", 19);
+        when(customerDao.insertCustomerIfEmailAbsent(any())).thenReturn(Mono.empty());
+
+        StepVerifier.create(underTest.addCustomer(request))
+                .expectErrorMatches(e -> e instanceof DuplicateResourceException
+                        && e.getMessage().equals("Email is already taken"))
+                .verify();
+    }
+
+    @Test
+    void deleteCustomerByIdFailsWhenNotFound() {
+        long id = 10;
+        when(customerDao.deleteCustomer(id)).thenReturn(Mono.empty());
+
+        StepVerifier.create(underTest.deleteCustomerById(id))
+                .expectError(ResourceNotFoundException.class)
+                .verify();
+    }
+
+    @Test
+    void updateCustomerPassesExpectedVersion() {
+        long id = 10;
+        Customer updated = new Customer(id, "Alex", "alex@gmail.com", 19, 4L);
+        when(customerDao.updateCustomer(new Customer(id, "Alex", null, null, 3L)))
+                .thenReturn(Mono.just(CustomerUpdateResult.updated(
+                        updated, new Customer(id, "Alexandra", "alex@gmail.com", 19, 3L))));
+
+        StepVerifier.create(underTest.updateCustomer(id, new CustomerUpdateRequest("Alex", null, null), 3L))
+                .expectNext(updated)
+                .verifyComplete();
+    }
+
+    @Test
+    void updateCustomerMapsResultStatusesToErrors() {
+        long id = 10;
+        CustomerUpdateRequest request = new CustomerUpdateRequest("Alex", null, null);
+        when(customerDao.updateCustomer(any())).thenReturn(
+                Mono.just(CustomerUpdateResult.versionMismatch()),
+                Mono.just(CustomerUpdateResult.unchanged()),
+                Mono.just(CustomerUpdateResult.notFound()),
+                Mono.error(new DuplicateKeyException("customer_email_unique")));
+
+        StepVerifier.create(underTest.updateCustomer(id, request, 3L))
+                .expectError(PreconditionFailedException.class)
+                .verify();
+        StepVerifier.create(underTest.updateCustomer(id, request, null))
+                .expectError(RequestValidationException.class)
+                .verify();
+        StepVerifier.create(underTest.updateCustomer(id, request, null))
+                .expectError(ResourceNotFoundException.class)
+                .verify();
+        StepVerifier.create(underTest.updateCustomer(id, request, null))
+                .expectError(DuplicateResourceException.class)
+                .verify();
+    }
+
+    @Test
+    void updateCustomerFailsWhenRequestIsEmpty() {
+        StepVerifier.create(underTest.updateCustomer(10L, new CustomerUpdateRequest(null, null, null), null))
+                .expectError(RequestValidationException.class)
+                .verify();
+
+        verifyNoInteractions(customerDao);
+    }
+}
@@ -0,0 +1,87 @@
+package com.bkravets.springbootexample.customer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RebuildableViewTest {
+
+    private final RebuildableView<List<String>> underTest =
+            new RebuildableView<>(TransactionOperations.withoutTransaction());
+
+    @Test
+    void viewIsAbsentBeforeFirstRebuild() {
+        underTest.apply(view -> view.add("lost"));
+
+        assertThat(underTest.current()).isNull();
+    }
+
+    @Test
+    void writesDuringRebuildReachTheNewView() {
+        underTest.rebuild(ArrayList::new, view -> view.add("old"));
+        List<String> old = underTest.current();
+
+        underTest.rebuild(ArrayList::new, view -> {
+            view.add("streamed");
+            underTest.apply(written -> written.add("written"));
+        });
+
+        assertThat(old).containsExactly("old", "written");
+        assertThat(underTest.current()).containsExactly("streamed", "written");
+    }
+
+    @Test
+    void failedRebuildKeepsCurrentView() {
+        underTest.rebuild(ArrayList::new, view -> view.add("old"));
+        List<String> old = underTest.current();
+
+        assertThatThrownBy(() -> underTest.rebuild(ArrayList::new, view -> {
+            throw new IllegalStateException("stream failed");
+        })).isInstanceOf(IllegalStateException.class);
+        underTest.apply(view -> view.add("written"));
+
+        assertThat(underTest.current()).isSameAs(old).containsExactly("old", "written");
+    }
+
+    @Test
+    void writeInProgressDuringSwapReachesTheNewView() throws Exception {
+        underTest.rebuild(ArrayList::new, view -> view.add("old"));
+        List<String> old = underTest.current();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch writing = new CountDownLatch(1);
+
+        Thread rebuild = new Thread(() -> underTest.rebuild(ArrayList::new, view -> {
+            loading.countDown();
+            awaitQuietly(writing, Duration.ofSeconds(5));
+        }));
+        rebuild.start();
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        underTest.apply(view -> {
+            if (view == old) {
+                // the rebuild finishes loading now and would swap views before the write reaches the new one
+                writing.countDown();
+                awaitQuietly(new CountDownLatch(1), Duration.ofMillis(200));
+            }
+            view.add("written");
+        });
+        rebuild.join();
+
+        assertThat(underTest.current()).isNotSameAs(old).containsExactly("written");
+    }
+
+    private static void awaitQuietly(CountDownLatch latch, Duration timeout) {
+        try {
+            latch.await(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.bkravets.springbootexample.customer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrigramIndexTest {
+
+    private final TrigramIndex underTest = new TrigramIndex(0.5);
+
+    @Test
+    void lookupRanksCloserNamesFirst() {
+        underTest.put(new Customer(1L, "Jamal Smith", "j.smith@mail.com", 30, 0L));
+        underTest.put(new Customer(2L, "Jamila Ahmed", "jamila@gmail.com", 19, 0L));
+        underTest.put(new Customer(3L, "Alex", "alex@gmail.com", 21, 0L));
+
+        List<CustomerSuggestion> actual = underTest.lookup("jami", 10);
+
+        assertThat(actual).extracting(CustomerSuggestion::id).containsExactly(2L, 1L);
+        assertThat(actual.get(0).score()).isEqualTo(1.0);
+        assertThat(actual.get(1).score()).isEqualTo(0.75);
+    }
+
+    @Test
+    void lookupToleratesTypos() {
+        underTest.put(new Customer(1L, "Jamal Smith", "j.smith@mail.com", 30, 0L));
+        underTest.put(new Customer(2L, "Jamila Ahmed", "jamila@gmail.com", 19, 0L));
+
+        List<CustomerSuggestion> actual = underTest.lookup("jamilla", 10);
+
+        assertThat(actual).extracting(CustomerSuggestion::name).containsExactly("Jamila Ahmed");
+    }
+
+    @Test
+    void lookupMatchesWordPrefixesAndEmailLocalParts() {
+        underTest.put(new Customer(1L, "Alexandra", "sasha@mail.com", 30, 0L));
+        underTest.put(new Customer(2L, "Bohdan", "bkravets@mail.com", 25, 0L));
+
+        assertThat(underTest.lookup("ALEX", 10)).extracting(CustomerSuggestion::id).containsExactly(1L);
+        assertThat(underTest.lookup("krav", 10)).extracting(CustomerSuggestion::id).containsExactly(2L);
+        assertThat(underTest.lookup("mail", 10)).isEmpty();
+    }
+
+    @Test
+    void lookupReturnsAtMostLimitBestMatches() {
+        IntStream.rangeClosed(1, 100).forEach(i ->
+                underTest.put(new Customer((long) i, "Anna " + "x".repeat(i), "anna" + i + "@mail.com", 20, 0L)));
+
+        List<CustomerSuggestion> actual = underTest.lookup("anna", 3);
+
+        // equally good matches, the ones with the fewest trigrams first
+        assertThat(actual).extracting(CustomerSuggestion::id).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void putReplacesOlderVersionsOnly() {
+        underTest.put(new Customer(1L, "Alex", "alex@gmail.com", 21, 1L));
+        underTest.put(new Customer(1L, "Olena", "olena@gmail.com", 21, 2L));
+        underTest.put(new Customer(1L, "Alex", "alex@gmail.com", 21, 1L));
+
+        assertThat(underTest.lookup("alex", 10)).isEmpty();
+        assertThat(underTest.lookup("olena", 10)).extracting(CustomerSuggestion::name).containsExactly("Olena");
+        assertThat(underTest.size()).isEqualTo(1);
+    }
+
+    @Test
+    void removeKeepsTombstoneAgainstLateOlderVersions() {
+        underTest.remove(new Customer(1L, "Alex", "alex@gmail.com", 21, 3L));
+        underTest.put(new Customer(1L, "Alex", "alex@gmail.com", 21, 3L));
+
+        assertThat(underTest.lookup("alex", 10)).isEmpty();
+    }
+
+    @Test
+    void lookupFindsEveryCustomerAfterTrigramTableGrows() {
+        // every name has trigrams of its own, many more than the table starts with
+        IntStream.rangeClosed(1, 5000).forEach(i ->
+                underTest.put(new Customer((long) i, "Name" + i, "user" + i + "@mail.com", 20, 0L)));
+
+        IntStream.of(1, 777, 2048, 4999).forEach(i ->
+                assertThat(underTest.lookup("name" + i, 1)).extracting(CustomerSuggestion::id).containsExactly((long) i));
+    }
+
+    @Test
+    void compactDropsDeadDocuments() {
+        IntStream.rangeClosed(1, 3000).forEach(i ->
+                underTest.put(new Customer((long) i, "Name" + i, "user" + i + "@mail.com", 20, 0L)));
+        IntStream.rangeClosed(1, 2000).forEach(i ->
+                underTest.remove(new Customer((long) i, "Name" + i, "user" + i + "@mail.com", 20, 0L)));
+        long before = underTest.memoryBytes();
+        assertThat(underTest.isWasteful()).isTrue();
+
+        underTest.compact();
+
+        assertThat(underTest.isWasteful()).isFalse();
+        assertThat(underTest.size()).isEqualTo(1000);
+        assertThat(underTest.memoryBytes()).isLessThan(before);
+        assertThat(underTest.lookup("name2999", 1)).extracting(CustomerSuggestion::id).containsExactly(2999L);
+        assertThat(underTest.lookup("name1999", 1)).extracting(CustomerSuggestion::id).doesNotContain(1999L);
+    }
+}
@@ -0,0 +1,110 @@
+package com.bkravets.springbootexample.diagnostics;
+
+import com.bkravets.springbootexample.AbstractTestContainersUnitTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlowQueryDataSourceTest extends AbstractTestContainersUnitTest {
+
+    @Test
+    void recordsSlowSelectWithParameterShapesAndPlan() {
+        // Given
+        SlowQueryDataSource underTest = slowQueryDataSource(Duration.ZERO, 10);
+
+        // When
+        new JdbcTemplate(underTest).queryForList(
+                "SELECT id FROM customer WHERE id > ? AND email <> ?", Long.class, 0L, "someone@example.com");
+
+        // Then
+        List<SlowQuery> actual = underTest.recent();
+        assertThat(actual).hasSize(1);
+        assertThat(actual.get(0).sql()).isEqualTo("SELECT id FROM customer WHERE id > ? AND email <> ?");
+        assertThat(actual.get(0).parameters()).containsExactly("$1 Long", "$2 String(19)");
+        assertThat(actual.get(0).plan()).contains("actual time=", "Execution Time");
+    }
+
+    @Test
+    void ignoresStatementsBelowThreshold() {
+        // Given
+        SlowQueryDataSource underTest = slowQueryDataSource(Duration.ofHours(1), 10);
+
+        // When
+        new JdbcTemplate(underTest).queryForObject("SELECT count(*) FROM customer", Long.class);
+
+        // Then
+        assertThat(underTest.recent()).isEmpty();
+    }
+
+    @Test
+    void neverExplainsWrites() {
+        // Given
+        SlowQueryDataSource underTest = slowQueryDataSource(Duration.ZERO, 10);
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+
+        // When
+        new JdbcTemplate(underTest).update(
+                "INSERT INTO customer (name, email, age) VALUES (?, ?, ?)", "Name", email, 20);
+
+        // Then
+        assertThat(underTest.recent())
+                .singleElement()
+                .satisfies(query -> {
+                    assertThat(query.parameters()).containsExactly(
+                            "$1 String(4)", "$2 String(%s)".formatted(email.length()), "$3 Integer");
+                    assertThat(query.plan()).isNull();
+                });
+    }
+
+    @Test
+    void explainsSameStatementOncePerInterval() {
+        // Given
+        SlowQueryDataSource underTest = slowQueryDataSource(Duration.ZERO, 10);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(underTest);
+
+        // When
+        jdbcTemplate.queryForList("SELECT id FROM customer WHERE id = ?", Long.class, 1L);
+        jdbcTemplate.queryForList("SELECT id FROM customer WHERE id = ?", Long.class, 2L);
+
+        // Then
+        assertThat(underTest.recent())
+                .extracting(SlowQuery::plan)
+                .satisfiesExactly(
+                        newest -> assertThat(newest).isNull(),
+                        oldest -> assertThat(oldest).isNotNull());
+    }
+
+    @Test
+    void keepsOnlyMostRecentQueries() {
+        // Given
+        SlowQueryDataSource underTest = slowQueryDataSource(Duration.ZERO, 2);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(underTest);
+
+        // When
+        jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+        jdbcTemplate.queryForObject("SELECT 2", Integer.class);
+        jdbcTemplate.queryForObject("SELECT 3", Integer.class);
+
+        // Then
+        assertThat(underTest.recent())
+                .extracting(SlowQuery::sql)
+                .containsExactly("SELECT 3", "SELECT 2");
+    }
+
+    private static SlowQueryDataSource slowQueryDataSource(Duration threshold, int historySize) {
+        DataSource target = DataSourceBuilder.create()
+                .url(postgreSQLContainer.getJdbcUrl())
+                .username(postgreSQLContainer.getUsername())
+                .password(postgreSQLContainer.getPassword())
+                .build();
+        // plans are captured on the calling thread, so they are there once the query returns
+        return new SlowQueryDataSource(target, threshold, historySize, true, Duration.ofMinutes(1), Runnable::run);
+    }
+}
@@ -0,0 +1,80 @@
+package com.bkravets.springbootexample.execution;
+
+import com.bkravets.springbootexample.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BulkheadDataSourceTest {
+    @Mock
+    private DataSource target;
+    private BulkheadDataSource underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new BulkheadDataSource(target, 2, Duration.ofMillis(50));
+    }
+
+    @Test
+    void closingConnectionReturnsPermit() throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(target.getConnection()).thenReturn(connection);
+
+        Connection handedOut = underTest.getConnection();
+
+        assertThat(underTest.availablePermits()).isEqualTo(1);
+        assertThat(((ConnectionProxy) handedOut).getTargetConnection()).isSameAs(connection);
+
+        handedOut.close();
+        handedOut.close();
+        verify(connection, times(2)).close();
+        assertThat(underTest.availablePermits()).isEqualTo(2);
+    }
+
+    @Test
+    void callsArePassedToTargetConnection() throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(target.getConnection()).thenReturn(connection);
+        when(connection.getAutoCommit()).thenReturn(true);
+
+        boolean autoCommit = underTest.getConnection().getAutoCommit();
+
+        assertThat(autoCommit).isTrue();
+    }
+
+    @Test
+    void rejectsWhenAllPermitsStayTaken() throws SQLException {
+        when(target.getConnection()).thenReturn(mock(Connection.class), mock(Connection.class));
+        underTest.getConnection();
+        underTest.getConnection();
+
+        assertThatThrownBy(() -> underTest.getConnection())
+                .isInstanceOf(ServiceUnavailableException.class)
+                .hasMessageContaining("2 database connections");
+    }
+
+    @Test
+    void failedConnectReturnsPermit() throws SQLException {
+        when(target.getConnection()).thenThrow(new SQLException("refused"));
+
+        assertThatThrownBy(() -> underTest.getConnection()).isInstanceOf(SQLException.class);
+
+        assertThat(underTest.availablePermits()).isEqualTo(2);
+    }
+}
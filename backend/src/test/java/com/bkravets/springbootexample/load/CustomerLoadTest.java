@@ -0,0 +1,103 @@
+package com.bkravets.springbootexample.load;
+
+import com.bkravets.springbootexample.customer.Customer;
+import com.bkravets.springbootexample.customer.CustomerPage;
+import com.bkravets.springbootexample.customer.CustomerRegistrationRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives the application started by the pre-integration-test execution with
+ * an open-loop mix of requests and writes latency percentiles to
+ * {@code target/load-test}. Run with {@code mvn verify -Pload-test}; the
+ * {@code load.*} properties of that profile set rate, durations and mix.
+ */
+class CustomerLoadTest {
+
+    private static final int SEED_BATCH_SIZE = 1000;
+    private static final int PAGE_SIZE = 1000;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final URI customers = URI.create(
+            "http://localhost:%s/api/v1/customers".formatted(System.getProperty("test.server.port")));
+
+    @Test
+    void customersEndpointHoldsTargetRate() throws Exception {
+        double rate = Double.parseDouble(System.getProperty("load.rate", "100"));
+        Duration warmup = Duration.ofSeconds(Long.getLong("load.warmup", 10));
+        Duration duration = Duration.ofSeconds(Long.getLong("load.duration", 60));
+        OperationMix mix = OperationMix.parse(System.getProperty("load.mix", "GET=70,POST=10,PUT=15,DELETE=5"));
+        int seedCustomers = Integer.getInteger("load.seed-customers", 10_000);
+        long randomSeed = Long.getLong("load.random-seed", 42);
+        double maxErrorRate = Double.parseDouble(System.getProperty("load.max-error-rate", "0.01"));
+        Path reportDirectory = Path.of(System.getProperty("load.report-dir", "target/load-test"));
+
+        // emails are unique per run so the test can be repeated against the same database
+        String emailPrefix = "load-" + System.currentTimeMillis();
+        List<Long> ids = seed(seedCustomers, emailPrefix);
+        assertThat(ids).hasSize(seedCustomers);
+
+        LoadGenerator generator = new LoadGenerator(client, customers, objectMapper, ids, emailPrefix);
+        generator.run(rate, warmup, mix, randomSeed - 1);
+        LoadReport report = generator.run(rate, duration, mix, randomSeed);
+
+        report.print(System.out);
+        report.write(reportDirectory);
+        assertThat(report.errorRate()).isLessThanOrEqualTo(maxErrorRate);
+    }
+
+    private List<Long> seed(int count, String emailPrefix) throws IOException, InterruptedException {
+        for (int from = 0; from < count; from += SEED_BATCH_SIZE) {
+            List<CustomerRegistrationRequest> batch = IntStream.range(from, Math.min(from + SEED_BATCH_SIZE, count))
+                    .mapToObj(i -> new CustomerRegistrationRequest(
+                            "Seed " + i, "%s-%d@example.com".formatted(emailPrefix, i), 18 + i % 50))
+                    .toList();
+            send(HttpRequest.newBuilder(URI.create(customers + "/batch"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(batch)))
+                    .build());
+        }
+
+        List<Long> ids = new ArrayList<>(count);
+        String cursor = null;
+        do {
+            String query = "?limit=" + PAGE_SIZE
+                    + (cursor == null ? "" : "&cursor=" + URLEncoder.encode(cursor, StandardCharsets.UTF_8));
+            CustomerPage page = objectMapper.readValue(
+                    send(HttpRequest.newBuilder(URI.create(customers + "/page" + query)).GET().build()),
+                    CustomerPage.class);
+            page.customers().stream()
+                    .filter(customer -> customer.getEmail().startsWith(emailPrefix + "-"))
+                    .map(Customer::getId)
+                    .forEach(ids::add);
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private byte[] send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        assertThat(response.statusCode())
+                .as("%s %s", request.method(), request.uri())
+                .isEqualTo(200);
+        return response.body();
+    }
+}
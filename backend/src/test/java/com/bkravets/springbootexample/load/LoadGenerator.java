@@ -0,0 +1,150 @@
+package com.bkravets.springbootexample.load;
+
+import com.bkravets.springbootexample.customer.CustomerRegistrationRequest;
+import com.bkravets.springbootexample.customer.CustomerUpdateRequest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load against {@code /api/v1/customers}: requests are sent on a fixed
+ * schedule whether or not earlier ones have completed, the way independent
+ * clients would send them, and each latency is taken from its scheduled time.
+ * <p>
+ * GET, PUT and DELETE pick a random id from the pool of seeded customers;
+ * DELETE takes its id out of the pool first. POST registers a new customer
+ * that is not added to the pool, since the endpoint does not return its id.
+ * The sequence of operations and ids only depends on the random seed. Requests
+ * are built on the scheduling thread only, so the pool needs no locking.
+ */
+class LoadGenerator {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient client;
+    private final URI customers;
+    private final ObjectMapper objectMapper;
+    private final List<Long> ids;
+    private final String emailPrefix;
+    private long registrations;
+
+    LoadGenerator(HttpClient client, URI customers, ObjectMapper objectMapper, List<Long> ids, String emailPrefix) {
+        this.client = client;
+        this.customers = customers;
+        this.objectMapper = objectMapper;
+        this.ids = new ArrayList<>(ids);
+        this.emailPrefix = emailPrefix;
+    }
+
+    LoadReport run(double rate, Duration duration, OperationMix mix, long seed)
+            throws InterruptedException, ExecutionException {
+
+        SplittableRandom random = new SplittableRandom(seed);
+        LoadReport report = new LoadReport(rate);
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long requests = duration.toNanos() / interval;
+        List<CompletableFuture<?>> inFlight = new ArrayList<>((int) Math.min(requests, Integer.MAX_VALUE));
+
+        long start = System.nanoTime();
+        for (long i = 0; i < requests; i++) {
+            long intended = start + i * interval;
+            for (long wait; (wait = intended - System.nanoTime()) > 0; ) {
+                LockSupport.parkNanos(wait);
+            }
+
+            Operation operation = mix.next(random);
+            HttpRequest request = request(operation, random);
+            long sent = System.nanoTime();
+            inFlight.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .handle((response, failure) -> {
+                        report.record(operation, intended, sent, System.nanoTime(),
+                                failure != null || isError(response.statusCode()));
+                        return null;
+                    }));
+        }
+
+        try {
+            CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new))
+                    .get(REQUEST_TIMEOUT.toSeconds() * 2, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("requests still in flight after the run", e);
+        }
+        report.finish(System.nanoTime() - start);
+        return report;
+    }
+
+    private HttpRequest request(Operation operation, SplittableRandom random) {
+        return switch (operation) {
+            case GET -> builder(customer(pickId(random, false)))
+                    .GET()
+                    .build();
+            case POST -> {
+                long n = ++registrations;
+                yield builder(customers)
+                        .POST(json(new CustomerRegistrationRequest(
+                                "Load " + n,
+                                "%s-new-%d@example.com".formatted(emailPrefix, n),
+                                18 + random.nextInt(50))))
+                        .build();
+            }
+            case PUT -> builder(customer(pickId(random, false)))
+                    .PUT(json(new CustomerUpdateRequest("Renamed " + random.nextLong(), null, null)))
+                    .build();
+            case DELETE -> builder(customer(pickId(random, true)))
+                    .DELETE()
+                    .build();
+        };
+    }
+
+    private long pickId(SplittableRandom random, boolean remove) {
+        // an emptied pool is answered with 404, which is not counted as an error
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        int index = random.nextInt(ids.size());
+        long id = ids.get(index);
+        if (remove) {
+            ids.set(index, ids.get(ids.size() - 1));
+            ids.remove(ids.size() - 1);
+        }
+        return id;
+    }
+
+    private URI customer(long id) {
+        return URI.create(customers + "/" + id);
+    }
+
+    private HttpRequest.Builder builder(URI uri) {
+        return HttpRequest.newBuilder(uri)
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json");
+    }
+
+    private HttpRequest.BodyPublisher json(Object body) {
+        try {
+            return HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean isError(int status) {
+        // a GET or PUT racing a DELETE of the same customer may see 404
+        return status >= 400 && status != 404;
+    }
+}
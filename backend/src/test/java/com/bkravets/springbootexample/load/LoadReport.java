@@ -0,0 +1,129 @@
+package com.bkravets.springbootexample.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies of one load run, in microseconds, per operation.
+ * <p>
+ * Response time is measured from the moment a request was scheduled to be sent,
+ * so a server that stalls is charged for every request that queued up behind
+ * the stall (no coordinated omission). Service time is measured from the moment
+ * it was actually sent and is kept for comparison only.
+ */
+class LoadReport {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final Map<Operation, Histogram> responseTimes = new EnumMap<>(Operation.class);
+    private final Map<Operation, Histogram> serviceTimes = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    private final double targetRate;
+    private long elapsedNanos;
+
+    LoadReport(double targetRate) {
+        this.targetRate = targetRate;
+        for (Operation operation : Operation.values()) {
+            responseTimes.put(operation, new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3));
+            serviceTimes.put(operation, new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3));
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    void record(Operation operation, long intendedNanos, long sentNanos, long completedNanos, boolean error) {
+        responseTimes.get(operation).recordValue(toMicros(completedNanos - intendedNanos));
+        serviceTimes.get(operation).recordValue(toMicros(completedNanos - sentNanos));
+        if (error) {
+            errors.get(operation).increment();
+        }
+    }
+
+    void finish(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    long totalCount() {
+        return responseTimes.values().stream().mapToLong(Histogram::getTotalCount).sum();
+    }
+
+    long totalErrors() {
+        return errors.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    double errorRate() {
+        long count = totalCount();
+        return count == 0 ? 0 : (double) totalErrors() / count;
+    }
+
+    double throughput() {
+        return elapsedNanos == 0 ? 0 : totalCount() / (elapsedNanos / 1e9);
+    }
+
+    void print(PrintStream out) {
+        out.printf("target rate %.1f req/s, achieved %.1f req/s over %.1f s, %d requests, %d errors (%.3f%%)%n",
+                targetRate, throughput(), elapsedNanos / 1e9, totalCount(), totalErrors(), errorRate() * 100);
+        out.println("response time in ms, measured from the scheduled send time");
+        out.printf("%-8s %9s %8s %10s %10s %10s %10s %10s%n",
+                "op", "count", "errors", "p50", "p99", "p99.9", "max", "svc p99");
+        Histogram all = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = responseTimes.get(operation);
+            if (histogram.getTotalCount() > 0) {
+                all.add(histogram);
+                printRow(out, operation.name(), histogram, errors.get(operation).sum(),
+                        serviceTimes.get(operation));
+            }
+        }
+        Histogram allService = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        serviceTimes.values().forEach(allService::add);
+        printRow(out, "all", all, totalErrors(), allService);
+    }
+
+    /**
+     * Writes {@code summary.txt} and one {@code <operation>.hgrm} percentile
+     * distribution per operation, which can be plotted with the HdrHistogram
+     * plotter to compare runs.
+     */
+    void write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve("summary.txt")))) {
+            print(out);
+        }
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = responseTimes.get(operation);
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+            Path file = directory.resolve(operation.name().toLowerCase() + ".hgrm");
+            try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+                histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+            }
+        }
+    }
+
+    private static void printRow(PrintStream out, String name, Histogram histogram, long errors, Histogram service) {
+        out.printf("%-8s %9d %8d %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+                name,
+                histogram.getTotalCount(),
+                errors,
+                histogram.getValueAtPercentile(50) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(99) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(99.9) / MICROS_PER_MILLI,
+                histogram.getMaxValue() / MICROS_PER_MILLI,
+                service.getValueAtPercentile(99) / MICROS_PER_MILLI);
+    }
+
+    private static long toMicros(long nanos) {
+        return Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), HIGHEST_TRACKABLE_MICROS);
+    }
+}
@@ -0,0 +1,8 @@
+package com.bkravets.springbootexample.load;
+
+enum Operation {
+    GET,
+    POST,
+    PUT,
+    DELETE
+}
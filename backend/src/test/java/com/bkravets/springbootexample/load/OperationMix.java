@@ -0,0 +1,47 @@
+package com.bkravets.springbootexample.load;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Weighted choice of operations, parsed from {@code GET=70,POST=10,PUT=15,DELETE=5}.
+ * Weights are relative and need not add up to 100.
+ */
+record OperationMix(Map<Operation, Integer> weights) {
+
+    OperationMix {
+        weights = new EnumMap<>(weights);
+        if (weights.values().stream().anyMatch(weight -> weight < 0)
+                || weights.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("mix needs non-negative weights and at least one above zero");
+        }
+    }
+
+    static OperationMix parse(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] pair = entry.split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("expected OPERATION=weight but got '%s'".formatted(entry));
+            }
+            weights.merge(
+                    Operation.valueOf(pair[0].trim().toUpperCase()),
+                    Integer.parseInt(pair[1].trim()),
+                    Integer::sum);
+        }
+        return new OperationMix(weights);
+    }
+
+    Operation next(SplittableRandom random) {
+        int total = weights.values().stream().mapToInt(Integer::intValue).sum();
+        int pick = random.nextInt(total);
+        for (Map.Entry<Operation, Integer> entry : weights.entrySet()) {
+            pick -= entry.getValue();
+            if (pick < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("unreachable");
+    }
+}
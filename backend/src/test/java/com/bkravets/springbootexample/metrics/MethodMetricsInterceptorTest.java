@@ -0,0 +1,158 @@
+package com.bkravets.springbootexample.metrics;
+
+import com.bkravets.springbootexample.customer.Customer;
+import com.bkravets.springbootexample.customer.CustomerDao;
+import com.bkravets.springbootexample.customer.CustomerListDataAccessService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MethodMetricsInterceptorTest {
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private CustomerDao underTest;
+
+    @BeforeEach
+    void setUp() {
+        // starts out with two customers
+        underTest = metered(new FailingDao());
+    }
+
+    @Test
+    void timesCallsPerMethodAndImplementation() {
+        underTest.selectCustomerById(1L);
+        underTest.selectCustomerById(2L);
+        underTest.insertCustomer(new Customer("Anna", "anna@gmail.com", 21));
+
+        assertThat(registry.get("customer.dao.invocations")
+                .tags("dao", "list", "method", "selectCustomerById", "exception", "none")
+                .timer()
+                .count()).isEqualTo(2);
+        assertThat(registry.get("customer.dao.invocations")
+                .tags("method", "insertCustomer")
+                .timer()
+                .count()).isEqualTo(1);
+    }
+
+    @Test
+    void recordsRowsReturned() {
+        underTest.selectAllCustomers();
+        underTest.selectCustomerById(-1L);
+
+        assertThat(registry.get("customer.dao.rows").tags("method", "selectAllCustomers").summary().totalAmount())
+                .isEqualTo(2);
+        assertThat(registry.get("customer.dao.rows").tags("method", "selectCustomerById").summary().totalAmount())
+                .isZero();
+    }
+
+    @Test
+    void tagsFailuresWithException() {
+        assertThatThrownBy(() -> underTest.selectCustomerVersion(1L))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(registry.get("customer.dao.invocations")
+                .tags("method", "selectCustomerVersion", "exception", "IllegalStateException")
+                .timer()
+                .count()).isEqualTo(1);
+    }
+
+    @Test
+    void timesStreamsUntilClosed() {
+        try (Stream<Customer> customers = underTest.streamAllCustomers()) {
+            assertThat(customers.count()).isEqualTo(2);
+            assertThat(registry.find("customer.dao.invocations").tags("method", "streamAllCustomers").timer())
+                    .isNull();
+        }
+
+        assertThat(registry.get("customer.dao.invocations").tags("method", "streamAllCustomers").timer().count())
+                .isEqualTo(1);
+        assertThat(registry.get("customer.dao.rows").tags("method", "streamAllCustomers").summary().totalAmount())
+                .isEqualTo(2);
+    }
+
+    @Test
+    void tagsStreamsFailingWhileIteratedWithException() {
+        try (Stream<String> emails = underTest.streamAllEmails()) {
+            assertThatThrownBy(emails::toList).isInstanceOf(IllegalStateException.class);
+        }
+
+        assertThat(registry.find("customer.dao.invocations")
+                .tags("method", "streamAllEmails", "exception", "none")
+                .timer()).isNull();
+        assertThat(registry.get("customer.dao.invocations")
+                .tags("method", "streamAllEmails", "exception", "IllegalStateException")
+                .timer()
+                .count()).isEqualTo(1);
+        assertThat(registry.get("customer.dao.rows").tags("method", "streamAllEmails").summary().totalAmount())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void tagsStreamsFailingToCloseWithException() {
+        CustomerDao failingClose = metered(new CustomerListDataAccessService() {
+            @Override
+            public Stream<Customer> streamAllCustomers() {
+                return super.streamAllCustomers().onClose(() -> {
+                    throw new IllegalStateException("connection lost");
+                });
+            }
+        });
+
+        Stream<Customer> customers = failingClose.streamAllCustomers();
+        assertThat(customers.count()).isEqualTo(2);
+        assertThatThrownBy(customers::close).isInstanceOf(IllegalStateException.class);
+
+        assertThat(registry.get("customer.dao.invocations")
+                .tags("method", "streamAllCustomers", "exception", "IllegalStateException")
+                .timer()
+                .count()).isEqualTo(1);
+    }
+
+    @Test
+    void meteredBeanIsNotMeteredTwice() {
+        CustomerDao twice = (CustomerDao) MethodMetricsConfig.metered(underTest, CustomerDao.class,
+                new MethodMetricsInterceptor(registryProvider(), "customer.dao", Tags.of("dao", "customerDao")));
+
+        twice.selectCustomerById(1L);
+
+        assertThat(twice).isSameAs(underTest);
+        assertThat(registry.find("customer.dao.invocations").tags("dao", "customerDao").timer()).isNull();
+    }
+
+    private CustomerDao metered(CustomerDao dao) {
+        return (CustomerDao) MethodMetricsConfig.metered(dao, CustomerDao.class,
+                new MethodMetricsInterceptor(registryProvider(), "customer.dao", Tags.of("dao", "list")));
+    }
+
+    private ObjectProvider<MeterRegistry> registryProvider() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("meterRegistry", registry);
+        return beanFactory.getBeanProvider(MeterRegistry.class);
+    }
+
+    static class FailingDao extends CustomerListDataAccessService {
+        @Override
+        public Optional<Long> selectCustomerVersion(Long id) {
+            throw new IllegalStateException("versions unavailable");
+        }
+
+        @Override
+        public Stream<String> streamAllEmails() {
+            return Stream.of("alex@gmail.com", "anna@gmail.com").map(email -> {
+                if (email.startsWith("anna")) {
+                    throw new IllegalStateException("connection lost");
+                }
+                return email;
+            });
+        }
+    }
+}
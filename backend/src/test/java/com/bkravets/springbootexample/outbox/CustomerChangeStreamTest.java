@@ -0,0 +1,214 @@
+package com.bkravets.springbootexample.outbox;
+
+import com.bkravets.springbootexample.customer.Customer;
+import com.bkravets.springbootexample.exception.RequestValidationException;
+import com.bkravets.springbootexample.exception.ResourceGoneException;
+import com.bkravets.springbootexample.outbox.CustomerOutboxRepository.Retention;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerChangeStreamTest {
+    private static final int PAGE_SIZE = 2;
+    private static final int QUEUE_SIZE = 4;
+
+    @Mock
+    private CustomerOutboxRepository repository;
+
+    private CustomerChangeStream underTest;
+
+    @BeforeEach
+    void setUp() {
+        // sends each event before deliver moves on
+        underTest = new CustomerChangeStream(repository, PAGE_SIZE, 10, QUEUE_SIZE, Runnable::run);
+    }
+
+    @Test
+    void subscribersReceiveNewEventsInOrder() {
+        when(repository.selectLastOffset()).thenReturn(10L);
+        RecordingEmitter emitter = new RecordingEmitter();
+        underTest.register(emitter, 10);
+        when(repository.selectPublished(10, Long.MAX_VALUE, PAGE_SIZE)).thenReturn(events(11, 12));
+        when(repository.selectPublished(12, Long.MAX_VALUE, PAGE_SIZE)).thenReturn(events(13));
+
+        underTest.deliver();
+
+        assertThat(emitter.ids).containsExactly(11L, 12L, 13L);
+    }
+
+    @Test
+    void deliverOnlyQueuesEventsForTheSenders() {
+        Queue<Runnable> sends = new ArrayDeque<>();
+        underTest = new CustomerChangeStream(repository, PAGE_SIZE, 10, QUEUE_SIZE, sends::add);
+        when(repository.selectLastOffset()).thenReturn(10L);
+        RecordingEmitter emitter = new RecordingEmitter();
+        underTest.register(emitter, 10);
+        when(repository.selectPublished(10, Long.MAX_VALUE, PAGE_SIZE)).thenReturn(events(11, 12));
+        when(repository.selectPublished(12, Long.MAX_VALUE, PAGE_SIZE)).thenReturn(List.of());
+
+        underTest.deliver();
+        underTest.heartbeat();
+
+        assertThat(emitter.ids).isEmpty();
+        // one sender at a time per subscriber
+        assertThat(sends).hasSize(1);
+        sends.poll().run();
+        assertThat(emitter.ids).containsExactly(11L, 12L);
+    }
+
+    @Test
+    void slowSubscribersAreDisconnectedWithoutHoldingUpOthers() throws InterruptedException {
+        ExecutorService senders = Executors.newCachedThreadPool();
+        underTest = new CustomerChangeStream(repository, PAGE_SIZE, 10, QUEUE_SIZE, senders);
+        try {
+            when(repository.selectLastOffset()).thenReturn(10L);
+            SlowEmitter slow = new SlowEmitter();
+            RecordingEmitter fast = new RecordingEmitter();
+            underTest.register(slow, 10);
+            underTest.register(fast, 10);
+            when(repository.selectPublished(10, Long.MAX_VALUE, PAGE_SIZE)).thenReturn(events(11));
+            underTest.deliver();
+            assertThat(slow.sending.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(fast.sent.tryAcquire(5, TimeUnit.SECONDS)).isTrue();
+
+            // fills the slow one's queue while it is still sending 11
+            when(repository.selectPublished(11, Long.MAX_VALUE, PAGE_SIZE)).thenReturn(events(12, 13));
+            when(repository.selectPublished(13, Long.MAX_VALUE, PAGE_SIZE)).thenReturn(events(14, 15));
+            when(repository.selectPublished(15, Long.MAX_VALUE, PAGE_SIZE)).thenReturn(List.of(), events(16));
+            underTest.deliver();
+            assertThat(fast.sent.tryAcquire(4, 5, TimeUnit.SECONDS)).isTrue();
+            assertThat(slow.completion.getCount()).isOne();
+
+            underTest.deliver();
+            assertThat(fast.sent.tryAcquire(5, TimeUnit.SECONDS)).isTrue();
+            slow.release.countDown();
+
+            assertThat(slow.completion.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(slow.ids).containsExactly(11L);
+            assertThat(fast.ids).containsExactly(11L, 12L, 13L, 14L, 15L, 16L);
+        } finally {
+            senders.shutdownNow();
+        }
+    }
+
+    @Test
+    void laggingSubscribersCatchUpAPagePerDelivery() {
+        when(repository.selectLastOffset()).thenReturn(10L);
+        RecordingEmitter emitter = new RecordingEmitter();
+        underTest.register(emitter, 6);
+        when(repository.selectPublished(6, 10, PAGE_SIZE)).thenReturn(events(7, 8));
+        when(repository.selectPublished(8, 10, PAGE_SIZE)).thenReturn(events(9, 10));
+        when(repository.selectPublished(10, Long.MAX_VALUE, PAGE_SIZE)).thenReturn(List.of(), events(11));
+
+        underTest.deliver();
+        underTest.deliver();
+
+        assertThat(emitter.ids).containsExactly(7L, 8L, 9L, 10L, 11L);
+    }
+
+    @Test
+    void subscribersMissingDeletedEventsAreCompleted() {
+        when(repository.selectLastOffset()).thenReturn(10L);
+        RecordingEmitter emitter = new RecordingEmitter();
+        underTest.register(emitter, 2);
+        when(repository.selectPublished(2, 10, PAGE_SIZE)).thenReturn(events(5, 6));
+        when(repository.selectPublished(10, Long.MAX_VALUE, PAGE_SIZE)).thenReturn(List.of());
+
+        underTest.deliver();
+
+        assertThat(emitter.ids).isEmpty();
+        assertThat(emitter.completed).isTrue();
+    }
+
+    @Test
+    void subscribeRejectsOffsetsNoLongerKept() {
+        when(repository.retentionAfter(3L)).thenReturn(Retention.EXPIRED);
+
+        assertThatThrownBy(() -> underTest.subscribe(3L))
+                .isInstanceOf(ResourceGoneException.class);
+    }
+
+    @Test
+    void subscribeRejectsOffsetsNotPublishedYet() {
+        when(repository.retentionAfter(30L)).thenReturn(Retention.UNPUBLISHED);
+
+        assertThatThrownBy(() -> underTest.subscribe(30L))
+                .isInstanceOf(RequestValidationException.class);
+    }
+
+    private static List<CustomerChangeEvent> events(long... offsets) {
+        return LongStream.of(offsets)
+                .mapToObj(offset -> new CustomerChangeEvent(
+                        offset,
+                        CustomerChangeEvent.Type.CUSTOMER_UPDATED,
+                        new Customer(1L, "Name", "name@mail.com", 20, offset),
+                        offset,
+                        Instant.EPOCH))
+                .toList();
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        private static final Pattern ID = Pattern.compile("^id:(\\d+)$", Pattern.MULTILINE);
+
+        final List<Long> ids = new CopyOnWriteArrayList<>();
+        final Semaphore sent = new Semaphore(0);
+        final CountDownLatch completion = new CountDownLatch(1);
+        volatile boolean completed;
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            StringBuilder text = new StringBuilder();
+            builder.build().forEach(part -> text.append(part.getData()));
+            Matcher matcher = ID.matcher(text);
+            if (matcher.find()) {
+                ids.add(Long.parseLong(matcher.group(1)));
+                sent.release();
+            }
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+            completion.countDown();
+        }
+    }
+
+    // blocks in its first send until released, like a client that stopped reading
+    private static class SlowEmitter extends RecordingEmitter {
+        final CountDownLatch sending = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            sending.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.send(builder);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.bkravets.springbootexample.outbox;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerOutboxRelayTest {
+    private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Mock
+    private CustomerOutboxRepository repository;
+    @Mock
+    private CustomerChangeStream stream;
+
+    private CustomerOutboxRelay underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerOutboxRelay(repository, stream, TransactionOperations.withoutTransaction(),
+                2, Duration.ofMillis(200), Duration.ofSeconds(15), Duration.ofDays(7),
+                Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    void relayPublishesFullBatchesBeforeDelivering() {
+        when(repository.publish(2)).thenReturn(2, 2, 1);
+
+        underTest.relay();
+
+        InOrder inOrder = inOrder(repository, stream);
+        inOrder.verify(repository, times(3)).publish(2);
+        inOrder.verify(stream).deliver();
+        inOrder.verify(repository).deletePublishedBefore(NOW.minus(Duration.ofDays(7)), 2);
+    }
+
+    @Test
+    void purgeRunsAtMostOncePerInterval() {
+        underTest.relay();
+        underTest.relay();
+
+        verify(stream, times(2)).deliver();
+        verify(repository, times(1)).deletePublishedBefore(any(), anyInt());
+    }
+
+    @Test
+    void failuresDoNotStopTheRelay() {
+        when(repository.publish(2)).thenThrow(new IllegalStateException("connection refused")).thenReturn(0);
+
+        underTest.relay();
+        underTest.relay();
+
+        verify(stream, times(1)).deliver();
+    }
+}
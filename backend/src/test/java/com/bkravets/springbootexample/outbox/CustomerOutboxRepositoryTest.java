@@ -0,0 +1,105 @@
+package com.bkravets.springbootexample.outbox;
+
+import com.bkravets.springbootexample.AbstractTestContainersUnitTest;
+import com.bkravets.springbootexample.customer.Customer;
+import com.bkravets.springbootexample.customer.CustomerJDBCDataAccessService;
+import com.bkravets.springbootexample.customer.CustomerRowMapper;
+import com.bkravets.springbootexample.outbox.CustomerOutboxRepository.Retention;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerOutboxRepositoryTest extends AbstractTestContainersUnitTest {
+    private static final int BATCH_SIZE = 1000;
+
+    private CustomerOutboxRepository underTest;
+    private CustomerJDBCDataAccessService customerDao;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerOutboxRepository(getJdbcTemplate());
+        customerDao = new CustomerJDBCDataAccessService(getJdbcTemplate(), new CustomerRowMapper());
+    }
+
+    @Test
+    void customerWritesAreRecordedInOrder() {
+        // Given
+        long lastOffset = publishAll();
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        long id = customerDao.insertCustomerIfEmailAbsent(new Customer("Name", email, 20)).orElseThrow();
+        customerDao.updateCustomer(new Customer(id, null, null, 21, null));
+        customerDao.deleteCustomer(id);
+
+        // When
+        publishAll();
+        List<CustomerChangeEvent> actual = underTest.selectPublished(lastOffset, Long.MAX_VALUE, BATCH_SIZE)
+                .stream()
+                .filter(event -> event.customer().getId() == id)
+                .toList();
+
+        // Then
+        assertThat(actual).extracting(CustomerChangeEvent::type).containsExactly(
+                CustomerChangeEvent.Type.CUSTOMER_CREATED,
+                CustomerChangeEvent.Type.CUSTOMER_UPDATED,
+                CustomerChangeEvent.Type.CUSTOMER_DELETED);
+        assertThat(actual).extracting(event -> event.customer().getAge()).containsExactly(20, 21, 21);
+        assertThat(actual).extracting(CustomerChangeEvent::version).containsExactly(0L, 1L, 1L);
+        assertThat(actual).extracting(CustomerChangeEvent::offset).isSorted();
+    }
+
+    @Test
+    void publishAssignsGaplessOffsets() {
+        // Given
+        long lastOffset = publishAll();
+        customerDao.insertCustomers(LongStream.range(0, 5)
+                .mapToObj(i -> new Customer(
+                        FAKER.name().fullName(),
+                        FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                        20))
+                .toList());
+
+        // When
+        int published = underTest.publish(BATCH_SIZE);
+
+        // Then
+        assertThat(published).isEqualTo(5);
+        assertThat(underTest.selectLastOffset()).isEqualTo(lastOffset + 5);
+        assertThat(underTest.selectPublished(lastOffset, Long.MAX_VALUE, BATCH_SIZE))
+                .extracting(CustomerChangeEvent::offset)
+                .containsExactly(LongStream.rangeClosed(lastOffset + 1, lastOffset + 5).boxed().toArray(Long[]::new));
+        assertThat(underTest.publish(BATCH_SIZE)).isZero();
+    }
+
+    @Test
+    void deletedEventsAreNoLongerRetained() {
+        // Given
+        customerDao.insertCustomer(new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                20));
+        long lastOffset = publishAll();
+
+        // When
+        underTest.deletePublishedBefore(Instant.now().plus(Duration.ofDays(1)), Integer.MAX_VALUE);
+
+        // Then
+        assertThat(underTest.retentionAfter(lastOffset - 1)).isEqualTo(Retention.EXPIRED);
+        assertThat(underTest.retentionAfter(lastOffset)).isEqualTo(Retention.RETAINED);
+        assertThat(underTest.retentionAfter(lastOffset + 1)).isEqualTo(Retention.UNPUBLISHED);
+        assertThat(underTest.selectPublished(0, Long.MAX_VALUE, BATCH_SIZE)).isEmpty();
+    }
+
+    private long publishAll() {
+        while (underTest.publish(BATCH_SIZE) == BATCH_SIZE) {
+            // more to publish
+        }
+        return underTest.selectLastOffset();
+    }
+}
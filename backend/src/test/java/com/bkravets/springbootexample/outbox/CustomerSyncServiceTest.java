@@ -0,0 +1,103 @@
+package com.bkravets.springbootexample.outbox;
+
+import com.bkravets.springbootexample.customer.Customer;
+import com.bkravets.springbootexample.exception.RequestValidationException;
+import com.bkravets.springbootexample.exception.ResourceGoneException;
+import com.bkravets.springbootexample.outbox.CustomerOutboxRepository.Retention;
+import com.bkravets.springbootexample.token.OpaqueToken;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerSyncServiceTest {
+    @Mock
+    private CustomerOutboxRepository repository;
+
+    private CustomerSyncService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerSyncService(repository);
+    }
+
+    @Test
+    void withoutTokenHandsOutTheCurrentOne() {
+        when(repository.selectLastOffset()).thenReturn(42L);
+
+        CustomerChanges actual = underTest.getChanges(null, null);
+
+        assertThat(actual.changed()).isEmpty();
+        assertThat(actual.next()).isEqualTo(OpaqueToken.encode(42));
+        verify(repository, never()).selectPublished(anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    void changesKeepTheLastStateOfEachCustomer() {
+        when(repository.retentionAfter(10L)).thenReturn(Retention.RETAINED);
+        when(repository.selectPublished(10, Long.MAX_VALUE, 4)).thenReturn(List.of(
+                event(11, CustomerChangeEvent.Type.CUSTOMER_CREATED, 1L, 20),
+                event(12, CustomerChangeEvent.Type.CUSTOMER_UPDATED, 2L, 30),
+                event(13, CustomerChangeEvent.Type.CUSTOMER_UPDATED, 1L, 21),
+                event(14, CustomerChangeEvent.Type.CUSTOMER_DELETED, 2L, 30)));
+
+        CustomerChanges actual = underTest.getChanges(OpaqueToken.encode(10), 3);
+
+        assertThat(actual.changed()).extracting(Customer::getId).containsExactly(2L, 1L);
+        assertThat(actual.changed()).extracting(Customer::getAge).containsExactly(30, 21);
+        assertThat(actual.deleted()).isEmpty();
+        assertThat(actual.next()).isEqualTo(OpaqueToken.encode(13));
+        assertThat(actual.hasMore()).isTrue();
+    }
+
+    @Test
+    void deletedCustomersAreTombstoned() {
+        when(repository.retentionAfter(10L)).thenReturn(Retention.RETAINED);
+        when(repository.selectPublished(10, Long.MAX_VALUE, 501)).thenReturn(List.of(
+                event(11, CustomerChangeEvent.Type.CUSTOMER_UPDATED, 2L, 30),
+                event(12, CustomerChangeEvent.Type.CUSTOMER_DELETED, 2L, 30)));
+
+        CustomerChanges actual = underTest.getChanges(OpaqueToken.encode(10), null);
+
+        assertThat(actual.changed()).isEmpty();
+        assertThat(actual.deleted()).containsExactly(2L);
+        assertThat(actual.hasMore()).isFalse();
+    }
+
+    @Test
+    void expiredTokensAreRejected() {
+        when(repository.retentionAfter(10L)).thenReturn(Retention.EXPIRED);
+
+        assertThatThrownBy(() -> underTest.getChanges(OpaqueToken.encode(10), null))
+                .isInstanceOf(ResourceGoneException.class);
+    }
+
+    @Test
+    void tokensAheadOfThePublishedEventsAreRejected() {
+        when(repository.retentionAfter(10L)).thenReturn(Retention.UNPUBLISHED);
+
+        assertThatThrownBy(() -> underTest.getChanges(OpaqueToken.encode(10), null))
+                .isInstanceOf(RequestValidationException.class);
+    }
+
+    @Test
+    void invalidTokensAreRejected() {
+        assertThatThrownBy(() -> underTest.getChanges("not a token", null))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Invalid sync token");
+    }
+
+    private static CustomerChangeEvent event(long offset, CustomerChangeEvent.Type type, Long id, int age) {
+        return new CustomerChangeEvent(
+                offset, type, new Customer(id, "Name", "name@mail.com", age, offset), offset, Instant.EPOCH);
+    }
+}
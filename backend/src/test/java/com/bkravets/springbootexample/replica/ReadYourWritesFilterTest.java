@@ -0,0 +1,108 @@
+package com.bkravets.springbootexample.replica;
+
+import com.bkravets.springbootexample.customer.Customer;
+import com.bkravets.springbootexample.customer.CustomerDao;
+import com.bkravets.springbootexample.customer.CustomerListDataAccessService;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadYourWritesFilterTest {
+    private static final Instant NOW = Instant.parse("2023-08-01T10:00:00Z");
+
+    private final ReadYourWritesFilter underTest =
+            new ReadYourWritesFilter(Duration.ofSeconds(5), Clock.fixed(NOW, ZoneOffset.UTC));
+    private final CustomerDao customerDao = routed(new CustomerListDataAccessService());
+
+    @Test
+    void writeSetsCookieAndKeepsLaterReadsOnPrimary() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/customers");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        List<Boolean> readsFromReplica = new ArrayList<>();
+
+        underTest.doFilter(request, response, new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req,
+                                   HttpServletResponse res) {
+                readsFromReplica.add(readFromReplica());
+                customerDao.insertCustomer(new Customer("Anna", "anna@gmail.com", 21));
+                readsFromReplica.add(readFromReplica());
+            }
+        }));
+
+        assertThat(readsFromReplica).containsExactly(true, false);
+        Cookie cookie = response.getCookie(ReadYourWritesFilter.COOKIE);
+        assertThat(cookie).isNotNull();
+        assertThat(cookie.getValue()).isEqualTo(Long.toString(NOW.toEpochMilli() + 5000));
+        assertThat(cookie.getMaxAge()).isEqualTo(5);
+    }
+
+    @Test
+    void readsDoNotSetCookie() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        underTest.doFilter(new MockHttpServletRequest("GET", "/api/v1/customers/1"), response,
+                new MockFilterChain(new HttpServlet() {
+                    @Override
+                    protected void service(HttpServletRequest req,
+                                           HttpServletResponse res) {
+                        customerDao.selectCustomerById(1L);
+                    }
+                }));
+
+        assertThat(response.getCookie(ReadYourWritesFilter.COOKIE)).isNull();
+    }
+
+    @Test
+    void cookieKeepsReadsOnPrimaryUntilItExpires() throws Exception {
+        assertThat(readsFromReplicaWithCookie(NOW.toEpochMilli() + 1)).isFalse();
+        assertThat(readsFromReplicaWithCookie(NOW.toEpochMilli())).isTrue();
+    }
+
+    private boolean readsFromReplicaWithCookie(long primaryReadsUntil) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/customers/1");
+        request.setCookies(new Cookie(ReadYourWritesFilter.COOKIE, Long.toString(primaryReadsUntil)));
+        List<Boolean> readsFromReplica = new ArrayList<>();
+
+        underTest.doFilter(request, new MockHttpServletResponse(),
+                new MockFilterChain(new HttpServlet() {
+                    @Override
+                    protected void service(HttpServletRequest req,
+                                           HttpServletResponse res) {
+                        readsFromReplica.add(readFromReplica());
+                    }
+                }));
+
+        return readsFromReplica.get(0);
+    }
+
+    private static boolean readFromReplica() {
+        ReplicaRouting.decide(true);
+        try {
+            return ReplicaRouting.readsFromReplica();
+        } finally {
+            ReplicaRouting.clearDecision();
+        }
+    }
+
+    private static CustomerDao routed(CustomerDao dao) {
+        ProxyFactory proxyFactory = new ProxyFactory(dao);
+        proxyFactory.addAdvice(new ReadOnlyRoutingInterceptor());
+        return (CustomerDao) proxyFactory.getProxy();
+    }
+}
@@ -0,0 +1,31 @@
+package com.bkravets.springbootexample.replica;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReplicaRoutingConfigTest {
+
+    private final ReplicaRoutingConfig underTest = new ReplicaRoutingConfig();
+
+    @Test
+    void readYourWritesWindowMustOutlastReplicaLag() {
+        assertThatThrownBy(() -> underTest.readYourWritesFilter(
+                Duration.ofSeconds(5), Duration.ofSeconds(10), Duration.ofSeconds(5)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("read-your-writes");
+        assertThatThrownBy(() -> underTest.readYourWritesFilter(
+                Duration.ofSeconds(14), Duration.ofSeconds(10), Duration.ofSeconds(5)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void readYourWritesWindowCoveringReplicaLagIsAccepted() {
+        assertThat(underTest.readYourWritesFilter(
+                Duration.ofSeconds(15), Duration.ofSeconds(10), Duration.ofSeconds(5)))
+                .isNotNull();
+    }
+}
@@ -0,0 +1,148 @@
+package com.bkravets.springbootexample.replica;
+
+import com.bkravets.springbootexample.AbstractTestContainersUnitTest;
+import com.bkravets.springbootexample.execution.BulkheadDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The replicas are stand-ins: connections to the same database that only
+ * differ in their application_name, which tells where a query ran.
+ */
+class ReplicaRoutingDataSourceTest extends AbstractTestContainersUnitTest {
+
+    private ReplicaRoutingDataSource underTest;
+
+    @AfterEach
+    void tearDown() {
+        ReplicaRouting.clearDecision();
+        ReplicaRouting.unbind();
+    }
+
+    @Test
+    void undecidedCallsAndWritesUsePrimary() {
+        // Given
+        underTest = routing(Duration.ofSeconds(10), standIn("replica-0"));
+
+        // When
+        String undecided = applicationName();
+        ReplicaRouting.decide(false);
+        String write = applicationName();
+
+        // Then
+        assertThat(undecided).isEqualTo("primary");
+        assertThat(write).isEqualTo("primary");
+    }
+
+    @Test
+    void readsTakeTurnsOnReplicas() {
+        // Given
+        underTest = routing(Duration.ofSeconds(10), standIn("replica-0"), standIn("replica-1"));
+        ReplicaRouting.decide(true);
+
+        // When
+        List<String> actual = List.of(applicationName(), applicationName(), applicationName());
+
+        // Then
+        assertThat(actual).containsExactly("replica-0", "replica-1", "replica-0");
+    }
+
+    @Test
+    void readsSkipReplicaThatRefusesConnections() {
+        // Given
+        DataSource unreachable = DataSourceBuilder.create()
+                .url("jdbc:postgresql://localhost:1/customer")
+                .build();
+        underTest = routing(Duration.ofSeconds(10), unreachable, standIn("replica-1"));
+        ReplicaRouting.decide(true);
+
+        // When
+        List<String> actual = List.of(applicationName(), applicationName());
+
+        // Then
+        assertThat(actual).containsExactly("replica-1", "replica-1");
+    }
+
+    @Test
+    void readsUsePrimaryWhileReplicaIsBusy() throws SQLException {
+        // Given
+        underTest = routing(Duration.ofSeconds(10),
+                new BulkheadDataSource(standIn("replica-0"), 1, Duration.ofMillis(50)));
+        ReplicaRouting.decide(true);
+
+        // When
+        String busy;
+        try (Connection held = underTest.getConnection()) {
+            busy = applicationName();
+        }
+        String idle = applicationName();
+
+        // Then
+        assertThat(busy).isEqualTo("primary");
+        assertThat(idle).isEqualTo("replica-0");
+    }
+
+    @Test
+    void readsUsePrimaryWhenHealthCheckTakesEveryReplicaOut() {
+        // Given
+        // any lag is too much, so the stand-in counts as lagging
+        underTest = routing(Duration.ofMillis(-1), standIn("replica-0"));
+        ReplicaRouting.decide(true);
+
+        // When
+        underTest.checkHealth();
+
+        // Then
+        assertThat(applicationName()).isEqualTo("primary");
+    }
+
+    @Test
+    void readsOfPinnedClientUsePrimary() {
+        // Given
+        underTest = routing(Duration.ofSeconds(10), standIn("replica-0"));
+        ReplicaRouting.bind(new ReplicaRouting.Client() {
+            @Override
+            public boolean pinnedToPrimary() {
+                return true;
+            }
+
+            @Override
+            public void wrote() {
+            }
+        });
+        ReplicaRouting.decide(true);
+
+        // When
+        // Then
+        assertThat(applicationName()).isEqualTo("primary");
+    }
+
+    private String applicationName() {
+        return new JdbcTemplate(underTest).queryForObject("SELECT current_setting('application_name')", String.class);
+    }
+
+    private static ReplicaRoutingDataSource routing(Duration maxLag, DataSource... replicas) {
+        return new ReplicaRoutingDataSource(standIn("primary"), List.of(replicas), maxLag,
+                Executors.newSingleThreadScheduledExecutor());
+    }
+
+    private static DataSource standIn(String applicationName) {
+        String url = postgreSQLContainer.getJdbcUrl();
+        return DataSourceBuilder.create()
+                .url(url + (url.contains("?") ? "&" : "?") + "ApplicationName=" + applicationName)
+                .username(postgreSQLContainer.getUsername())
+                .password(postgreSQLContainer.getPassword())
+                .build();
+    }
+}
@@ -0,0 +1,40 @@
+package com.bkravets.springbootexample.token;
+
+import com.bkravets.springbootexample.exception.RequestValidationException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OpaqueTokenTest {
+
+    @Test
+    void decodeReturnsEncodedPosition() {
+        assertThat(OpaqueToken.decode(OpaqueToken.encode(42), "cursor")).isEqualTo(42L);
+        assertThat(OpaqueToken.decode(OpaqueToken.encode(0), "cursor")).isZero();
+    }
+
+    @Test
+    void decodeRejectsMalformedTokens() {
+        assertThatThrownBy(() -> OpaqueToken.decode("not a token", "sync token"))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Invalid sync token");
+        assertThatThrownBy(() -> OpaqueToken.decode(encoded("abc"), "cursor"))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Invalid cursor");
+    }
+
+    @Test
+    void decodeRejectsNegativePositions() {
+        assertThatThrownBy(() -> OpaqueToken.decode(encoded("-1"), "sync token"))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Invalid sync token");
+    }
+
+    private static String encoded(String text) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
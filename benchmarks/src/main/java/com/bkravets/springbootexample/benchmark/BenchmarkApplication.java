@@ -0,0 +1,76 @@
+package com.bkravets.springbootexample.benchmark;
+
+import com.bkravets.springbootexample.SpringBootExampleApplication;
+import com.bkravets.springbootexample.customer.Customer;
+import org.flywaydb.core.Flyway;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Boots the application without a web server against a freshly emptied database.
+ * Each JMH fork runs a single benchmark and parameter combination, so a context
+ * per trial is also a context per JVM.
+ */
+final class BenchmarkApplication {
+
+    private static PostgreSQLContainer<?> postgreSQLContainer;
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String... properties) {
+        String url = System.getProperty("benchmark.datasource.url");
+        String username = System.getProperty("benchmark.datasource.username", "kravets");
+        String password = System.getProperty("benchmark.datasource.password", "password");
+        if (url == null) {
+            PostgreSQLContainer<?> container = container();
+            url = container.getJdbcUrl();
+            username = container.getUsername();
+            password = container.getPassword();
+        }
+
+        Flyway.configure().dataSource(url, username, password).load().migrate();
+        new JdbcTemplate(new DriverManagerDataSource(url, username, password))
+                .execute("TRUNCATE customer RESTART IDENTITY");
+
+        // passed as command line arguments so they win over application.yml
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url=" + url,
+                "--spring.datasource.username=" + username,
+                "--spring.datasource.password=" + password,
+                "--spring.jpa.show-sql=false",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=warn"));
+        for (String property : properties) {
+            args.add("--" + property);
+        }
+        return new SpringApplicationBuilder(SpringBootExampleApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(String[]::new));
+    }
+
+    static List<Customer> customers(int count, String prefix) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new Customer("Customer " + i, prefix + i + "@mail.com", 18 + i % 80))
+                .toList();
+    }
+
+    private static synchronized PostgreSQLContainer<?> container() {
+        if (postgreSQLContainer == null) {
+            postgreSQLContainer = new PostgreSQLContainer<>("postgres:latest")
+                    .withDatabaseName("customer-benchmark")
+                    .withUsername("root")
+                    .withPassword("root");
+            postgreSQLContainer.start();
+        }
+        return postgreSQLContainer;
+    }
+}
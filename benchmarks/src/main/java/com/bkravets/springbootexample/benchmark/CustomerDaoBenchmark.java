@@ -0,0 +1,96 @@
+package com.bkravets.springbootexample.benchmark;
+
+import com.bkravets.springbootexample.customer.Customer;
+import com.bkravets.springbootexample.customer.CustomerDao;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CustomerDaoBenchmark {
+
+    static final int ROWS = 1_000;
+
+    @Param({"jdbc", "jpa", "list", "columnar"})
+    public String dao;
+
+    private ConfigurableApplicationContext context;
+    private CustomerDao customerDao;
+    private Long[] ids;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        customerDao = context.getBean(dao, CustomerDao.class);
+        customerDao.insertCustomers(BenchmarkApplication.customers(ROWS, "seed"));
+        ids = customerDao.selectAllCustomers().stream()
+                .map(Customer::getId)
+                .toArray(Long[]::new);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Customer> selectCustomerById() {
+        return customerDao.selectCustomerById(randomId());
+    }
+
+    @Benchmark
+    public List<Customer> selectAllCustomers() {
+        return customerDao.selectAllCustomers();
+    }
+
+    @Benchmark
+    public boolean existsCustomerWithEmail() {
+        return customerDao.existsCustomerWithEmail(
+                "seed" + ThreadLocalRandom.current().nextInt(ROWS) + "@mail.com");
+    }
+
+    @Benchmark
+    public boolean existsCustomerWithEmailMiss() {
+        return customerDao.existsCustomerWithEmail(
+                "absent" + ThreadLocalRandom.current().nextInt(ROWS) + "@mail.com");
+    }
+
+    @Benchmark
+    public void insertCustomer() {
+        long n = sequence.incrementAndGet();
+        customerDao.insertCustomer(new Customer("Inserted " + n, "inserted" + n + "@mail.com", 30));
+    }
+
+    @Benchmark
+    public Object updateCustomer() {
+        return customerDao.updateCustomer(
+                new Customer(randomId(), "Updated " + sequence.incrementAndGet(), null, null));
+    }
+
+    private Long randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+}
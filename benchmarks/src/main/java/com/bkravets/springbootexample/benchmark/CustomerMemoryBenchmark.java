@@ -0,0 +1,96 @@
+package com.bkravets.springbootexample.benchmark;
+
+import com.bkravets.springbootexample.customer.Customer;
+import com.bkravets.springbootexample.customer.CustomerColumnarDataAccessService;
+import com.bkravets.springbootexample.customer.CustomerDao;
+import com.bkravets.springbootexample.customer.CustomerListDataAccessService;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Memory the in-memory DAOs hold per customer. Every shot fills a fresh DAO
+ * and reports how much heap and direct buffer memory it keeps after a GC, as
+ * the {@code heapBytesPerCustomer} and {@code offHeapBytesPerCustomer}
+ * counters; the score is how long the fill took. Event counters add up over
+ * iterations, hence a single measured one.
+ * <p>
+ * Names are 15 bytes and emails 28, like the figures quoted in
+ * {@link CustomerColumnarDataAccessService}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+public class CustomerMemoryBenchmark {
+
+    static final int ROWS = 1_000_000;
+
+    @Param({"list", "columnar"})
+    public String dao;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public double heapBytesPerCustomer;
+        public double offHeapBytesPerCustomer;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            heapBytesPerCustomer = 0;
+            offHeapBytesPerCustomer = 0;
+        }
+    }
+
+    @Benchmark
+    public CustomerDao fill(Footprint footprint) {
+        long heapBefore = usedHeap();
+        long directBefore = usedDirect();
+
+        CustomerDao store = "list".equals(dao)
+                ? new CustomerListDataAccessService()
+                : new CustomerColumnarDataAccessService();
+        // one at a time, so nothing but the store keeps the customers reachable
+        for (int i = 0; i < ROWS; i++) {
+            store.insertCustomer(new Customer(
+                    "Customer %06d".formatted(i),
+                    "customer%06d@mailboxes.com".formatted(i),
+                    18 + i % 80));
+        }
+
+        footprint.heapBytesPerCustomer = (double) (usedHeap() - heapBefore) / ROWS;
+        footprint.offHeapBytesPerCustomer = (double) (usedDirect() - directBefore) / ROWS;
+        return store;
+    }
+
+    private static long usedHeap() {
+        // a few rounds, as one collection may leave garbage another one finds
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long usedDirect() {
+        return ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(pool -> pool.getName().equals("direct"))
+                .mapToLong(BufferPoolMXBean::getMemoryUsed)
+                .sum();
+    }
+}
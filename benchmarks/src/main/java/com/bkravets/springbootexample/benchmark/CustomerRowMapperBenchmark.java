@@ -0,0 +1,63 @@
+package com.bkravets.springbootexample.benchmark;
+
+import com.bkravets.springbootexample.customer.Customer;
+import com.bkravets.springbootexample.customer.CustomerDao;
+import com.bkravets.springbootexample.customer.CustomerRowMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetProvider;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CustomerRowMapper#mapRow} alone, over rows read from Postgres once
+ * and replayed from an in-memory {@link CachedRowSet}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CustomerRowMapperBenchmark {
+
+    private final CustomerRowMapper rowMapper = new CustomerRowMapper();
+    private CachedRowSet rows;
+    private int rowNum;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        rows = RowSetProvider.newFactory().createCachedRowSet();
+        try (ConfigurableApplicationContext context = BenchmarkApplication.start()) {
+            context.getBean("jdbc", CustomerDao.class)
+                    .insertCustomers(BenchmarkApplication.customers(1_000, "seed"));
+            context.getBean(JdbcTemplate.class).query("SELECT * FROM customer", rs -> {
+                rows.populate(rs);
+                return null;
+            });
+        }
+    }
+
+    @Benchmark
+    public Customer mapRow() throws SQLException {
+        if (!rows.next()) {
+            rows.beforeFirst();
+            rows.next();
+            rowNum = 0;
+        }
+        return rowMapper.mapRow(rows, rowNum++);
+    }
+}
@@ -0,0 +1,93 @@
+package com.bkravets.springbootexample.benchmark;
+
+import com.bkravets.springbootexample.customer.Customer;
+import com.bkravets.springbootexample.customer.CustomerDao;
+import com.bkravets.springbootexample.customer.CustomerPage;
+import com.bkravets.springbootexample.customer.CustomerRegistrationRequest;
+import com.bkravets.springbootexample.customer.CustomerService;
+import com.bkravets.springbootexample.customer.CustomerUpdateRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link CustomerService} wired exactly as in the application, with
+ * {@code customer.dao} selecting the DAO (or decorator chain) underneath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CustomerServiceBenchmark {
+
+    static final int ROWS = 1_000;
+
+    @Param({"jdbc", "jpa", "cache", "bloom", "list", "columnar"})
+    public String dao;
+
+    private ConfigurableApplicationContext context;
+    private CustomerService customerService;
+    private Long[] ids;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("customer.dao=" + dao);
+        CustomerDao customerDao = context.getBean(CustomerDao.class);
+        customerDao.insertCustomers(BenchmarkApplication.customers(ROWS, "seed"));
+        customerService = context.getBean(CustomerService.class);
+        ids = customerService.getAllCustomers().stream()
+                .map(Customer::getId)
+                .toArray(Long[]::new);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Customer getCustomer() {
+        return customerService.getCustomer(randomId());
+    }
+
+    @Benchmark
+    public CustomerPage getCustomersPage() {
+        return customerService.getCustomersPage(null, 50);
+    }
+
+    @Benchmark
+    public Long addCustomer() {
+        long n = sequence.incrementAndGet();
+        return customerService.addCustomer(
+                new CustomerRegistrationRequest("Added " + n, "added" + n + "@mail.com", 30));
+    }
+
+    @Benchmark
+    public Customer updateCustomer() {
+        return customerService.updateCustomer(
+                randomId(),
+                new CustomerUpdateRequest("Updated " + sequence.incrementAndGet(), null, null));
+    }
+
+    private Long randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+}